@@ -37,6 +37,7 @@ import utility.RunnableOfT;
 import ai.AIAdapter;
 import ai.AIManager;
 import ai.AIPlugin;
+import ai.AlphaBetaPlugin;
 import com.google.common.collect.Lists;
 
 public class NewGamePanel extends ChessPanel
@@ -92,8 +93,7 @@ public class NewGamePanel extends ChessPanel
 			@Override
 			public void actionPerformed(ActionEvent event)
 			{
-				if (validAIFilesExist())
-					Driver.getInstance().pushPanel(createAIGamePanel());
+				Driver.getInstance().pushPanel(createAIGamePanel());
 			}
 		});
 		constraints.gridy = 3;
@@ -314,7 +314,7 @@ public class NewGamePanel extends ChessPanel
 		constraints.gridy = 1;
 		mPanel.add(GuiUtility.createJLabel(Messages.getString("NewGamePanel.ai")), constraints); //$NON-NLS-1$
 
-		final JComboBox aiComboBox = new JComboBox(AIManager.getInstance().getAIFiles());
+		final JComboBox aiComboBox = new JComboBox(getAIChoices());
 		constraints.gridx = 1;
 		constraints.gridy = 1;
 		constraints.fill = GridBagConstraints.HORIZONTAL;
@@ -330,8 +330,8 @@ public class NewGamePanel extends ChessPanel
 				if (GuiUtility.tryAIFileInstall(NewGamePanel.this))
 				{
 					aiComboBox.removeAllItems();
-					for (String fileName : AIManager.getInstance().getAIFiles())
-						aiComboBox.addItem(fileName);
+					for (String choice : getAIChoices())
+						aiComboBox.addItem(choice);
 				}
 			}
 		});
@@ -343,7 +343,6 @@ public class NewGamePanel extends ChessPanel
 			public void actionPerformed(ActionEvent event)
 			{
 				final String aiFileName = (String) aiComboBox.getSelectedItem();
-				File aiFile = FileUtility.getAIFile(aiFileName);
 				if (aiComboBox.getSelectedItem() == null)
 				{
 					JOptionPane.showMessageDialog(Driver.getInstance(),
@@ -363,39 +362,17 @@ public class NewGamePanel extends ChessPanel
 					return;
 				}
 
-				JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
-				StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.getDefault(), null);
-
-				String[] compileOptions = new String[] { "-d", "bin" }; //$NON-NLS-1$ //$NON-NLS-2$
-				Iterable<String> compilationOptions = Arrays.asList(compileOptions);
-
-				List<File> sourceFileList = Lists.newArrayList();
-				sourceFileList.add(aiFile);
-				Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFileList);
-				CompilationTask task = compiler.getTask(null, fileManager, null, compilationOptions, null, compilationUnits);
-
-				if (!task.call())
-				{
-					JOptionPane.showMessageDialog(
-							Driver.getInstance(),
-							Messages.getString("NewGamePanel.compilationFailed") //$NON-NLS-1$
-									+
-									Messages.getString("NewGamePanel.makeSureClassImplementsAIPlugin") //$NON-NLS-1$
-									+ Messages.getString("NewGamePanel.makeSureClassIncludes") + "import ai.*;\n" //$NON-NLS-1$ //$NON-NLS-2$
-									+ "import ai.AIAdapter.*;\n", Messages.getString("NewGamePanel.compilationFailure"), JOptionPane.PLAIN_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
+				final AIPlugin aiPlugin;
+				if (aiComboBox.getSelectedIndex() == 0)
+					aiPlugin = new AlphaBetaPlugin();
+				else
+					aiPlugin = compileAIPlugin(aiFileName);
+				if (aiPlugin == null)
 					return;
-				}
 
 				try
 				{
-					fileManager.close();
-
-					final AIPlugin aiPlugin;
 					final AIAdapter aiAdapter = new AIAdapter(gameToPlay);
-					ClassLoader classLoader = ClassLoader.getSystemClassLoader();
-					Class<?> klazz = classLoader.loadClass(aiFileName.substring(0, aiFileName.indexOf(".java"))); //$NON-NLS-1$
-					Constructor<?> constructor = klazz.getConstructor();
-					aiPlugin = (AIPlugin) constructor.newInstance();
 
 					Thread aiThread;
 					aiThread = new Thread(new Runnable()
@@ -455,24 +432,63 @@ public class NewGamePanel extends ChessPanel
 		return mPanel;
 	}
 
-	public boolean validAIFilesExist()
+	/**
+	 * @return The built in AI, first, followed by the installed AI files
+	 */
+	private static String[] getAIChoices()
 	{
-		if (AIManager.getInstance().getAIFiles().length == 0)
+		String[] aiFiles = AIManager.getInstance().getAIFiles();
+		String[] choices = new String[aiFiles.length + 1];
+		choices[0] = Messages.getString("NewGamePanel.builtInAI"); //$NON-NLS-1$
+		System.arraycopy(aiFiles, 0, choices, 1, aiFiles.length);
+		return choices;
+	}
+
+	/**
+	 * Compile an installed AI file and create an instance of its class
+	 * 
+	 * @param aiFileName The name of the AI file
+	 * @return The AIPlugin, or null if it couldn't be compiled or created
+	 */
+	private AIPlugin compileAIPlugin(String aiFileName)
+	{
+		File aiFile = FileUtility.getAIFile(aiFileName);
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, Locale.getDefault(), null);
+
+		String[] compileOptions = new String[] { "-d", "bin" }; //$NON-NLS-1$ //$NON-NLS-2$
+		Iterable<String> compilationOptions = Arrays.asList(compileOptions);
+
+		List<File> sourceFileList = Lists.newArrayList();
+		sourceFileList.add(aiFile);
+		Iterable<? extends JavaFileObject> compilationUnits = fileManager.getJavaFileObjectsFromFiles(sourceFileList);
+		CompilationTask task = compiler.getTask(null, fileManager, null, compilationOptions, null, compilationUnits);
+
+		if (!task.call())
 		{
-			switch (JOptionPane.showConfirmDialog(Driver.getInstance(),
-					Messages.getString("NewGamePanel.noAIFilesInstalled"), Messages.getString("NewGamePanel.installAIFiles"), //$NON-NLS-1$ //$NON-NLS-2$
-					JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE))
-			{
-			case JOptionPane.YES_OPTION:
-				return GuiUtility.tryAIFileInstall(NewGamePanel.this);
-			case JOptionPane.NO_OPTION:
-			default:
-				return false;
-			}
+			JOptionPane.showMessageDialog(
+					Driver.getInstance(),
+					Messages.getString("NewGamePanel.compilationFailed") //$NON-NLS-1$
+							+
+							Messages.getString("NewGamePanel.makeSureClassImplementsAIPlugin") //$NON-NLS-1$
+							+ Messages.getString("NewGamePanel.makeSureClassIncludes") + "import ai.*;\n" //$NON-NLS-1$ //$NON-NLS-2$
+							+ "import ai.AIAdapter.*;\n", Messages.getString("NewGamePanel.compilationFailure"), JOptionPane.PLAIN_MESSAGE); //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
 		}
-		else
+
+		try
 		{
-			return true;
+			fileManager.close();
+
+			ClassLoader classLoader = ClassLoader.getSystemClassLoader();
+			Class<?> klazz = classLoader.loadClass(aiFileName.substring(0, aiFileName.indexOf(".java"))); //$NON-NLS-1$
+			Constructor<?> constructor = klazz.getConstructor();
+			return (AIPlugin) constructor.newInstance();
+		}
+		catch (Exception e)
+		{
+			e.printStackTrace();
+			return null;
 		}
 	}
 
@@ -0,0 +1,92 @@
+package benchmarks;
+
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.Piece;
+import models.UndoRecord;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * ClassicPosition.java
+ * 
+ * A classic chess Game a few moves into an opening, so the pieces have open
+ * lines and real destination lists. Each benchmark thread gets its own copy.
+ */
+@State(Scope.Thread)
+public class ClassicPosition
+{
+	/**
+	 * 1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5 4. c3 Nf6, as {row, col, row, col}
+	 */
+	private static final int[][] OPENING = { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 7, 3, 6 }, { 8, 2, 6, 3 }, { 1, 6, 4, 3 },
+			{ 8, 6, 5, 3 }, { 2, 3, 3, 3 }, { 8, 7, 6, 6 } };
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+		mBoard = mGame.getBoards()[0];
+		for (int[] move : OPENING)
+		{
+			mGame.genLegalDests();
+			mGame.makeMove(mBoard.getSquare(move[0], move[1]).getPiece(), mBoard.getSquare(move[2], move[3]), null, new UndoRecord());
+		}
+		mGame.genLegalDests();
+
+		mQueen = mBoard.getSquare(1, 4).getPiece();
+		mBishop = mBoard.getSquare(4, 3).getPiece();
+		mKing = mBoard.getSquare(1, 5).getPiece();
+		mUndo = new UndoRecord();
+	}
+
+	public Game getGame()
+	{
+		return mGame;
+	}
+
+	public Board getBoard()
+	{
+		return mBoard;
+	}
+
+	/**
+	 * @return White's queen, a rider with several open lines
+	 */
+	public Piece getQueen()
+	{
+		return mQueen;
+	}
+
+	/**
+	 * @return White's bishop on c4
+	 */
+	public Piece getBishop()
+	{
+		return mBishop;
+	}
+
+	/**
+	 * @return White's king, which is white to move
+	 */
+	public Piece getKing()
+	{
+		return mKing;
+	}
+
+	public UndoRecord getUndo()
+	{
+		return mUndo;
+	}
+
+	private Game mGame;
+	private Board mBoard;
+	private Piece mQueen;
+	private Piece mBishop;
+	private Piece mKing;
+	private UndoRecord mUndo;
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import models.Game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * MoveGenerationBenchmark.java
+ * 
+ * Throughput of the move generator and the queries built on it, measured on
+ * a classic opening position.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveGenerationBenchmark
+{
+	@Benchmark
+	public int pieceGenLegalDests(ClassicPosition position)
+	{
+		return position.getQueen().genLegalDests(position.getBoard());
+	}
+
+	/**
+	 * Every Piece regenerated, the way every turn used to work
+	 */
+	@Benchmark
+	public void gameGenLegalDestsFull(ClassicPosition position)
+	{
+		Game game = position.getGame();
+		game.setIncrementalLegalDests(false);
+		game.genLegalDests();
+	}
+
+	/**
+	 * A quiet Move made and taken back, regenerating after each, so the
+	 * incremental path only redoes the Pieces near the Move
+	 */
+	@Benchmark
+	public void gameGenLegalDestsIncremental(ClassicPosition position)
+	{
+		Game game = position.getGame();
+		game.setIncrementalLegalDests(true);
+		game.makeMove(position.getBishop(), position.getBoard().getSquare(3, 2), null, position.getUndo());
+		game.genLegalDests();
+		game.unmakeMove(position.getUndo());
+		game.genLegalDests();
+	}
+
+	@Benchmark
+	public void gameGetThreats(ClassicPosition position, Blackhole blackhole)
+	{
+		blackhole.consume(position.getGame().getThreats(position.getKing()));
+	}
+
+	@Benchmark
+	public boolean[] boardIsDestUniqueForClass(ClassicPosition position)
+	{
+		return position.getBoard().isDestUniqueForClass(position.getBoard().getSquare(3, 2), position.getBishop());
+	}
+}
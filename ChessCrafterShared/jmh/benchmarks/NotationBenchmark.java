@@ -0,0 +1,69 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.concurrent.TimeUnit;
+
+import logic.AlgebraicConverter;
+import logic.GameBuilder;
+import models.Game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NotationBenchmark.java
+ * 
+ * Replaying a saved game of Algebraic Chess Notation, which resolves every
+ * Move through the move generator.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NotationBenchmark
+{
+	private static final String GAME = "1 e4 e5\n2 Nf3 Nc6\n3 Bc4 Bc5\n4 c3 Nf6\n5 d4 exd4\n6 cxd4 Bb4\n7 Nc3 Nxe4\n8 O-O Nxc3\n"; //$NON-NLS-1$
+
+	@Setup(Level.Trial)
+	public void writeGame() throws Exception
+	{
+		mFile = File.createTempFile("benchmark", ".acn"); //$NON-NLS-1$ //$NON-NLS-2$
+		FileWriter out = new FileWriter(mFile);
+		out.write(GAME);
+		out.close();
+	}
+
+	@Setup(Level.Invocation)
+	public void newGame() throws Exception
+	{
+		mGame = GameBuilder.newClassicGame();
+	}
+
+	@TearDown(Level.Trial)
+	public void deleteGame()
+	{
+		mFile.delete();
+	}
+
+	@Benchmark
+	public Game convert() throws Exception
+	{
+		return AlgebraicConverter.convert(mGame, mFile);
+	}
+
+	private File mFile;
+	private Game mGame;
+}
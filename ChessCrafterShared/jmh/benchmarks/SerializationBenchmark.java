@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import models.Game;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SerializationBenchmark.java
+ * 
+ * Java serialization of a whole Game, which saving and copying Games rely on.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SerializationBenchmark
+{
+	@Setup(Level.Trial)
+	public void setUp(ClassicPosition position) throws Exception
+	{
+		mSerialized = write(position.getGame());
+	}
+
+	@Benchmark
+	public byte[] writeGame(ClassicPosition position) throws Exception
+	{
+		return write(position.getGame());
+	}
+
+	@Benchmark
+	public Game readGame() throws Exception
+	{
+		ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(mSerialized));
+		try
+		{
+			return (Game) in.readObject();
+		}
+		finally
+		{
+			in.close();
+		}
+	}
+
+	private static byte[] write(Game game) throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(game);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private byte[] mSerialized;
+}
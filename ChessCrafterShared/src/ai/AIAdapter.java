@@ -2,6 +2,8 @@ package ai;
 
 import gui.PlayNetGameScreen;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 
 import utility.GuiUtility;
@@ -11,7 +13,7 @@ import models.Game;
 import models.Piece;
 import models.Square;
 
-import com.google.common.collect.Lists;
+import com.google.common.base.Preconditions;
 
 /**
  * AIAdapter.java
@@ -31,9 +33,9 @@ public class AIAdapter
 	private Game mGame;
 
 	/**
-	 * The array of boards for reference.
+	 * The Boards as the AI plug in last saw them
 	 */
-	private AIBoard[] mBoards;
+	private volatile Snapshot mSnapshot;
 
 	/**
 	 * Constructor
@@ -115,44 +117,94 @@ public class AIAdapter
 	}
 
 	/**
+	 * Get a snapshot of the Boards for an AI plug in. Snapshots never change
+	 * once they are taken, so the same one is handed out again for as long as
+	 * the position stays the same, and only taking a new one needs the lock.
+	 * 
 	 * @return The array of boards in terms of AIBoard type.
 	 */
-	public synchronized AIBoard[] getBoards()
+	public AIBoard[] getBoards()
+	{
+		Snapshot snapshot = mSnapshot;
+		if (snapshot == null || !snapshot.isOf(mGame))
+			snapshot = takeSnapshot();
+
+		// the array is the one thing a plug in could change
+		return snapshot.mBoards.clone();
+	}
+
+	private synchronized Snapshot takeSnapshot()
 	{
+		Snapshot snapshot = mSnapshot;
+		if (snapshot != null && snapshot.isOf(mGame))
+			return snapshot;
+
 		if (mGame.isStaleLegalDests())
 			mGame.genLegalDests();
 
-		mBoards = new AIBoard[mGame.getBoards().length];
-		for (int i = 0; i < mBoards.length; i++)
-			mBoards[i] = new AIBoard(mGame.getBoards()[i]);
-		return mBoards;
+		AIBoard[] boards = new AIBoard[mGame.getBoards().length];
+		for (int i = 0; i < boards.length; i++)
+			boards[i] = new AIBoard(mGame.getBoards()[i]);
+
+		mSnapshot = new Snapshot(mGame, boards);
+		return mSnapshot;
+	}
+
+	/**
+	 * The AIBoards of one position, along with what is needed to tell whether
+	 * the Game has moved on since
+	 */
+	private static final class Snapshot
+	{
+		Snapshot(Game game, AIBoard[] boards)
+		{
+			mKey = game.getZobristKey();
+			mHistorySize = game.getHistory().size();
+			mBoards = boards;
+		}
+
+		boolean isOf(Game game)
+		{
+			return !game.isStaleLegalDests() && game.getHistory().size() == mHistorySize && game.getZobristKey() == mKey;
+		}
+
+		private final long mKey;
+		private final int mHistorySize;
+		private final AIBoard[] mBoards;
 	}
 
 	/**
 	 * @author Drew Hannay The AIBoard class. This is the board the AI "sees"
-	 * and acts upon, similar to networking games.
+	 * and acts upon, similar to networking games. An AIBoard never changes
+	 * once it is made; its Squares are made as they are asked for, from
+	 * arrays indexed the same way as the Board's Squares.
 	 */
 	public class AIBoard
 	{
 		/**
-		 * Two dimensional Array of AISquares representing the AIBoard
+		 * Whether each AISquare is able to be occupied, by index
 		 */
-		protected AISquare squares[][];
+		private final boolean[] habitable;
+
+		/**
+		 * The AIPiece on each AISquare, by index
+		 */
+		private final AIPiece[] pieces;
 
 		/**
 		 * If movement beyond the East and West edges of the board results in
 		 * further relocation.
 		 */
-		private boolean wraparound;
+		private final boolean wraparound;
 
 		/**
 		 * The max column for this AIBoard
 		 */
-		private int maxColumn;
+		private final int maxColumn;
 		/**
 		 * The max row for this AIBoard
 		 */
-		private int maxRow;
+		private final int maxRow;
 
 		/**
 		 * @param b The AI board for reference to all of its components.
@@ -160,30 +212,28 @@ public class AIAdapter
 		public AIBoard(Board b)
 		{
 			wraparound = b.isWrapAround();
-			squares = new AISquare[b.getMaxRow()][b.getMaxCol()];
 			maxColumn = b.getMaxCol();
 			maxRow = b.getMaxRow();
-			for (int row = 1, col = 1; row <= b.getMaxRow(); row++)
+			habitable = new boolean[b.getNumSquares()];
+			pieces = new AIPiece[b.getNumSquares()];
+			for (int index = 0; index < habitable.length; index++)
 			{
-				for (col = 1; col <= b.getMaxCol(); col++)
-				{
-					// Initialize the AISquares.
-					// ignore counting from zero.
-					squares[row - 1][col - 1] = new AISquare((row), (col), b.getSquare(row, col).isHabitable(), null);
-				}
-			}
-			for (int row = 1, col = 1; row <= b.getMaxRow(); row++)
-			{
-				for (col = 1; col <= b.getMaxCol(); col++)
-				{
-					// Initialize the AISquares.
-					// ignore counting from zero.
-					if (b.getSquare(row, col).getPiece() != null)
-						squares[row - 1][col - 1].setPiece(new AIPiece(b.getSquare(row, col).getPiece(), this));
-				}
+				Square square = b.getSquare(index);
+				habitable[index] = square.isHabitable();
+				if (square.getPiece() != null)
+					pieces[index] = new AIPiece(square.getPiece(), this);
 			}
 		}
 
+		/**
+		 * @return The Game this AIBoard was taken from, for AIs that search
+		 * the Game itself
+		 */
+		public Game getGame()
+		{
+			return mGame;
+		}
+
 		/**
 		 * @return If the board is a wraparound board (if right and left edges
 		 * connect)
@@ -218,39 +268,56 @@ public class AIAdapter
 		 */
 		public AISquare getSquare(int row, int col)
 		{
-			// Use x-1 and y-1 so that we can maintain the illusion of counting
-			// from
-			// 1.
-			return squares[row - 1][col - 1];
+			Preconditions.checkElementIndex(row - 1, maxRow);
+			Preconditions.checkElementIndex(col - 1, maxColumn);
+			return new AISquare(this, row, col);
+		}
+
+		private AISquare getSquare(int index)
+		{
+			return new AISquare(this, index / maxColumn + 1, index % maxColumn + 1);
+		}
+
+		private int getIndex(int row, int col)
+		{
+			return (row - 1) * maxColumn + (col - 1);
 		}
 	}
 
 	/**
-	 * @author Drew Hannay The class for AI squares.
+	 * @author Drew Hannay The class for AI squares. Two AISquares are equal
+	 * if they are the same position on the same AIBoard. The AISquares of a
+	 * snapshot can't be changed; only ones built by a plug in for its own use
+	 * can.
 	 */
 	public class AISquare
 	{
+		/**
+		 * The AIBoard this AISquare is on
+		 */
+		private final AIBoard board;
 
 		/**
 		 * Row Index of AISquare
 		 */
-		private int row;// File
+		private final int row;// File
 		/**
 		 * Column Index of AISquare
 		 */
-		private int col;// Rank
+		private final int col;// Rank
+
 		/**
-		 * If the AISquare is able to be occupied.
+		 * If the AISquare is able to be occupied, for an AISquare on no AIBoard
 		 */
 		private boolean isHabitable;
 
 		/**
-		 * The AIPiece occupying this AISquare
+		 * The AIPiece occupying this AISquare, for an AISquare on no AIBoard
 		 */
 		private AIPiece piece;
 
 		/**
-		 * Constructor
+		 * Constructor, for an AISquare on no AIBoard
 		 * 
 		 * @param row The row number
 		 * @param col The col number
@@ -259,12 +326,18 @@ public class AIAdapter
 		 */
 		public AISquare(int row, int col, boolean isHabitable, AIPiece piece)
 		{
-			this.row = row;
-			this.col = col;
+			this(null, row, col);
 			this.isHabitable = isHabitable;
 			this.piece = piece;
 		}
 
+		private AISquare(AIBoard board, int row, int col)
+		{
+			this.board = board;
+			this.row = row;
+			this.col = col;
+		}
+
 		/**
 		 * Getter method for index to Row
 		 * 
@@ -275,16 +348,6 @@ public class AIAdapter
 			return row;
 		}
 
-		/**
-		 * Setter for piece.
-		 * 
-		 * @param p The new piece.
-		 */
-		public void setPiece(AIPiece p)
-		{
-			piece = p;
-		}
-
 		/**
 		 * Getter method for index to Column
 		 * 
@@ -302,7 +365,26 @@ public class AIAdapter
 		 */
 		public AIPiece getPiece()
 		{
-			return piece;
+			if (board == null)
+				return piece;
+			return board.pieces[board.getIndex(row, col)];
+		}
+
+		/**
+		 * Setter for piece.
+		 * 
+		 * @param p The new piece.
+		 * @throws UnsupportedOperationException If the AISquare is part of a
+		 * snapshot, which never changes
+		 * @deprecated Snapshots are shared by every plug in, so only AISquares
+		 * built with the public constructor can be changed
+		 */
+		@Deprecated
+		public void setPiece(AIPiece p)
+		{
+			if (board != null)
+				throw new UnsupportedOperationException();
+			piece = p;
 		}
 
 		/**
@@ -312,9 +394,33 @@ public class AIAdapter
 		 */
 		public boolean isHabitable()
 		{
-			return isHabitable;
+			if (board == null)
+				return isHabitable;
+			return board.habitable[board.getIndex(row, col)];
 		}
 
+		/**
+		 * AISquares of the same snapshot are equal when they are at the same
+		 * place. An AISquare on no AIBoard can change, so it is only equal to
+		 * itself.
+		 */
+		@Override
+		public boolean equals(Object other)
+		{
+			if (board == null || !(other instanceof AISquare))
+				return this == other;
+
+			AISquare square = (AISquare) other;
+			return square.board == board && square.row == row && square.col == col;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			if (board == null)
+				return System.identityHashCode(this);
+			return 31 * (31 * System.identityHashCode(board) + row) + col;
+		}
 	}
 
 	/**
@@ -323,26 +429,25 @@ public class AIAdapter
 	 */
 	public class AIPiece
 	{
-
 		/**
 		 * The name of this AIPiece
 		 */
-		private String name;
+		private final String name;
 
 		/**
 		 * The color of this AIPiece
 		 */
-		private boolean isBlack;
+		private final boolean isBlack;
 
 		/**
 		 * The Board this AIPiece is on
 		 */
-		private AIBoard board;
+		private final AIBoard board;
 
 		/**
-		 * List of legal AISquares for this AIPiece to move to
+		 * The indices of the AISquares this AIPiece may move to
 		 */
-		protected List<AISquare> legalDests;
+		private final int[] legalDests;
 
 		/**
 		 * @param p The piece we are extracting data from
@@ -359,15 +464,19 @@ public class AIAdapter
 		/**
 		 * @param legalDests The legal destinations of the piece in standard
 		 * terms
-		 * @return The legal destinations of the piece in terms of AI Squares
+		 * @return The indices of the legal destinations on the AIBoard
 		 */
-		private synchronized List<AISquare> transformLegalDests(List<Square> legalDests)
+		private int[] transformLegalDests(List<Square> legalDests)
 		{
-			List<AISquare> toReturn = Lists.newArrayList();
-			for (Square s : legalDests)
-				if (board.getSquare(s.getRow(), s.getCol()) != null)
-					toReturn.add(board.getSquare(s.getRow(), s.getCol()));
-			return toReturn;
+			int[] toReturn = new int[legalDests.size()];
+			int size = 0;
+			for (int i = 0; i < legalDests.size(); i++)
+			{
+				Square s = legalDests.get(i);
+				if (s.getRow() >= 1 && s.getRow() <= board.maxRow && s.getCol() >= 1 && s.getCol() <= board.maxColumn)
+					toReturn[size++] = board.getIndex(s.getRow(), s.getCol());
+			}
+			return size == toReturn.length ? toReturn : Arrays.copyOf(toReturn, size);
 		}
 
 		/**
@@ -395,11 +504,24 @@ public class AIAdapter
 		}
 
 		/**
-		 * @return Legal destinations for this piece
+		 * @return Legal destinations for this piece, which can't be changed
 		 */
 		public List<AISquare> getLegalDests()
 		{
-			return legalDests;
+			return new AbstractList<AISquare>()
+			{
+				@Override
+				public AISquare get(int index)
+				{
+					return board.getSquare(legalDests[index]);
+				}
+
+				@Override
+				public int size()
+				{
+					return legalDests.length;
+				}
+			};
 		}
 	}
 
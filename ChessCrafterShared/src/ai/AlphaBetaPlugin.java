@@ -0,0 +1,99 @@
+package ai;
+
+import models.Game;
+import timer.ChessTimer;
+import ai.AIAdapter.AIBoard;
+
+/**
+ * AlphaBetaPlugin.java
+ * 
+ * The AI that ships with ChessCrafter. It searches the Game behind the
+ * AIBoards with a LazySmpSearch on every processor, spending a share of the
+ * time left on its team's ChessTimer, or a fixed time per Move when the Game
+ * isn't timed.
+ * 
+ * The Game the AIBoards come from is the one the play screen shows, so it is
+ * never searched itself. Every getMove searches copies of it taken when the
+ * Move is asked for, and the Move found names the same Squares in the Game.
+ */
+public class AlphaBetaPlugin implements AIPlugin
+{
+	/**
+	 * How long to think about each Move when the Game has no timer
+	 */
+	public static final long DEFAULT_MOVE_TIME = 3000;
+
+	public AlphaBetaPlugin()
+	{
+		this(DEFAULT_MOVE_TIME);
+	}
+
+	/**
+	 * @param moveTime How long to think about each Move when the Game has no
+	 * timer, in milliseconds
+	 */
+	public AlphaBetaPlugin(long moveTime)
+	{
+		this(moveTime, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param moveTime How long to think about each Move when the Game has no
+	 * timer, in milliseconds
+	 * @param threadCount How many threads to search with
+	 */
+	public AlphaBetaPlugin(long moveTime, int threadCount)
+	{
+		mMoveTime = moveTime;
+		mThreadCount = threadCount;
+	}
+
+	@Override
+	public FakeMove getMove(AIBoard[] boards)
+	{
+		Game game = boards[0].getGame();
+		if (mSearch == null || mGame != game)
+		{
+			mGame = game;
+			mSearch = new LazySmpSearch(game, mThreadCount);
+		}
+
+		return mSearch.findMove(getTimeBudget(game.isBlackMove() ? game.getBlackTimer() : game.getWhiteTimer(), mMoveTime));
+	}
+
+	/**
+	 * @return The search behind this plugin, to look at the statistics of the
+	 * last Move it chose
+	 */
+	public LazySmpSearch getSearch()
+	{
+		return mSearch;
+	}
+
+	/**
+	 * Share out the time left on the timer as if the game will last another
+	 * MOVES_TO_GO Moves, never spending more than half of it at once
+	 * 
+	 * @param timer The timer of the team to move
+	 * @param moveTime The time to spend when the Game isn't timed
+	 * @return The time to spend on this Move, in milliseconds
+	 */
+	static long getTimeBudget(ChessTimer timer, long moveTime)
+	{
+		// word timers count up, so there is no time left to share out
+		if (timer == null || ChessTimer.isNoTimer(timer) || ChessTimer.isWordTimer(timer))
+			return moveTime;
+
+		long remaining = timer.getRawTime();
+		return Math.max(MIN_MOVE_TIME, Math.min(remaining / MOVES_TO_GO, remaining / 2));
+	}
+
+	private static final long MIN_MOVE_TIME = 50;
+	private static final int MOVES_TO_GO = 30;
+
+	private final long mMoveTime;
+	private final int mThreadCount;
+
+	private Game mGame;
+	private LazySmpSearch mSearch;
+}
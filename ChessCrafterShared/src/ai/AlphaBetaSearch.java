@@ -0,0 +1,453 @@
+package ai;
+
+import java.util.List;
+
+import models.Game;
+import models.MoveList;
+import models.PackedMove;
+import models.Piece;
+import models.Rules;
+import models.UndoRecord;
+
+import com.google.common.collect.Lists;
+
+/**
+ * AlphaBetaSearch.java
+ * 
+ * Iterative deepening alpha-beta search with a quiescence search over
+ * captures. The search plays its Moves on the Game itself with
+ * Game.makeMove and Game.unmakeMove, so it follows whatever rules the variant
+ * was built with, and leaves the Game as it found it.
+ * 
+ * Variants may give a team several Moves in a row, so a score is only negated
+ * when the Move actually passed the turn to the other team.
+ */
+public final class AlphaBetaSearch
+{
+	/**
+	 * The score of having the other team's objective piece captured or
+	 * checkmated, less one for every ply it takes to get there
+	 */
+	public static final int MATE = 1000000;
+
+	/**
+	 * The deepest ply the search will reach, quiescence included
+	 */
+	public static final int MAX_PLY = 64;
+
+	/**
+	 * The size of the transposition table a search makes for itself, in
+	 * megabytes
+	 */
+	public static final int DEFAULT_HASH_SIZE = 16;
+
+	public AlphaBetaSearch(Game game)
+	{
+		this(game, new TranspositionTable(DEFAULT_HASH_SIZE));
+	}
+
+	/**
+	 * @param game The Game to search
+	 * @param table The transposition table to use, which may be shared with
+	 * other searches
+	 */
+	public AlphaBetaSearch(Game game, TranspositionTable table)
+	{
+		mGame = game;
+		mTable = table;
+		mMaxDepth = MAX_PLY;
+		mFirstDepth = 1;
+		mMoveLists = Lists.newArrayList();
+		mUndoRecords = Lists.newArrayList();
+		mEvaluator = new Evaluator(game);
+		mOrderer = new MoveOrderer(game, mEvaluator);
+		mExchange = new StaticExchange(game, mEvaluator);
+	}
+
+	/**
+	 * Limit the depth of the iterative deepening, mostly so results can be
+	 * reproduced regardless of the speed of the machine
+	 * 
+	 * @param maxDepth The deepest iteration to run
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		mMaxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY));
+	}
+
+	/**
+	 * Start the iterative deepening deeper than one ply, so that helpers of a
+	 * LazySmpSearch don't all search the same depths in step
+	 * 
+	 * @param firstDepth The first iteration to run
+	 */
+	void setFirstDepth(int firstDepth)
+	{
+		mFirstDepth = Math.max(1, Math.min(firstDepth, MAX_PLY));
+	}
+
+	/**
+	 * Make a search running on another thread return as soon as it can. The
+	 * search still returns the best Move of its last finished iteration, and
+	 * every later findMove returns straight away too.
+	 */
+	void stop()
+	{
+		mIsStopped = true;
+	}
+
+	/**
+	 * Search the current position, deepening one ply at a time until the time
+	 * runs out or the maximum depth is reached
+	 * 
+	 * @param timeBudgetMillis How long to search for
+	 * @return The best Move found, or null if the team to move has no legal
+	 * Move
+	 */
+	public FakeMove findMove(long timeBudgetMillis)
+	{
+		long start = System.currentTimeMillis();
+		mDeadline = start + timeBudgetMillis;
+		mIsAborted = false;
+		mNodes = 0;
+		mCompletedDepth = 0;
+		mScore = 0;
+		mOrderer.newSearch();
+
+		int count = collectMoves(0, false);
+		if (count == 0)
+			return null;
+
+		MoveList moves = mMoveLists.get(0);
+		mOrderer.order(moves, 0, PackedMove.NONE);
+		UndoRecord undo = getUndoRecord(0);
+		boolean isBlack = mGame.isBlackMove();
+		int bestIndex = 0;
+
+		for (int depth = Math.min(mFirstDepth, mMaxDepth); depth <= mMaxDepth && count > 1; depth++)
+		{
+			// search last iteration's best Move first, so a search cut short
+			// has at least looked at it again
+			moves.moveToFront(bestIndex, 0);
+			bestIndex = 0;
+
+			int alpha = -MATE - 1;
+			int iterationBest = -1;
+			for (int i = 0; i < count; i++)
+			{
+				mGame.makeMove(moves.get(i), undo);
+				int score = child(depth - 1, 1, alpha, MATE + 1, isBlack);
+				mGame.unmakeMove(undo);
+				if (mIsAborted)
+					break;
+
+				if (score > alpha)
+				{
+					alpha = score;
+					iterationBest = i;
+				}
+			}
+
+			if (iterationBest >= 0)
+			{
+				bestIndex = iterationBest;
+				mScore = alpha;
+			}
+			if (mIsAborted)
+				break;
+
+			mCompletedDepth = depth;
+			mTable.store(mGame.getZobristKey(), depth, TranspositionTable.EXACT, toTableScore(mScore, 0), moves.get(bestIndex));
+			// a forced mate won't get any better, and the next iteration
+			// would take several times as long as all the previous ones
+			if (Math.abs(mScore) >= MATE - MAX_PLY || System.currentTimeMillis() - start > timeBudgetMillis / 2)
+				break;
+		}
+
+		FakeMove move = FakeMove.fromPackedMove(mGame, moves.get(bestIndex));
+
+		// the Game is back where it started, but the Pieces still hold the
+		// destinations of the last position searched
+		mGame.genLegalDests();
+		return move;
+	}
+
+	public TranspositionTable getTranspositionTable()
+	{
+		return mTable;
+	}
+
+	/**
+	 * @return The deepest iteration of the last search that finished
+	 */
+	public int getCompletedDepth()
+	{
+		return mCompletedDepth;
+	}
+
+	/**
+	 * @return The number of positions the last search visited
+	 */
+	public long getNodes()
+	{
+		return mNodes;
+	}
+
+	/**
+	 * @return The score of the last search's best Move, from the point of
+	 * view of the team that was to move
+	 */
+	public int getScore()
+	{
+		return mScore;
+	}
+
+	private int search(int depth, int ply, int alpha, int beta)
+	{
+		if (depth <= 0 || ply >= MAX_PLY)
+			return quiesce(ply, alpha, beta);
+
+		if (isOutOfTime())
+			return 0;
+		mNodes++;
+
+		int capturedScore = objectiveCapturedScore(ply);
+		if (capturedScore != 0)
+			return capturedScore;
+
+		long key = mGame.getZobristKey();
+		long entry = mTable.probe(key);
+		if (entry != TranspositionTable.NO_ENTRY && TranspositionTable.getDepth(entry) >= depth)
+		{
+			int score = fromTableScore(TranspositionTable.getScore(entry), ply);
+			switch (TranspositionTable.getBound(entry))
+			{
+			case TranspositionTable.EXACT:
+				return score;
+			case TranspositionTable.LOWER_BOUND:
+				if (score >= beta)
+					return score;
+				break;
+			case TranspositionTable.UPPER_BOUND:
+				if (score <= alpha)
+					return score;
+				break;
+			}
+		}
+
+		int count = collectMoves(ply, false);
+		if (count == 0)
+			return noMoveScore(ply);
+
+		MoveList moves = mMoveLists.get(ply);
+		mOrderer.order(moves, ply, entry == TranspositionTable.NO_ENTRY ? PackedMove.NONE : TranspositionTable.getMove(entry));
+
+		UndoRecord undo = getUndoRecord(ply);
+		boolean isBlack = mGame.isBlackMove();
+		int originalAlpha = alpha;
+		int best = -MATE - 1;
+		int bestIndex = 0;
+		for (int i = 0; i < count; i++)
+		{
+			mGame.makeMove(moves.get(i), undo);
+			int score = child(depth - 1, ply + 1, alpha, beta, isBlack);
+			mGame.unmakeMove(undo);
+			if (mIsAborted)
+				return 0;
+
+			if (score > best)
+			{
+				best = score;
+				bestIndex = i;
+				if (score > alpha)
+				{
+					alpha = score;
+					if (alpha >= beta)
+					{
+						mOrderer.cutoff(moves.get(i), ply, depth);
+						break;
+					}
+				}
+			}
+		}
+
+		int bound = best >= beta ? TranspositionTable.LOWER_BOUND : best > originalAlpha ? TranspositionTable.EXACT
+				: TranspositionTable.UPPER_BOUND;
+		mTable.store(key, depth, bound, toTableScore(best, ply), moves.get(bestIndex));
+		return best;
+	}
+
+	/**
+	 * Search captures only until the position is quiet, so the evaluation is
+	 * never taken halfway through an exchange. Captures the StaticExchange
+	 * finds losing are skipped, which keeps tactical positions from blowing
+	 * up into every possible sequence of trades.
+	 */
+	private int quiesce(int ply, int alpha, int beta)
+	{
+		if (isOutOfTime())
+			return 0;
+		mNodes++;
+
+		int capturedScore = objectiveCapturedScore(ply);
+		if (capturedScore != 0)
+			return capturedScore;
+
+		int standPat = mEvaluator.evaluate();
+		if (standPat >= beta || ply >= MAX_PLY)
+			return standPat;
+		if (standPat > alpha)
+			alpha = standPat;
+
+		int count = collectMoves(ply, true);
+		MoveList moves = mMoveLists.get(ply);
+		mOrderer.order(moves, ply, PackedMove.NONE);
+		UndoRecord undo = getUndoRecord(ply);
+		boolean isBlack = mGame.isBlackMove();
+		int best = standPat;
+		for (int i = 0; i < count; i++)
+		{
+			// a capture that loses material once the exchange is over is left
+			// to the full-width search
+			if (mExchange.isLosing(moves.get(i)))
+				continue;
+
+			mGame.makeMove(moves.get(i), undo);
+			int score = child(0, ply + 1, alpha, beta, isBlack);
+			mGame.unmakeMove(undo);
+			if (mIsAborted)
+				return 0;
+
+			if (score > best)
+			{
+				best = score;
+				if (score > alpha)
+				{
+					alpha = score;
+					if (alpha >= beta)
+						break;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Search the position after a Move, from the point of view of the team
+	 * that made it
+	 */
+	private int child(int depth, int ply, int alpha, int beta, boolean wasBlack)
+	{
+		if (mGame.isBlackMove() == wasBlack)
+			return search(depth, ply, alpha, beta);
+		return -search(depth, ply, -beta, -alpha);
+	}
+
+	/**
+	 * Score a position where the team to move has no legal Move: checkmate
+	 * if its objective piece is in check, a draw otherwise
+	 */
+	private int noMoveScore(int ply)
+	{
+		Piece objectivePiece = getRules(mGame.isBlackMove()).objectivePiece(mGame.isBlackMove());
+		if (objectivePiece != null && objectivePiece.isInCheck())
+			return -MATE + ply;
+		return 0;
+	}
+
+	/**
+	 * Variants such as atomic chess can take an objective piece off the
+	 * board, which ends the game whether or not anyone is in check
+	 * 
+	 * @return The score of the game being over, or 0 if both objective pieces
+	 * are still on the board
+	 */
+	private int objectiveCapturedScore(int ply)
+	{
+		boolean isBlack = mGame.isBlackMove();
+		Piece objectivePiece = getRules(isBlack).objectivePiece(isBlack);
+		if (objectivePiece != null && objectivePiece.isCaptured())
+			return -MATE + ply;
+
+		Piece otherObjectivePiece = getRules(!isBlack).objectivePiece(!isBlack);
+		if (otherObjectivePiece != null && otherObjectivePiece.isCaptured())
+			return MATE - ply;
+		return 0;
+	}
+
+	/**
+	 * Pack the legal Moves of the team to move into the buffer for the given
+	 * ply, since generating the next ply overwrites the Pieces' lists. The
+	 * MoveOrderer sorts them afterwards.
+	 * 
+	 * @param capturesOnly Whether to leave out Moves to empty Squares
+	 * @return The number of Moves collected
+	 */
+	private int collectMoves(int ply, boolean capturesOnly)
+	{
+		while (mMoveLists.size() <= ply)
+			mMoveLists.add(new MoveList());
+
+		return mGame.generateMoves(mMoveLists.get(ply), capturesOnly);
+	}
+
+	/**
+	 * Mate scores count plies from the root, but the table may hand a result
+	 * to a different ply, so they are stored counting from the position
+	 */
+	private static int toTableScore(int score, int ply)
+	{
+		if (score >= MATE - MAX_PLY)
+			return score + ply;
+		if (score <= -MATE + MAX_PLY)
+			return score - ply;
+		return score;
+	}
+
+	private static int fromTableScore(int score, int ply)
+	{
+		if (score >= MATE - MAX_PLY)
+			return score - ply;
+		if (score <= -MATE + MAX_PLY)
+			return score + ply;
+		return score;
+	}
+
+	private boolean isOutOfTime()
+	{
+		if (mIsStopped || (!mIsAborted && (mNodes & TIME_CHECK_INTERVAL) == 0 && System.currentTimeMillis() >= mDeadline))
+			mIsAborted = true;
+		return mIsAborted;
+	}
+
+	private Rules getRules(boolean isBlack)
+	{
+		return isBlack ? mGame.getBlackRules() : mGame.getWhiteRules();
+	}
+
+	private UndoRecord getUndoRecord(int ply)
+	{
+		while (mUndoRecords.size() <= ply)
+			mUndoRecords.add(new UndoRecord());
+		return mUndoRecords.get(ply);
+	}
+
+	private static final int TIME_CHECK_INTERVAL = 1023;
+
+	private final Game mGame;
+	private final TranspositionTable mTable;
+	private final List<MoveList> mMoveLists;
+	private final List<UndoRecord> mUndoRecords;
+	private final Evaluator mEvaluator;
+	private final MoveOrderer mOrderer;
+	private final StaticExchange mExchange;
+
+	private int mMaxDepth;
+	private int mFirstDepth;
+	private long mDeadline;
+	private boolean mIsAborted;
+	private volatile boolean mIsStopped;
+	private long mNodes;
+	private int mCompletedDepth;
+	private int mScore;
+}
@@ -0,0 +1,306 @@
+package ai;
+
+import java.util.Arrays;
+
+import logic.AttackTable;
+import logic.PieceType;
+import models.Bitboard;
+import models.Board;
+import models.Game;
+import models.Piece;
+import models.Square;
+import models.SquareWeights;
+
+/**
+ * Evaluator.java
+ * 
+ * Static evaluation for any variant. Custom Piece types have no value of
+ * their own, so each type's value is worked out from how many Squares it can
+ * reach, on average, on the Game's Board: every leap counts fully, and each
+ * step further along a ray counts a little less than the one before, since a
+ * rider is more and more likely to be blocked, unless the type can jump.
+ * Fitted this way the stock pieces come out close to their usual values.
+ * 
+ * The same reach, Square by Square, gives each type a piece-square table, so
+ * Pieces are drawn to the Squares they do the most from. Pawns instead gain
+ * for every row they advance. The objective pieces aren't counted as
+ * material, but each team gains for its own Pieces next to its objective
+ * piece and loses for enemy Pieces close to it.
+ * 
+ * The material and piece-square values are handed to each Board's Bitboard
+ * as SquareWeights, so their totals are kept up to date by every change to
+ * the Boards, whether by a Move, its undoing or an after-move rule, and
+ * evaluating a position only has to read them.
+ */
+final class Evaluator
+{
+	/**
+	 * The value of a pawn, which everything else is measured against
+	 */
+	static final int PAWN_VALUE = 100;
+
+	Evaluator(Game game)
+	{
+		mGame = game;
+		mBoards = game.getBoards();
+		mTables = new int[mBoards.length][][];
+		mShelterMasks = new long[mBoards.length][][];
+		mPressureMasks = new long[mBoards.length][][];
+		mWeights = new BoardWeights[mBoards.length];
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			mTables[i] = new int[0][];
+			mWeights[i] = new BoardWeights(i);
+			mShelterMasks[i] = zoneMasks(mBoards[i], 1);
+			mPressureMasks[i] = zoneMasks(mBoards[i], 2);
+		}
+		mValues = new int[0];
+	}
+
+	/**
+	 * Material, position, mobility and objective safety, from the point of
+	 * view of the team to move
+	 */
+	int evaluate()
+	{
+		int score = 0;
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			// another Evaluator may have taken over the Board since
+			if (mBoards[i].getBitboard().getWeights() != mWeights[i])
+				mBoards[i].setSquareWeights(mWeights[i]);
+			score += mBoards[i].getBitboard().getWeightedScore();
+		}
+
+		// the objective pieces are weighed along with everything else, but
+		// they aren't material
+		Piece whiteObjective = mGame.getWhiteRules().objectivePiece(false);
+		Piece blackObjective = mGame.getBlackRules().objectivePiece(true);
+		score -= getWeight(whiteObjective) - getWeight(blackObjective);
+
+		score += (mGame.getLegalDestCount(false) - mGame.getLegalDestCount(true)) * MOBILITY_WEIGHT;
+		score += getSafety(whiteObjective) - getSafety(blackObjective);
+		return mGame.isBlackMove() ? -score : score;
+	}
+
+	/**
+	 * @param piece A Piece of the Game
+	 * @return The material value of the Piece's type on the Game's first
+	 * Board
+	 */
+	int getValue(Piece piece)
+	{
+		int id = piece.getType().getId();
+		if (id >= mValues.length)
+			mValues = Arrays.copyOf(mValues, Math.max(id + 1, mValues.length * 2));
+		// entries are offset by one so a new array means nothing is known
+		if (mValues[id] == 0)
+			mValues[id] = getValue(piece.getType(), getMobility(piece.getType(), mBoards[0])) + 1;
+		return mValues[id] - 1;
+	}
+
+	/**
+	 * @return The weight of a Piece where it stands, or 0 if it isn't on a
+	 * Board
+	 */
+	private int getWeight(Piece piece)
+	{
+		if (piece == null || piece.isCaptured())
+			return 0;
+
+		int boardIndex = indexOf(piece.getSquare());
+		if (boardIndex < 0)
+			return 0;
+		return mWeights[boardIndex].getWeight(piece.getType(), piece.isBlack(), piece.getSquare().getIndex());
+	}
+
+	/**
+	 * Friendly Pieces around the objective piece shelter it, and enemy Pieces
+	 * close to it threaten it
+	 */
+	private int getSafety(Piece objectivePiece)
+	{
+		if (objectivePiece == null || objectivePiece.isCaptured())
+			return 0;
+
+		Square square = objectivePiece.getSquare();
+		int boardIndex = indexOf(square);
+		if (boardIndex < 0)
+			return 0;
+
+		int index = square.getIndex();
+		Bitboard bitboard = mBoards[boardIndex].getBitboard();
+		int shelter = Bitboard.cardinality(mShelterMasks[boardIndex][index], bitboard.getTeam(objectivePiece.isBlack()));
+		int pressure = Bitboard.cardinality(mPressureMasks[boardIndex][index], bitboard.getTeam(!objectivePiece.isBlack()));
+		return shelter * SHELTER_WEIGHT - pressure * PRESSURE_WEIGHT;
+	}
+
+	/**
+	 * @return The index of the Board a Square is on, or -1 if it isn't on any
+	 * of the Game's Boards
+	 */
+	private int indexOf(Square square)
+	{
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			if (square.getIndex() < mBoards[i].getNumSquares() && mBoards[i].getSquare(square.getIndex()) == square)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The material and piece-square values of a type on one Board,
+	 * the white team's for every Square followed by the black team's
+	 */
+	private int[] getTable(int boardIndex, PieceType type)
+	{
+		int[][] tables = mTables[boardIndex];
+		int id = type.getId();
+		if (id >= tables.length)
+			tables = mTables[boardIndex] = Arrays.copyOf(tables, Math.max(id + 1, tables.length * 2));
+		if (tables[id] == null)
+			tables[id] = buildTable(type, mBoards[boardIndex]);
+		return tables[id];
+	}
+
+	private static int[] buildTable(PieceType type, Board board)
+	{
+		int numSquares = board.getNumSquares();
+		int[] table = new int[2 * numSquares];
+		double[] mobility = getMobility(type, board);
+		double average = average(mobility);
+		int value = getValue(type, mobility);
+
+		for (int index = 0; index < numSquares; index++)
+		{
+			if (type.isPawn())
+			{
+				int row = index / board.getMaxCol() + 1;
+				table[index] = value + (row - 1) * PAWN_ADVANCE_WEIGHT;
+				table[numSquares + index] = value + (board.getMaxRow() - row) * PAWN_ADVANCE_WEIGHT;
+			}
+			else
+			{
+				table[index] = value + (int) Math.round((mobility[index] - average) * CENTRALIZATION_WEIGHT);
+				table[numSquares + index] = table[index];
+			}
+		}
+		return table;
+	}
+
+	private static int getValue(PieceType type, double[] mobility)
+	{
+		if (type.isPawn())
+			return PAWN_VALUE;
+		return Math.max(MIN_PIECE_VALUE, (int) Math.round(VALUE_SCALE * Math.pow(average(mobility), VALUE_EXPONENT)));
+	}
+
+	/**
+	 * @return How many Squares a type reaches from each Square of an empty
+	 * Board, with each step along a ray worth less than the last unless the
+	 * type can jump
+	 */
+	private static double[] getMobility(PieceType type, Board board)
+	{
+		AttackTable attackTable = type.getAttackTable(board.getMaxRow(), board.getMaxCol(), board.isWrapAround());
+		double[] mobility = new double[board.getNumSquares()];
+		for (int index = 0; index < mobility.length; index++)
+		{
+			double reach = attackTable.getLeaps(index).length;
+			for (int[] ray : attackTable.getRays(index))
+			{
+				if (type.isLeaper())
+				{
+					reach += ray.length;
+					continue;
+				}
+
+				double weight = 1;
+				for (int i = 0; i < ray.length; i++, weight *= RIDER_DECAY)
+					reach += weight;
+			}
+			mobility[index] = reach;
+		}
+		return mobility;
+	}
+
+	private static double average(double[] values)
+	{
+		double sum = 0;
+		for (double value : values)
+			sum += value;
+		return values.length == 0 ? 0 : sum / values.length;
+	}
+
+	/**
+	 * @return For every Square, the mask of the Squares no more than the
+	 * given number of rows and columns away, the Square itself left out
+	 */
+	private static long[][] zoneMasks(Board board, int radius)
+	{
+		long[][] masks = new long[board.getNumSquares()][];
+		for (int index = 0; index < masks.length; index++)
+		{
+			masks[index] = board.getBitboard().newMask();
+			for (int rowStep = -radius; rowStep <= radius; rowStep++)
+			{
+				for (int colStep = -radius; colStep <= radius; colStep++)
+				{
+					if (rowStep == 0 && colStep == 0)
+						continue;
+
+					int target = board.step(index, rowStep, colStep);
+					if (target != Board.OFF_BOARD)
+						Bitboard.set(masks[index], target);
+				}
+			}
+		}
+		return masks;
+	}
+
+	/**
+	 * The material and piece-square tables of one Board
+	 */
+	private final class BoardWeights implements SquareWeights
+	{
+		BoardWeights(int boardIndex)
+		{
+			mBoardIndex = boardIndex;
+		}
+
+		@Override
+		public int getWeight(PieceType type, boolean isBlack, int index)
+		{
+			return getTable(mBoardIndex, type)[isBlack ? mBoards[mBoardIndex].getNumSquares() + index : index];
+		}
+
+		private final int mBoardIndex;
+	}
+
+	/**
+	 * How much less each step along a ray counts than the one before
+	 */
+	private static final double RIDER_DECAY = 0.6;
+	/**
+	 * Fitted so that the knight, bishop, rook and queen come out at about 330,
+	 * 330, 460 and 910 on the classic Board
+	 */
+	private static final double VALUE_SCALE = 45;
+	private static final double VALUE_EXPONENT = 1.2;
+	private static final int MIN_PIECE_VALUE = PAWN_VALUE / 2;
+	private static final int CENTRALIZATION_WEIGHT = 4;
+	private static final int PAWN_ADVANCE_WEIGHT = 5;
+	private static final int MOBILITY_WEIGHT = 2;
+	private static final int SHELTER_WEIGHT = 8;
+	private static final int PRESSURE_WEIGHT = 6;
+
+	private final Game mGame;
+	private final Board[] mBoards;
+	private final int[][][] mTables;
+	private final long[][][] mShelterMasks;
+	private final long[][][] mPressureMasks;
+	private final BoardWeights[] mWeights;
+
+	private int[] mValues;
+}
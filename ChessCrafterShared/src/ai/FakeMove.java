@@ -2,6 +2,11 @@ package ai;
 
 import java.io.Serializable;
 
+import models.Board;
+import models.Game;
+import models.PackedMove;
+import models.Square;
+
 /**
  * @author Drew Hannay The move to be sent across the network for trying to move
  */
@@ -26,6 +31,24 @@ public class FakeMove implements Serializable
 		mPromotionPieceName = promotionPieceName;
 	}
 
+	/**
+	 * Describe a packed Move the way the AIAdapter plays it: by the Board of
+	 * its destination, from which the origin Board follows from the Rules
+	 * 
+	 * @param game The Game the Move was generated in, in the same position
+	 * @param move The packed Move
+	 * @return The FakeMove
+	 */
+	static FakeMove fromPackedMove(Game game, int move)
+	{
+		Board[] boards = game.getBoards();
+		Square origin = boards[PackedMove.getOriginBoard(move)].getSquare(PackedMove.getOrigin(move));
+		Square dest = boards[PackedMove.getDestBoard(move)].getSquare(PackedMove.getDest(move));
+		int promotion = PackedMove.getPromotion(move);
+		String promo = promotion < 0 ? null : origin.getPiece().getPromotesTo().get(promotion);
+		return new FakeMove(PackedMove.getDestBoard(move), origin.getRow(), origin.getCol(), dest.getRow(), dest.getCol(), promo);
+	}
+
 	/**
 	 * Getter method for String representation of the FakeMove
 	 * 
@@ -0,0 +1,211 @@
+package ai;
+
+import java.io.IOException;
+import java.util.List;
+
+import models.Game;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+/**
+ * LazySmpSearch.java
+ * 
+ * Runs several AlphaBetaSearches on the same position at once, one per
+ * thread, all sharing one TranspositionTable. The threads don't talk to each
+ * other except through the table, where each one finds the results the
+ * others have already stored, so together they reach deeper than one would
+ * alone.
+ * 
+ * Every thread searches its own copy of the Game, made fresh for each Move,
+ * since a search plays its Moves on the Game it is given and the Game itself
+ * belongs to the play screen. All the copies are made before any thread
+ * starts, and the time they take comes out of the time budget. The main
+ * search runs on the calling thread.
+ * Half the helpers start one ply deeper than the main search, so that they
+ * are not all working on the same iteration.
+ */
+public final class LazySmpSearch
+{
+	/**
+	 * @param game The Game to search
+	 * @param threadCount How many threads to search with, the calling thread
+	 * included
+	 */
+	public LazySmpSearch(Game game, int threadCount)
+	{
+		this(game, threadCount, new TranspositionTable(AlphaBetaSearch.DEFAULT_HASH_SIZE));
+	}
+
+	/**
+	 * @param game The Game to search
+	 * @param threadCount How many threads to search with, the calling thread
+	 * included
+	 * @param table The transposition table all the threads share
+	 */
+	public LazySmpSearch(Game game, int threadCount, TranspositionTable table)
+	{
+		Preconditions.checkArgument(threadCount > 0);
+
+		mGame = game;
+		mThreadCount = threadCount;
+		mTable = table;
+		mMaxDepth = AlphaBetaSearch.MAX_PLY;
+	}
+
+	/**
+	 * @see AlphaBetaSearch#setMaxDepth(int)
+	 */
+	public void setMaxDepth(int maxDepth)
+	{
+		mMaxDepth = maxDepth;
+	}
+
+	/**
+	 * Search the current position on every thread, until the main search runs
+	 * out of time or reaches the maximum depth
+	 * 
+	 * @param timeBudgetMillis How long to search for
+	 * @return The best Move found by whichever search got deepest, or null if
+	 * the team to move has no legal Move
+	 */
+	public FakeMove findMove(long timeBudgetMillis)
+	{
+		long deadline = System.currentTimeMillis() + timeBudgetMillis;
+		AlphaBetaSearch mainSearch = new AlphaBetaSearch(copyGame(), mTable);
+		mainSearch.setMaxDepth(mMaxDepth);
+
+		List<Helper> helpers = Lists.newArrayList();
+		for (int i = 1; i < mThreadCount; i++)
+			helpers.add(new Helper(new AlphaBetaSearch(copyGame(), mTable)));
+		startHelpers(helpers, deadline);
+
+		// the copies were all made from the Game, so their Moves are given
+		// in the same coordinates as its own
+		FakeMove move = mainSearch.findMove(getTimeLeft(deadline));
+		mCompletedDepth = mainSearch.getCompletedDepth();
+		mScore = mainSearch.getScore();
+		mNodes = mainSearch.getNodes();
+
+		for (Helper helper : helpers)
+			helper.mSearch.stop();
+		for (Helper helper : helpers)
+		{
+			try
+			{
+				helper.mThread.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				continue;
+			}
+
+			mNodes += helper.mSearch.getNodes();
+			if (move != null && helper.mMove != null && helper.mSearch.getCompletedDepth() > mCompletedDepth)
+			{
+				move = helper.mMove;
+				mCompletedDepth = helper.mSearch.getCompletedDepth();
+				mScore = helper.mSearch.getScore();
+			}
+		}
+
+		return move;
+	}
+
+	public int getThreadCount()
+	{
+		return mThreadCount;
+	}
+
+	public TranspositionTable getTranspositionTable()
+	{
+		return mTable;
+	}
+
+	/**
+	 * @return The deepest iteration any thread finished in the last search
+	 */
+	public int getCompletedDepth()
+	{
+		return mCompletedDepth;
+	}
+
+	/**
+	 * @return The number of positions all the threads visited in the last
+	 * search
+	 */
+	public long getNodes()
+	{
+		return mNodes;
+	}
+
+	/**
+	 * @return The score of the last search's best Move, from the point of
+	 * view of the team that was to move
+	 */
+	public int getScore()
+	{
+		return mScore;
+	}
+
+	private Game copyGame()
+	{
+		try
+		{
+			return mGame.copy();
+		}
+		catch (IOException e)
+		{
+			// every part of a Game is Serializable, so this is a programming
+			// error rather than something to recover from
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private void startHelpers(List<Helper> helpers, final long deadline)
+	{
+		for (int i = 0; i < helpers.size(); i++)
+		{
+			final Helper helper = helpers.get(i);
+			helper.mSearch.setMaxDepth(mMaxDepth);
+			helper.mSearch.setFirstDepth(1 + (i + 1) % 2);
+			helper.mThread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					helper.mMove = helper.mSearch.findMove(getTimeLeft(deadline));
+				}
+			}, "LazySmpSearch helper " + (i + 1)); //$NON-NLS-1$
+			helper.mThread.setDaemon(true);
+			helper.mThread.start();
+		}
+	}
+
+	private static long getTimeLeft(long deadline)
+	{
+		return Math.max(0, deadline - System.currentTimeMillis());
+	}
+
+	private static final class Helper
+	{
+		Helper(AlphaBetaSearch search)
+		{
+			mSearch = search;
+		}
+
+		final AlphaBetaSearch mSearch;
+		Thread mThread;
+		volatile FakeMove mMove;
+	}
+
+	private final Game mGame;
+	private final int mThreadCount;
+	private final TranspositionTable mTable;
+
+	private int mMaxDepth;
+	private int mCompletedDepth;
+	private long mNodes;
+	private int mScore;
+}
@@ -0,0 +1,185 @@
+package ai;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import models.Game;
+import models.PackedMove;
+import ai.AIAdapter.AIBoard;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * MonteCarloPlugin.java
+ * 
+ * An AI for the variants the AlphaBetaPlugin judges poorly. It searches the
+ * Game behind the AIBoards with a MonteCarloSearch on every processor, each
+ * building its own tree with its own random playouts, and plays the Move
+ * played out most often by all of them together. Its time is shared out the
+ * same way as the AlphaBetaPlugin's.
+ * 
+ * Every search runs on its own copy of the Game, made fresh for each Move, so
+ * the Game the play screen shows is never played on. All the copies are made
+ * before any thread starts, and the time they take comes out of the time
+ * budget. The main search runs on the calling thread.
+ */
+public class MonteCarloPlugin implements AIPlugin
+{
+	public MonteCarloPlugin()
+	{
+		this(AlphaBetaPlugin.DEFAULT_MOVE_TIME);
+	}
+
+	/**
+	 * @param moveTime How long to think about each Move when the Game has no
+	 * timer, in milliseconds
+	 */
+	public MonteCarloPlugin(long moveTime)
+	{
+		this(moveTime, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * @param moveTime How long to think about each Move when the Game has no
+	 * timer, in milliseconds
+	 * @param threadCount How many threads to search with
+	 */
+	public MonteCarloPlugin(long moveTime, int threadCount)
+	{
+		mMoveTime = moveTime;
+		mThreadCount = Math.max(1, threadCount);
+	}
+
+	@Override
+	public FakeMove getMove(AIBoard[] boards)
+	{
+		Game game = boards[0].getGame();
+		long timeBudget = AlphaBetaPlugin.getTimeBudget(game.isBlackMove() ? game.getBlackTimer() : game.getWhiteTimer(), mMoveTime);
+		long deadline = System.currentTimeMillis() + timeBudget;
+
+		Game copy = copy(game);
+		MonteCarloSearch search = new MonteCarloSearch(copy);
+		List<Helper> helpers = Lists.newArrayList();
+		for (int i = 1; i < mThreadCount; i++)
+			helpers.add(new Helper(new MonteCarloSearch(copy(game))));
+		startHelpers(helpers, deadline);
+
+		FakeMove move = search.findMove(getTimeLeft(deadline));
+		mPlayouts = search.getPlayouts();
+		mPlayoutsPerSecond = search.getPlayoutsPerSecond();
+
+		Map<Integer, Integer> visits = Maps.newHashMap(search.getRootVisits());
+		for (Helper helper : helpers)
+			helper.mSearch.stop();
+		for (Helper helper : helpers)
+		{
+			try
+			{
+				helper.mThread.join();
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				continue;
+			}
+
+			mPlayouts += helper.mSearch.getPlayouts();
+			mPlayoutsPerSecond += helper.mSearch.getPlayoutsPerSecond();
+			for (Map.Entry<Integer, Integer> entry : helper.mSearch.getRootVisits().entrySet())
+			{
+				Integer count = visits.get(entry.getKey());
+				visits.put(entry.getKey(), count == null ? entry.getValue() : count + entry.getValue());
+			}
+		}
+
+		if (move == null || visits.isEmpty())
+			return move;
+
+		// all the Games were copied from the same one, so their packed Moves
+		// mean the same in each
+		int best = PackedMove.NONE;
+		int bestVisits = -1;
+		for (Map.Entry<Integer, Integer> entry : visits.entrySet())
+		{
+			if (entry.getValue() > bestVisits)
+			{
+				best = entry.getKey();
+				bestVisits = entry.getValue();
+			}
+		}
+		return FakeMove.fromPackedMove(copy, best);
+	}
+
+	/**
+	 * @return The number of playouts all the threads ran for the last Move
+	 */
+	public long getPlayouts()
+	{
+		return mPlayouts;
+	}
+
+	/**
+	 * @return How many playouts all the threads ran per second for the last
+	 * Move
+	 */
+	public long getPlayoutsPerSecond()
+	{
+		return mPlayoutsPerSecond;
+	}
+
+	private static Game copy(Game game)
+	{
+		try
+		{
+			return game.copy();
+		}
+		catch (IOException e)
+		{
+			// every part of a Game is Serializable, so this is a programming
+			// error rather than something to recover from
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void startHelpers(List<Helper> helpers, final long deadline)
+	{
+		for (int i = 0; i < helpers.size(); i++)
+		{
+			final Helper helper = helpers.get(i);
+			helper.mThread = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					helper.mSearch.search(getTimeLeft(deadline));
+				}
+			}, "MonteCarloPlugin helper " + (i + 1)); //$NON-NLS-1$
+			helper.mThread.setDaemon(true);
+			helper.mThread.start();
+		}
+	}
+
+	private static long getTimeLeft(long deadline)
+	{
+		return Math.max(0, deadline - System.currentTimeMillis());
+	}
+
+	private static final class Helper
+	{
+		Helper(MonteCarloSearch search)
+		{
+			mSearch = search;
+		}
+
+		final MonteCarloSearch mSearch;
+		Thread mThread;
+	}
+
+	private final long mMoveTime;
+	private final int mThreadCount;
+
+	private long mPlayouts;
+	private long mPlayoutsPerSecond;
+}
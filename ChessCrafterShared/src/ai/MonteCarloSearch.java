@@ -0,0 +1,400 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import models.Game;
+import models.MoveList;
+import models.PackedMove;
+import models.Piece;
+import models.Rules;
+import models.UndoRecord;
+import rules.EndOfGame;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * MonteCarloSearch.java
+ * 
+ * Monte Carlo tree search, for variants whose turn order, Boards or end of
+ * game rules make a handcrafted evaluation a poor judge. Each playout walks
+ * down the tree by UCT, adds one node, then plays random legal Moves with
+ * Game.makeMove until the game is over or MAX_PLAYOUT_PLIES have been played,
+ * and takes every Move back again. A playout cut short is scored by the
+ * Evaluator, squashed to somewhere between a loss and a win.
+ * 
+ * The end of the game is judged here rather than by the EndOfGame rules,
+ * which report it to the play screen: by the objective pieces, by the Piece
+ * counts the LOSE_ALL_PIECES, CAPTURE_ALL_PIECES and CAPTURE_ALL_OF_TYPE
+ * rules look at, and by the team to move having no legal Move. Every node
+ * remembers which team made its Move, so variants that give a team several
+ * Moves in a row are scored for the right team.
+ * 
+ * A playout allocates nothing: Moves are generated into one MoveList, every
+ * Piece refills the destination lists it already has, and Moves are made with
+ * UndoRecords kept per ply. Only adding a node to the tree allocates.
+ */
+public final class MonteCarloSearch
+{
+	/**
+	 * The most random Moves a playout plays before the Evaluator judges it
+	 */
+	public static final int MAX_PLAYOUT_PLIES = 48;
+
+	public MonteCarloSearch(Game game)
+	{
+		this(game, new Random().nextLong());
+	}
+
+	/**
+	 * @param game The Game to search
+	 * @param seed The seed for the random playouts
+	 */
+	public MonteCarloSearch(Game game, long seed)
+	{
+		mGame = game;
+		mRandom = new Random(seed);
+		mEvaluator = new Evaluator(game);
+		mMoves = new MoveList();
+		mUndoRecords = Lists.newArrayList();
+		mMaxPlayouts = Long.MAX_VALUE;
+	}
+
+	/**
+	 * Limit the playouts of each search, mostly so results can be reproduced
+	 * regardless of the speed of the machine
+	 * 
+	 * @param maxPlayouts The most playouts to run
+	 */
+	public void setMaxPlayouts(long maxPlayouts)
+	{
+		mMaxPlayouts = Math.max(1, maxPlayouts);
+	}
+
+	/**
+	 * Make a search running on another thread return as soon as it can. The
+	 * search still returns the best Move it has found, and every later search
+	 * returns straight away too.
+	 */
+	void stop()
+	{
+		mIsStopped = true;
+	}
+
+	/**
+	 * Run playouts from the current position until the time runs out or the
+	 * maximum number of playouts is reached
+	 * 
+	 * @param timeBudgetMillis How long to search for
+	 * @return The Move played out most often, or null if the team to move has
+	 * no legal Move
+	 */
+	public FakeMove findMove(long timeBudgetMillis)
+	{
+		search(timeBudgetMillis);
+		int move = getBestMove();
+		FakeMove fakeMove = move == PackedMove.NONE ? null : FakeMove.fromPackedMove(mGame, move);
+
+		// the Game is back where it started, but the Pieces still hold the
+		// destinations of the last position played
+		mGame.genLegalDests();
+		return fakeMove;
+	}
+
+	/**
+	 * @return The number of playouts the last search ran
+	 */
+	public long getPlayouts()
+	{
+		return mPlayouts;
+	}
+
+	/**
+	 * @return How many playouts the last search ran per second
+	 */
+	public long getPlayoutsPerSecond()
+	{
+		return mPlayouts * 1000 / Math.max(1, mElapsedMillis);
+	}
+
+	/**
+	 * Build a new tree for the current position and run playouts on it
+	 */
+	void search(long timeBudgetMillis)
+	{
+		long start = System.currentTimeMillis();
+		long deadline = start + timeBudgetMillis;
+		mPlayouts = 0;
+		mPly = 0;
+
+		mRoot = new Node(null, PackedMove.NONE, !mGame.isBlackMove());
+		expand(mRoot);
+		// with one Move or none there is nothing to choose
+		while (mRoot.mUntriedCount + mRoot.mChildCount > 1 && mPlayouts < mMaxPlayouts && !mIsStopped
+				&& (mPlayouts == 0 || System.currentTimeMillis() < deadline))
+		{
+			playout();
+		}
+		mElapsedMillis = System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * @return The packed Move of the last search's root played out most
+	 * often, or PackedMove.NONE if the team to move had no legal Move
+	 */
+	int getBestMove()
+	{
+		Node best = null;
+		for (int i = 0; i < mRoot.mChildCount; i++)
+		{
+			if (best == null || mRoot.mChildren[i].mVisits > best.mVisits)
+				best = mRoot.mChildren[i];
+		}
+
+		if (best != null)
+			return best.mMove;
+		return mRoot.mUntriedCount > 0 ? mRoot.mUntried[0] : PackedMove.NONE;
+	}
+
+	/**
+	 * @return How often each Move of the last search's root was played out,
+	 * for a search run in parallel on copies of the Game to add up
+	 */
+	Map<Integer, Integer> getRootVisits()
+	{
+		Map<Integer, Integer> visits = Maps.newHashMap();
+		for (int i = 0; i < mRoot.mChildCount; i++)
+			visits.put(mRoot.mChildren[i].mMove, mRoot.mChildren[i].mVisits);
+		return visits;
+	}
+
+	private void playout()
+	{
+		Node node = mRoot;
+		while (node.mIsExpanded && node.mUntriedCount == 0 && node.mChildCount > 0)
+		{
+			node = select(node);
+			mGame.makeMove(node.mMove, getUndoRecord(mPly++));
+		}
+
+		if (!node.mIsExpanded)
+			expand(node);
+
+		double result = node.mResult;
+		if (result == NOT_OVER)
+		{
+			int i = mRandom.nextInt(node.mUntriedCount);
+			int move = node.mUntried[i];
+			node.mUntried[i] = node.mUntried[--node.mUntriedCount];
+
+			boolean isBlack = mGame.isBlackMove();
+			mGame.makeMove(move, getUndoRecord(mPly++));
+			node = node.addChild(move, isBlack);
+			result = rollout();
+		}
+
+		while (mPly > 0)
+			mGame.unmakeMove(mUndoRecords.get(--mPly));
+
+		for (; node != null; node = node.mParent)
+		{
+			node.mVisits++;
+			node.mWins += node.mWasBlackMove ? 1 - result : result;
+		}
+		mPlayouts++;
+	}
+
+	/**
+	 * @return The child with the best upper confidence bound on its score for
+	 * the team that chooses between them
+	 */
+	private static Node select(Node node)
+	{
+		double logVisits = Math.log(node.mVisits);
+		Node best = null;
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < node.mChildCount; i++)
+		{
+			Node child = node.mChildren[i];
+			double value = child.mWins / child.mVisits + EXPLORATION * Math.sqrt(logVisits / child.mVisits);
+			if (value > bestValue)
+			{
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Find out whether the game is over at a node, and if not, which Moves it
+	 * has
+	 */
+	private void expand(Node node)
+	{
+		node.mResult = getResult();
+		if (node.mResult == NOT_OVER)
+		{
+			node.mUntriedCount = mMoves.size();
+			node.mUntried = new int[node.mUntriedCount];
+			for (int i = 0; i < node.mUntriedCount; i++)
+				node.mUntried[i] = mMoves.get(i);
+			node.mChildren = new Node[node.mUntriedCount];
+		}
+		node.mIsExpanded = true;
+	}
+
+	/**
+	 * Play random Moves until the game is over or the playout is long enough
+	 * 
+	 * @return The result for the white team
+	 */
+	private double rollout()
+	{
+		for (int plies = 0; plies < MAX_PLAYOUT_PLIES; plies++)
+		{
+			double result = getResult();
+			if (result != NOT_OVER)
+				return result;
+			mGame.makeMove(mMoves.get(mRandom.nextInt(mMoves.size())), getUndoRecord(mPly++));
+		}
+
+		double result = getResult();
+		if (result != NOT_OVER)
+			return result;
+
+		int score = mEvaluator.evaluate();
+		if (mGame.isBlackMove())
+			score = -score;
+		return 1 / (1 + Math.exp(-(double) score / EVALUATION_SCALE));
+	}
+
+	/**
+	 * Judge whether the game is over, generating the Moves of the team to
+	 * move into mMoves if it isn't
+	 * 
+	 * @return The result for the white team, or NOT_OVER
+	 */
+	private double getResult()
+	{
+		Piece whiteObjective = mGame.getWhiteRules().objectivePiece(false);
+		if (whiteObjective != null && whiteObjective.isCaptured())
+			return BLACK_WIN;
+		Piece blackObjective = mGame.getBlackRules().objectivePiece(true);
+		if (blackObjective != null && blackObjective.isCaptured())
+			return WHITE_WIN;
+
+		double result = getPieceCountResult(mGame.getWhiteRules(), false);
+		if (result == NOT_OVER)
+			result = getPieceCountResult(mGame.getBlackRules(), true);
+		if (result != NOT_OVER)
+			return result;
+
+		if (mGame.generateMoves(mMoves, false) > 0)
+			return NOT_OVER;
+
+		boolean isBlack = mGame.isBlackMove();
+		Piece objectivePiece = isBlack ? blackObjective : whiteObjective;
+		if (objectivePiece != null && objectivePiece.isInCheck())
+			return isBlack ? WHITE_WIN : BLACK_WIN;
+		return DRAW;
+	}
+
+	/**
+	 * The end of game rules that count Pieces, judged the same way as
+	 * EndOfGame does for the team the Rules belong to
+	 */
+	private double getPieceCountResult(Rules rules, boolean isBlack)
+	{
+		EndOfGame endOfGame = rules.getEndOfGame();
+		switch (endOfGame)
+		{
+		case LOSE_ALL_PIECES:
+			return mGame.getPieceCount(!isBlack) == 0 ? win(isBlack) : NOT_OVER;
+		case CAPTURE_ALL_PIECES:
+			return mGame.getPieceCount(isBlack) == 0 ? win(!isBlack) : NOT_OVER;
+		case CAPTURE_ALL_OF_TYPE:
+			return mGame.getPieceCount(endOfGame.getCaptureAllPieceName(), !isBlack) == 0 ? win(isBlack) : NOT_OVER;
+		default:
+			return NOT_OVER;
+		}
+	}
+
+	private static double win(boolean isBlack)
+	{
+		return isBlack ? BLACK_WIN : WHITE_WIN;
+	}
+
+	private UndoRecord getUndoRecord(int ply)
+	{
+		while (mUndoRecords.size() <= ply)
+			mUndoRecords.add(new UndoRecord());
+		return mUndoRecords.get(ply);
+	}
+
+	private static final class Node
+	{
+		Node(Node parent, int move, boolean wasBlackMove)
+		{
+			mParent = parent;
+			mMove = move;
+			mWasBlackMove = wasBlackMove;
+		}
+
+		Node addChild(int move, boolean wasBlackMove)
+		{
+			Node child = new Node(this, move, wasBlackMove);
+			if (mChildCount == mChildren.length)
+				mChildren = Arrays.copyOf(mChildren, mChildCount + 1);
+			mChildren[mChildCount++] = child;
+			return child;
+		}
+
+		final Node mParent;
+		final int mMove;
+		/**
+		 * Whether the black team made the Move into this node
+		 */
+		final boolean mWasBlackMove;
+
+		boolean mIsExpanded;
+		double mResult;
+		int[] mUntried;
+		int mUntriedCount;
+		Node[] mChildren;
+		int mChildCount;
+		int mVisits;
+		/**
+		 * The total result of the playouts through this node, for the team
+		 * that made the Move into it
+		 */
+		double mWins;
+	}
+
+	private static final double WHITE_WIN = 1;
+	private static final double BLACK_WIN = 0;
+	private static final double DRAW = 0.5;
+	private static final double NOT_OVER = -1;
+	private static final double EXPLORATION = Math.sqrt(2);
+	/**
+	 * The evaluation at which a playout cut short counts as about three
+	 * quarters of a win
+	 */
+	private static final double EVALUATION_SCALE = 400;
+
+	private final Game mGame;
+	private final Random mRandom;
+	private final Evaluator mEvaluator;
+	private final MoveList mMoves;
+	private final List<UndoRecord> mUndoRecords;
+
+	private long mMaxPlayouts;
+	private volatile boolean mIsStopped;
+	private Node mRoot;
+	private int mPly;
+	private long mPlayouts;
+	private long mElapsedMillis;
+}
@@ -0,0 +1,179 @@
+package ai;
+
+import java.util.Arrays;
+
+import models.Board;
+import models.Game;
+import models.MoveList;
+import models.PackedMove;
+import models.Piece;
+
+/**
+ * MoveOrderer.java
+ * 
+ * Puts the Moves of a position in the order an alpha-beta search should try
+ * them: the Move the transposition table remembers, then captures, the most
+ * valuable victim first and the cheapest attacker first among those, then the
+ * two killer Moves of the ply, then every other Move by how often it has
+ * caused a cutoff before. The history table is indexed by the origin and
+ * destination Squares within their Boards, so it works for any variant. Moves
+ * between the same Squares of different Boards share an entry, and on Boards
+ * of more than MAX_HISTORY_SQUARES Squares so do Squares that many apart,
+ * which keeps the table small however large the Boards are.
+ */
+final class MoveOrderer
+{
+	/**
+	 * The most Squares the history table tells apart, which holds it to half a
+	 * megabyte
+	 */
+	static final int MAX_HISTORY_SQUARES = 256;
+
+	/**
+	 * @param game The Game being searched
+	 * @param evaluator The Evaluator giving the values of the Pieces
+	 */
+	MoveOrderer(Game game, Evaluator evaluator)
+	{
+		mGame = game;
+		mEvaluator = evaluator;
+
+		int numSquares = 0;
+		for (Board board : game.getBoards())
+			numSquares = Math.max(numSquares, board.getNumSquares());
+		mNumSquares = Math.min(numSquares, MAX_HISTORY_SQUARES);
+
+		mHistory = new int[2 * mNumSquares * mNumSquares];
+		mKillers = new int[AlphaBetaSearch.MAX_PLY][KILLERS];
+		mScores = new int[DEFAULT_CAPACITY];
+	}
+
+	/**
+	 * Forget the killer Moves of the last search, and weigh the history it
+	 * built up less against what the next one finds
+	 */
+	void newSearch()
+	{
+		for (int[] killers : mKillers)
+			Arrays.fill(killers, PackedMove.NONE);
+		ageHistory();
+	}
+
+	/**
+	 * Sort the Moves of a position, best first. Moves that score the same stay
+	 * in the order they were generated.
+	 * 
+	 * @param moves The Moves of the team to move, as generated
+	 * @param ply The ply of the position
+	 * @param hashMove The Move the transposition table has for the position,
+	 * or PackedMove.NONE
+	 */
+	void order(MoveList moves, int ply, int hashMove)
+	{
+		int count = moves.size();
+		if (mScores.length < count)
+			mScores = new int[Math.max(count, mScores.length * 2)];
+
+		int side = mGame.isBlackMove() ? 1 : 0;
+		for (int i = 0; i < count; i++)
+			mScores[i] = score(moves.get(i), ply, hashMove, side);
+
+		// positions have a few dozen Moves, so an insertion sort will do
+		for (int i = 1; i < count; i++)
+		{
+			int move = moves.get(i);
+			int score = mScores[i];
+			int j = i - 1;
+			for (; j >= 0 && mScores[j] < score; j--)
+			{
+				mScores[j + 1] = mScores[j];
+				moves.set(j + 1, moves.get(j));
+			}
+			mScores[j + 1] = score;
+			moves.set(j + 1, move);
+		}
+	}
+
+	/**
+	 * Remember a Move that caused a beta cutoff. Captures are already tried
+	 * early, so only quiet Moves are kept.
+	 * 
+	 * @param move The Move, made by the team to move
+	 * @param ply The ply of the position
+	 * @param depth The depth left to search below the position
+	 */
+	void cutoff(int move, int ply, int depth)
+	{
+		if (PackedMove.isCapture(move))
+			return;
+
+		int[] killers = mKillers[ply];
+		if (killers[0] != move)
+		{
+			killers[1] = killers[0];
+			killers[0] = move;
+		}
+
+		int index = historyIndex(move, mGame.isBlackMove() ? 1 : 0);
+		mHistory[index] += depth * depth;
+		if (mHistory[index] > MAX_HISTORY)
+			ageHistory();
+	}
+
+	private int score(int move, int ply, int hashMove, int side)
+	{
+		if (move == hashMove)
+			return HASH_MOVE_SCORE;
+
+		if (PackedMove.isCapture(move))
+		{
+			Board[] boards = mGame.getBoards();
+			int attacker = mEvaluator.getValue(boards[PackedMove.getOriginBoard(move)].getSquare(PackedMove.getOrigin(move)).getPiece());
+			Piece victim = boards[PackedMove.getDestBoard(move)].getSquare(PackedMove.getDest(move)).getPiece();
+			// en passant is the only capture of an empty Square, pawn for pawn
+			int victimValue = victim == null ? attacker : mEvaluator.getValue(victim);
+			return CAPTURE_SCORE + victimValue * VICTIM_WEIGHT - attacker;
+		}
+
+		int[] killers = mKillers[ply];
+		if (move == killers[0])
+			return KILLER_SCORE;
+		if (move == killers[1])
+			return KILLER_SCORE - 1;
+
+		return mHistory[historyIndex(move, side)];
+	}
+
+	private int historyIndex(int move, int side)
+	{
+		int origin = PackedMove.getOrigin(move) % mNumSquares;
+		int dest = PackedMove.getDest(move) % mNumSquares;
+		return (side * mNumSquares + origin) * mNumSquares + dest;
+	}
+
+	private void ageHistory()
+	{
+		for (int i = 0; i < mHistory.length; i++)
+			mHistory[i] >>= 1;
+	}
+
+	private static final int KILLERS = 2;
+	private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE;
+	private static final int CAPTURE_SCORE = 1 << 28;
+	private static final int KILLER_SCORE = 1 << 27;
+	/**
+	 * History scores are halved when one passes this, so they always sort
+	 * after the killer Moves
+	 */
+	private static final int MAX_HISTORY = 1 << 26;
+	private static final int VICTIM_WEIGHT = 16;
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private final Game mGame;
+	private final Evaluator mEvaluator;
+	private final int mNumSquares;
+	private final int[] mHistory;
+	private final int[][] mKillers;
+
+	private int[] mScores;
+}
@@ -0,0 +1,356 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.List;
+
+import logic.AttackTable;
+import models.Bitboard;
+import models.Board;
+import models.Game;
+import models.PackedMove;
+import models.Piece;
+import models.Rules;
+
+/**
+ * StaticExchange.java
+ * 
+ * Static exchange evaluation: what a capture wins once both teams have
+ * traded off every Piece they have bearing on its destination, cheapest
+ * first, each team free to stop when going on would lose. The Pieces it
+ * counts are the ones Game.getThreats and Game.getGuards would report for the
+ * Square, worked out from the AttackTables and the Bitboard instead of the
+ * Pieces' destination lists, so that riders lined up behind each other join
+ * in as the ones in front are traded off. Pins and the rules that crop
+ * destinations are not looked at. Nothing is allocated once the arrays have
+ * grown to the largest exchange seen.
+ * 
+ * The after-move rules change what a capture is worth. An atomic capture
+ * ends the exchange at once, and wins or loses every Piece caught in the
+ * blast. A capturer that changes colour is lost to the other team, which
+ * can't take back its own Piece. A stolen Piece is worth twice as much,
+ * since the other team loses it and the capturer's team gains it. Capturing
+ * a Piece that returns to its starting Square doesn't win anything certain,
+ * so such captures are judged even.
+ */
+final class StaticExchange
+{
+	/**
+	 * What losing the objective piece counts as, more than any exchange of
+	 * material can win back
+	 */
+	static final int OBJECTIVE_VALUE = 100 * Evaluator.PAWN_VALUE;
+
+	/**
+	 * @param game The Game being searched
+	 * @param evaluator The Evaluator giving the values of the Pieces
+	 */
+	StaticExchange(Game game, Evaluator evaluator)
+	{
+		mGame = game;
+		mEvaluator = evaluator;
+		mCandidates = new Piece[DEFAULT_CAPACITY];
+		mGains = new int[DEFAULT_CAPACITY];
+		mOccupied = new long[0];
+	}
+
+	/**
+	 * Whether a Move by the team to move loses material in the exchange it
+	 * starts. Captures of a Piece worth at least as much as the capturer are
+	 * never losing in a plain exchange, so they are answered without working
+	 * the exchange out.
+	 * 
+	 * @param move A packed Move of the current position
+	 * @return Whether the exchange ends below even for the team to move
+	 */
+	boolean isLosing(int move)
+	{
+		findObjectivePieces();
+		Piece attacker = getPiece(PackedMove.getOriginBoard(move), PackedMove.getOrigin(move));
+		Piece victim = getPiece(PackedMove.getDestBoard(move), PackedMove.getDest(move));
+		if (attacker != null && victim != null && getCaptureRule(attacker.isBlack()) == PLAIN
+				&& getValue(victim) >= getValue(attacker))
+		{
+			return false;
+		}
+		return evaluate(move) < 0;
+	}
+
+	/**
+	 * Work out the exchange a Move of the current position starts
+	 * 
+	 * @param move A packed Move of the current position
+	 * @return What the team to move wins, in the Evaluator's units
+	 */
+	int evaluate(int move)
+	{
+		Piece attacker = getPiece(PackedMove.getOriginBoard(move), PackedMove.getOrigin(move));
+		Board board = mGame.getBoards()[PackedMove.getDestBoard(move)];
+		int target = PackedMove.getDest(move);
+		Piece victim = board.getSquare(target).getPiece();
+		if (attacker == null || victim == null || victim.isBlack() == attacker.isBlack())
+			return 0;
+
+		findObjectivePieces();
+		boolean isBlack = attacker.isBlack();
+		switch (getCaptureRule(isBlack))
+		{
+		case ATOMIC:
+			return getBlast(attacker, board, target);
+		case SWAP:
+			return getValue(victim) - 2 * getValue(attacker);
+		case RETURN:
+			return 0;
+		default:
+			return getExchange(attacker, victim, board, target);
+		}
+	}
+
+	/**
+	 * The usual swap list: each capture on the target wins the Piece the last
+	 * one left there, then the gains are backed up from the end, each team
+	 * stopping where that does better than going on
+	 */
+	private int getExchange(Piece attacker, Piece victim, Board board, int target)
+	{
+		boolean isBlack = attacker.isBlack();
+		// the other team only takes back in a plain exchange of its own
+		boolean isRecaptured = getCaptureRule(!isBlack) == PLAIN;
+		collectCandidates(board, target, attacker, victim);
+
+		long[] occupied = board.getBitboard().getOccupied();
+		if (mOccupied.length != occupied.length)
+			mOccupied = new long[occupied.length];
+		System.arraycopy(occupied, 0, mOccupied, 0, occupied.length);
+		vacate(attacker, board);
+
+		mGains[0] = getValue(victim) * getMultiplier(isBlack);
+		int onTarget = getValue(attacker);
+		int depth = 0;
+		boolean side = !isBlack;
+		while (isRecaptured)
+		{
+			int next = findCheapestAttacker(side, board, target);
+			if (next < 0)
+				break;
+
+			if (++depth == mGains.length)
+				mGains = Arrays.copyOf(mGains, mGains.length * 2);
+			mGains[depth] = onTarget * getMultiplier(side) - mGains[depth - 1];
+
+			Piece piece = mCandidates[next];
+			onTarget = getValue(piece);
+			mCandidates[next] = mCandidates[--mCandidateCount];
+			mCandidates[mCandidateCount] = null;
+			vacate(piece, board);
+			side = !side;
+		}
+
+		while (depth > 0)
+		{
+			mGains[depth - 1] = -Math.max(-mGains[depth - 1], mGains[depth]);
+			depth--;
+		}
+
+		// don't hold on to the Pieces between searches
+		Arrays.fill(mCandidates, 0, mCandidateCount, null);
+		return mGains[0];
+	}
+
+	/**
+	 * Everything an atomic capture destroys: the capturer, the victim and
+	 * every other Piece but a pawn around the target, the same Squares
+	 * AfterMove.ATOMIC_CAPTURE clears
+	 */
+	private int getBlast(Piece attacker, Board board, int target)
+	{
+		boolean isBlack = attacker.isBlack();
+		int gain = -getValue(attacker);
+		for (int rowStep = -1; rowStep <= 1; rowStep++)
+		{
+			for (int colStep = -1; colStep <= 1; colStep++)
+			{
+				int index = board.step(target, rowStep, colStep, true);
+				if (index == Board.OFF_BOARD)
+					continue;
+
+				Piece piece = board.getSquare(index).getPiece();
+				if (piece == null || piece == attacker || piece.isCaptured())
+					continue;
+				// pawns only go when they are the ones captured
+				if (index != target && piece.getType().isPawn())
+					continue;
+				gain += piece.isBlack() == isBlack ? -getValue(piece) : getValue(piece);
+			}
+		}
+		return gain;
+	}
+
+	/**
+	 * Gather every Piece of either team that could capture on the target if
+	 * nothing stood in its way, besides the two Pieces already involved
+	 */
+	private void collectCandidates(Board board, int target, Piece attacker, Piece victim)
+	{
+		mCandidateCount = 0;
+		collectCandidates(mGame.getWhiteTeam(), mGame.getWhiteRules(), board, target, attacker, victim);
+		collectCandidates(mGame.getBlackTeam(), mGame.getBlackRules(), board, target, attacker, victim);
+	}
+
+	private void collectCandidates(List<Piece> team, Rules rules, Board board, int target, Piece attacker, Piece victim)
+	{
+		for (int i = 0; i < team.size(); i++)
+		{
+			Piece piece = team.get(i);
+			if (piece == attacker || piece == victim || piece.isCaptured() || rules.getBoard(piece.getBoard()) != board)
+				continue;
+
+			int origin = piece.getSquare().getIndex();
+			boolean isCandidate;
+			if (piece.getType().isPawn())
+				isCandidate = isPawnAttack(piece, board, origin, target);
+			else
+				isCandidate = Bitboard.isSet(piece.getAttackTable(board).getAttackMask(origin), target);
+
+			if (!isCandidate)
+				continue;
+			if (mCandidateCount == mCandidates.length)
+				mCandidates = Arrays.copyOf(mCandidates, mCandidates.length * 2);
+			mCandidates[mCandidateCount++] = piece;
+		}
+	}
+
+	/**
+	 * @return The index among the candidates of the cheapest Piece of a team
+	 * that can capture on the target past what is left on the Board, or -1
+	 */
+	private int findCheapestAttacker(boolean isBlack, Board board, int target)
+	{
+		int cheapest = -1;
+		int cheapestValue = Integer.MAX_VALUE;
+		for (int i = 0; i < mCandidateCount; i++)
+		{
+			Piece piece = mCandidates[i];
+			if (piece.isBlack() != isBlack)
+				continue;
+
+			int value = getValue(piece);
+			if (value < cheapestValue && attacks(piece, board, target))
+			{
+				cheapest = i;
+				cheapestValue = value;
+			}
+		}
+		return cheapest;
+	}
+
+	/**
+	 * Whether a candidate reaches the target, with the Squares its rays pass
+	 * over looked up in the occupancy left after the captures so far
+	 */
+	private boolean attacks(Piece piece, Board board, int target)
+	{
+		int origin = piece.getSquare().getIndex();
+		if (piece.getType().isPawn())
+			return isPawnAttack(piece, board, origin, target);
+
+		AttackTable table = piece.getAttackTable(board);
+		if (piece.isLeaper() || Bitboard.isSet(table.getLeapMask(origin), target))
+			return true;
+
+		long[][] rayMasks = table.getRayMasks(origin);
+		for (int d = 0; d < rayMasks.length; d++)
+		{
+			if (!Bitboard.isSet(rayMasks[d], target))
+				continue;
+
+			for (int index : table.getRays(origin)[d])
+			{
+				if (index == target)
+					return true;
+				if (Bitboard.isSet(mOccupied, index))
+					return false;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isPawnAttack(Piece piece, Board board, int origin, int target)
+	{
+		int direction = piece.isBlack() ? -1 : 1;
+		return board.step(origin, direction, 1) == target || board.step(origin, direction, -1) == target;
+	}
+
+	/**
+	 * Take a Piece that has made its capture off the occupancy, so the riders
+	 * behind it can see through
+	 */
+	private void vacate(Piece piece, Board board)
+	{
+		if (piece.getBoard() == board)
+			Bitboard.clear(mOccupied, piece.getSquare().getIndex());
+	}
+
+	private void findObjectivePieces()
+	{
+		mWhiteObjective = mGame.getWhiteRules().objectivePiece(false);
+		mBlackObjective = mGame.getBlackRules().objectivePiece(true);
+	}
+
+	private int getValue(Piece piece)
+	{
+		if (piece == mWhiteObjective || piece == mBlackObjective)
+			return OBJECTIVE_VALUE;
+		return mEvaluator.getValue(piece);
+	}
+
+	private int getMultiplier(boolean isBlack)
+	{
+		return getCaptureRule(isBlack) == PLAIN && getRules(isBlack).getPiecesDropAndSwitch() ? 2 : 1;
+	}
+
+	/**
+	 * @return How a capture by a team plays out, the rules that end an
+	 * exchange first
+	 */
+	private int getCaptureRule(boolean isBlack)
+	{
+		Rules rules = getRules(isBlack);
+		if (rules.isAtomic())
+			return ATOMIC;
+		if (rules.getCapturerSwapsColor())
+			return SWAP;
+		if (rules.getCapturedReturnToStart())
+			return RETURN;
+		return PLAIN;
+	}
+
+	private Rules getRules(boolean isBlack)
+	{
+		return isBlack ? mGame.getBlackRules() : mGame.getWhiteRules();
+	}
+
+	private Piece getPiece(int boardIndex, int index)
+	{
+		return mGame.getBoards()[boardIndex].getSquare(index).getPiece();
+	}
+
+	/**
+	 * The ways a capture can play out
+	 */
+	private static final int PLAIN = 0;
+	private static final int ATOMIC = 1;
+	private static final int SWAP = 2;
+	private static final int RETURN = 3;
+
+	private static final int DEFAULT_CAPACITY = 32;
+
+	private final Game mGame;
+	private final Evaluator mEvaluator;
+
+	private Piece[] mCandidates;
+	private int mCandidateCount;
+	private int[] mGains;
+	private long[] mOccupied;
+	private Piece mWhiteObjective;
+	private Piece mBlackObjective;
+}
@@ -0,0 +1,177 @@
+package ai;
+
+import java.util.Arrays;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * TranspositionTable.java
+ * 
+ * A fixed size hash table of search results, keyed by Game.getZobristKey. It
+ * can be shared by any number of search threads without locks. Each entry is
+ * two longs: the packed result, and the position key XORed with that result.
+ * A reader only accepts an entry if the two still XOR back to the key it is
+ * looking for, so an entry torn by two threads writing at once just looks
+ * like a miss.
+ * 
+ * A packed result holds the best move in its low 32 bits, then the score,
+ * the depth and the bound type. The table doesn't look inside the move, so
+ * a search may encode its moves any way it likes.
+ */
+public final class TranspositionTable
+{
+	/**
+	 * The value probe returns when the position isn't in the table. Every
+	 * stored entry has a bound type, so no entry is ever 0.
+	 */
+	public static final long NO_ENTRY = 0;
+
+	/**
+	 * The score is at least the stored score
+	 */
+	public static final int LOWER_BOUND = 1;
+
+	/**
+	 * The score is at most the stored score
+	 */
+	public static final int UPPER_BOUND = 2;
+
+	/**
+	 * The stored score is exact
+	 */
+	public static final int EXACT = 3;
+
+	/**
+	 * The largest magnitude a score may have
+	 */
+	public static final int MAX_SCORE = (1 << (TranspositionTable.SCORE_BITS - 1)) - 1;
+
+	/**
+	 * The largest depth that can be stored; deeper results are stored as this
+	 */
+	public static final int MAX_DEPTH = (1 << TranspositionTable.DEPTH_BITS) - 1;
+
+	/**
+	 * @param megabytes The memory to use. The number of entries is rounded
+	 * down to a power of two, so the table may use up to half as much.
+	 */
+	public TranspositionTable(int megabytes)
+	{
+		Preconditions.checkArgument(megabytes > 0);
+
+		long entries = Long.highestOneBit(((long) megabytes << 20) / BYTES_PER_ENTRY);
+		int size = (int) Math.min(entries, 1 << 30);
+		mKeys = new long[size];
+		mEntries = new long[size];
+		mMask = size - 1;
+	}
+
+	/**
+	 * @return The number of entries the table holds
+	 */
+	public int getCapacity()
+	{
+		return mEntries.length;
+	}
+
+	/**
+	 * Forget every stored result, for example before a new Game
+	 */
+	public void clear()
+	{
+		Arrays.fill(mEntries, NO_ENTRY);
+		Arrays.fill(mKeys, 0L);
+	}
+
+	/**
+	 * Look up a position
+	 * 
+	 * @param key The Zobrist key of the position
+	 * @return The packed entry, or NO_ENTRY if the position isn't stored
+	 */
+	public long probe(long key)
+	{
+		int index = (int) key & mMask;
+		long entry = mEntries[index];
+		if ((mKeys[index] ^ entry) != key)
+			return NO_ENTRY;
+		return entry;
+	}
+
+	/**
+	 * Store the result of searching a position. The slot is taken over unless
+	 * it holds a deeper result for the same position.
+	 * 
+	 * @param key The Zobrist key of the position
+	 * @param depth The depth the position was searched to
+	 * @param bound LOWER_BOUND, UPPER_BOUND or EXACT
+	 * @param score The score, which must be within MAX_SCORE of 0
+	 * @param move The best move found, in the search's own encoding
+	 */
+	public void store(long key, int depth, int bound, int score, int move)
+	{
+		int index = (int) key & mMask;
+		long previous = mEntries[index];
+		if ((mKeys[index] ^ previous) == key && getDepth(previous) > depth && bound != EXACT)
+			return;
+
+		long entry = pack(depth, bound, score, move);
+		mEntries[index] = entry;
+		mKeys[index] = key ^ entry;
+	}
+
+	/**
+	 * @param entry A packed entry returned by probe
+	 * @return The depth the position was searched to
+	 */
+	public static int getDepth(long entry)
+	{
+		return (int) (entry >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+	/**
+	 * @param entry A packed entry returned by probe
+	 * @return LOWER_BOUND, UPPER_BOUND or EXACT
+	 */
+	public static int getBound(long entry)
+	{
+		return (int) (entry >>> BOUND_SHIFT);
+	}
+
+	/**
+	 * @param entry A packed entry returned by probe
+	 * @return The stored score
+	 */
+	public static int getScore(long entry)
+	{
+		// shift the sign bit of the score to the top, then back down
+		return (int) (entry << (64 - DEPTH_SHIFT) >> (64 - SCORE_BITS));
+	}
+
+	/**
+	 * @param entry A packed entry returned by probe
+	 * @return The stored best move
+	 */
+	public static int getMove(long entry)
+	{
+		return (int) entry;
+	}
+
+	static long pack(int depth, int bound, int score, int move)
+	{
+		long packed = ((long) bound << BOUND_SHIFT) | ((long) Math.min(Math.max(depth, 0), MAX_DEPTH) << DEPTH_SHIFT);
+		packed |= ((long) score & ((1L << SCORE_BITS) - 1)) << SCORE_SHIFT;
+		return packed | (move & 0xFFFFFFFFL);
+	}
+
+	private static final int SCORE_BITS = 22;
+	private static final int DEPTH_BITS = 8;
+	private static final int SCORE_SHIFT = 32;
+	private static final int DEPTH_SHIFT = SCORE_SHIFT + SCORE_BITS;
+	private static final int BOUND_SHIFT = DEPTH_SHIFT + DEPTH_BITS;
+	private static final int BYTES_PER_ENTRY = 16;
+
+	private final long[] mKeys;
+	private final long[] mEntries;
+	private final int mMask;
+}
@@ -0,0 +1,236 @@
+package logic;
+
+import java.util.List;
+
+import logic.PieceMovements.MovementDirection;
+import models.Bitboard;
+
+import com.google.common.collect.Lists;
+
+/**
+ * AttackTable.java
+ * 
+ * The movement geometry of one Piece type on one Board shape, computed once
+ * for every Square. Rays hold the Squares a rider passes over in the order it
+ * reaches them, so move generation only has to look for blockers instead of
+ * redoing the distance and wraparound arithmetic on every step. Squares are
+ * identified by their Bitboard index. Tables are cached per PieceType.
+ */
+public final class AttackTable
+{
+	/**
+	 * The ray directions, in the order Piece.genLegalDests walks them
+	 */
+	public static final MovementDirection[] DIRECTIONS = { MovementDirection.EAST, MovementDirection.WEST, MovementDirection.NORTH,
+			MovementDirection.SOUTH, MovementDirection.NORTHEAST, MovementDirection.SOUTHEAST, MovementDirection.NORTHWEST,
+			MovementDirection.SOUTHWEST };
+
+	AttackTable(PieceMovements movements, int numRows, int numColumns, boolean wrapsAround)
+	{
+		int numSquares = numRows * numColumns;
+		int numWords = Bitboard.wordsFor(numSquares);
+
+		mRays = new int[numSquares][DIRECTIONS.length][];
+		mRayMasks = new long[numSquares][DIRECTIONS.length][];
+		mLeaps = new int[numSquares][];
+		mLeapMasks = new long[numSquares][];
+		mAttackMasks = new long[numSquares][];
+
+		int[][] leapOffsets = leapOffsets(movements);
+
+		for (int row = 1, col = 1; row <= numRows; row++)
+		{
+			for (col = 1; col <= numColumns; col++)
+			{
+				int index = (row - 1) * numColumns + (col - 1);
+				long[] attacks = new long[numWords];
+
+				for (int d = 0; d < DIRECTIONS.length; d++)
+				{
+					mRays[index][d] = buildRay(DIRECTIONS[d], movements.getDistance(DIRECTIONS[d]), row, col, numRows, numColumns,
+							wrapsAround);
+					mRayMasks[index][d] = new long[numWords];
+					for (int target : mRays[index][d])
+					{
+						Bitboard.set(mRayMasks[index][d], target);
+						Bitboard.set(attacks, target);
+					}
+				}
+
+				long[] leapMask = new long[numWords];
+				List<Integer> leaps = Lists.newArrayList();
+				for (int[] offset : leapOffsets)
+				{
+					int targetRow = row + offset[0];
+					int targetCol = col + offset[1];
+					if (wrapsAround)
+						targetCol = wrapColumn(targetCol, numColumns);
+
+					if (targetRow < 1 || targetRow > numRows || targetCol < 1 || targetCol > numColumns)
+						continue;
+
+					int target = (targetRow - 1) * numColumns + (targetCol - 1);
+					if (target == index || Bitboard.isSet(leapMask, target))
+						continue;
+
+					Bitboard.set(leapMask, target);
+					Bitboard.set(attacks, target);
+					leaps.add(target);
+				}
+				mLeaps[index] = toArray(leaps);
+				mLeapMasks[index] = leapMask;
+				mAttackMasks[index] = attacks;
+			}
+		}
+	}
+
+	/**
+	 * @param index The index of the origin Square
+	 * @return The rays from that Square, one per entry of DIRECTIONS
+	 */
+	public int[][] getRays(int index)
+	{
+		return mRays[index];
+	}
+
+	/**
+	 * @param index The index of the origin Square
+	 * @return The masks of the rays from that Square, one per entry of
+	 * DIRECTIONS
+	 */
+	public long[][] getRayMasks(int index)
+	{
+		return mRayMasks[index];
+	}
+
+	/**
+	 * @param index The index of the origin Square
+	 * @return The Squares reached by leaping from that Square
+	 */
+	public int[] getLeaps(int index)
+	{
+		return mLeaps[index];
+	}
+
+	/**
+	 * @param index The index of the origin Square
+	 * @return The mask of the Squares reached by leaping from that Square
+	 */
+	public long[] getLeapMask(int index)
+	{
+		return mLeapMasks[index];
+	}
+
+	/**
+	 * @param index The index of the origin Square
+	 * @return Every Square this Piece type could reach from that Square on an
+	 * empty Board
+	 */
+	public long[] getAttackMask(int index)
+	{
+		return mAttackMasks[index];
+	}
+
+	private static int[] buildRay(MovementDirection direction, int distance, int row, int col, int numRows, int numColumns,
+			boolean wrapsAround)
+	{
+		int rowStep = 0;
+		int colStep = 0;
+		switch (direction)
+		{
+		case NORTH:
+			rowStep = 1;
+			break;
+		case SOUTH:
+			rowStep = -1;
+			break;
+		case EAST:
+			colStep = 1;
+			break;
+		case WEST:
+			colStep = -1;
+			break;
+		case NORTHEAST:
+			rowStep = 1;
+			colStep = 1;
+			break;
+		case SOUTHEAST:
+			rowStep = -1;
+			colStep = 1;
+			break;
+		case NORTHWEST:
+			rowStep = 1;
+			colStep = -1;
+			break;
+		case SOUTHWEST:
+			rowStep = -1;
+			colStep = -1;
+			break;
+		}
+
+		// only the east and west rays go around the edge of a wraparound
+		// board; the diagonals always stop at the edge
+		boolean wraps = wrapsAround && rowStep == 0;
+
+		List<Integer> ray = Lists.newArrayList();
+		int r = row;
+		int c = col;
+		for (int steps = 0; distance == PieceMovements.UNLIMITED || steps < distance; steps++)
+		{
+			r += rowStep;
+			c += colStep;
+			if (wraps)
+				c = wrapColumn(c, numColumns);
+
+			if (r < 1 || r > numRows || c < 1 || c > numColumns)
+				break;
+			// a wrapping ray stops once it comes back around to its origin
+			if (r == row && c == col)
+				break;
+
+			ray.add((r - 1) * numColumns + (c - 1));
+		}
+		return toArray(ray);
+	}
+
+	private static int[][] leapOffsets(PieceMovements movements)
+	{
+		List<int[]> offsets = Lists.newArrayList();
+		for (BidirectionalMovement movement : movements.getBidirectionalMovements())
+		{
+			int rank = movement.getRowDistance();
+			int file = movement.getColumnDistance();
+
+			// the same eight "clock" positions Piece.genLegalDests used to
+			// compute by hand
+			offsets.add(new int[] { file, rank });
+			offsets.add(new int[] { rank, file });
+			offsets.add(new int[] { file, -rank });
+			offsets.add(new int[] { rank, -file });
+			offsets.add(new int[] { -file, -rank });
+			offsets.add(new int[] { -rank, -file });
+			offsets.add(new int[] { -file, rank });
+			offsets.add(new int[] { -rank, file });
+		}
+		return offsets.toArray(new int[offsets.size()][]);
+	}
+
+	private static int wrapColumn(int col, int numColumns)
+	{
+		return ((col - 1) % numColumns + numColumns) % numColumns + 1;
+	}
+
+	private static int[] toArray(List<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = list.get(i);
+		return array;
+	}
+
+	private final int[][][] mRays;
+	private final long[][][] mRayMasks;
+	private final int[][] mLeaps;
+	private final long[][] mLeapMasks;
+	private final long[][] mAttackMasks;
+}
@@ -71,6 +71,25 @@ public class GameBuilder implements Serializable
 	 * @throws IOException
 	 */
 	private static void buildClassic() throws IOException
+	{
+		classicBuilder().writeFile(new Rules(false), new Rules(true));
+	}
+
+	/**
+	 * Make a new game of classic chess in memory, without reading or writing
+	 * the variants directory.
+	 * 
+	 * @return The created Game object
+	 * @throws IOException
+	 */
+	public static Game newClassicGame() throws IOException
+	{
+		GameBuilder classic = classicBuilder();
+		return new Game(classic.mName, classic.mBoards, classic.mWhiteTeam, classic.mBlackTeam, new Rules(false), new Rules(true),
+				classic.mWhitePromotionMap, classic.mBlackPromotionMap);
+	}
+
+	private static GameBuilder classicBuilder() throws IOException
 	{
 		GameBuilder classic = new GameBuilder(Messages.getString("classic"));// Name is Classic chess //$NON-NLS-1$
 		classic.setBoards(new Board[] { new Board(8, 8, false) });
@@ -98,7 +117,7 @@ public class GameBuilder implements Serializable
 		classic.mBlackTeam.add(createKnight(true, b.getSquare(8, 7), b));
 		classic.mBlackTeam.add(createRook(true, b.getSquare(8, 8), b));
 
-		classic.writeFile(new Rules(false), new Rules(true));
+		return classic;
 	}
 
 	/**
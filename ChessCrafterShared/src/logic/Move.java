@@ -253,7 +253,7 @@ public class Move implements Serializable
 
 		if (board.getGame().isClassicChess())
 		{
-			if (origin.getPiece().getName().equals(Messages.getString("pawn")) && getCaptured() == null && origin.getCol() != getDest().getCol()) //$NON-NLS-1$
+			if (origin.getPiece().getType().isPawn() && getCaptured() == null && origin.getCol() != getDest().getCol())
 			{
 				setCaptured(board.getSquare(origin.getRow(), getDest().getCol()).getPiece());
 			}
@@ -275,13 +275,13 @@ public class Move implements Serializable
 		if (board.getGame().isClassicChess())
 		{
 			// Mark enpassant on the board
-			if (origin.getPiece().getName().equals(Messages.getString("pawn")) && Math.abs(origin.getRow() - getDest().getRow()) == 2) //$NON-NLS-1$
+			if (origin.getPiece().getType().isPawn() && Math.abs(origin.getRow() - getDest().getRow()) == 2)
 			{
 				board.setEnpassantCol(origin.getCol());
 			}
 
 			// Castling
-			if (origin.getPiece().getName().equals(Messages.getString("king")) && origin.getPiece().getMoveCount() == 0) //$NON-NLS-1$
+			if (origin.getPiece().getType().isKing() && origin.getPiece().getMoveCount() == 0)
 			{
 
 				Square rookOrigin;
@@ -471,7 +471,7 @@ public class Move implements Serializable
 	 */
 	public char pieceToChar(Piece p)
 	{
-		if (p.getName().equals(Messages.getString("knight"))) //$NON-NLS-1$
+		if (p.getType().isKnight())
 			return AlgebraicConverter.KNIGHT;
 		else
 			return p.getName().charAt(0);
@@ -607,7 +607,7 @@ public class Move implements Serializable
 		}
 		else
 		{
-			s = ((getPiece() != null && !(getPiece().getName().equals(Messages.getString("pawn")))) ? (pieceToChar(getPiece())) + "" : " ") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+			s = ((getPiece() != null && !getPiece().getType().isPawn()) ? (pieceToChar(getPiece())) + "" : " ") //$NON-NLS-1$ //$NON-NLS-2$
 					+ origin.toString(unique) + ((getCaptured() != null) ? "x" : "") //$NON-NLS-1$ //$NON-NLS-2$
 					+ getDest().toString(new boolean[] { false, false });
 
@@ -648,7 +648,7 @@ public class Move implements Serializable
 		if (board.getGame().isClassicChess())
 		{
 			// Castling
-			if (getPiece().getName().equals(Messages.getString("king")) && getPiece().getMoveCount() == 1) //$NON-NLS-1$
+			if (getPiece().getType().isKing() && getPiece().getMoveCount() == 1)
 			{
 				Square rookOrigin;
 				Square rookDest;
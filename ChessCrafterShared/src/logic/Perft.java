@@ -0,0 +1,204 @@
+package logic;
+
+import java.util.List;
+import java.util.Map;
+
+import models.Board;
+import models.Game;
+import models.MoveList;
+import models.PackedMove;
+import models.Square;
+import models.UndoRecord;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Perft.java
+ * 
+ * Counts the leaf nodes of the legal move tree to a fixed depth. The counts
+ * are compared against known values to catch move generator regressions, and
+ * the time taken is the simplest measure of move generator speed.
+ * 
+ * Each promotion type counts as its own move, so the counts for classic chess
+ * match the published reference values.
+ * 
+ * perft and divide only use the packed Moves of the Game, so they run without
+ * a play screen. perftWithMoves plays Move objects, which refresh the play
+ * screen, so it needs GuiUtility to hold a ChessCrafter.
+ */
+public final class Perft
+{
+	public Perft(Game game)
+	{
+		mGame = game;
+		mMoveLists = Lists.newArrayList();
+		mUndoRecords = Lists.newArrayList();
+	}
+
+	/**
+	 * Count the leaf nodes using Game.makeMove and Game.unmakeMove
+	 * 
+	 * @param depth The number of plies to search
+	 * @return The number of leaf nodes
+	 */
+	public long perft(int depth)
+	{
+		return perft(depth, 0, false);
+	}
+
+	/**
+	 * Count the leaf nodes using Move.execute and Move.undo, the way the play
+	 * screen makes Moves. This path refreshes the play screen after every
+	 * Move, so GuiUtility must have a ChessCrafter set.
+	 * 
+	 * @param depth The number of plies to search
+	 * @return The number of leaf nodes
+	 */
+	public long perftWithMoves(int depth)
+	{
+		return perft(depth, 0, true);
+	}
+
+	/**
+	 * Count the leaf nodes below each legal Move of the current position
+	 * 
+	 * @param depth The number of plies to search, including the first Move
+	 * @return The leaf node count for each Move, keyed by origin, destination
+	 * and promotion type
+	 */
+	public Map<String, Long> divide(int depth)
+	{
+		Map<String, Long> counts = Maps.newTreeMap();
+		MoveList moves = getMoveList(0);
+		int count = mGame.generateMoves(moves, false);
+		UndoRecord undo = getUndoRecord(0);
+		for (int i = 0; i < count; i++)
+		{
+			String key = describe(moves.get(i));
+			mGame.makeMove(moves.get(i), undo);
+			counts.put(key, perft(depth - 1, 1, false));
+			mGame.unmakeMove(undo);
+		}
+		return counts;
+	}
+
+	/**
+	 * Run perft from depth 1 up to the given depth and describe the node
+	 * counts and speed
+	 * 
+	 * @param maxDepth The deepest search to run
+	 * @param withMoves Whether to use Move.execute instead of Game.makeMove
+	 * @return One line per depth
+	 */
+	public String report(int maxDepth, boolean withMoves)
+	{
+		StringBuilder builder = new StringBuilder();
+		for (int depth = 1; depth <= maxDepth; depth++)
+		{
+			long start = System.nanoTime();
+			long nodes = withMoves ? perftWithMoves(depth) : perft(depth);
+			long elapsed = Math.max(1, System.nanoTime() - start);
+
+			builder.append(String.format("depth %d: %d nodes in %d ms (%d nodes/s)%n", depth, nodes, elapsed / 1000000, //$NON-NLS-1$
+					nodes * 1000000000L / elapsed));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Print a perft report for classic chess. The first argument is the
+	 * deepest search to run, and "moves" as the second argument uses
+	 * Move.execute instead of Game.makeMove.
+	 * 
+	 * @param args The command line arguments
+	 * @throws Exception If the classic Game couldn't be built
+	 */
+	public static void main(String[] args) throws Exception
+	{
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		boolean withMoves = args.length > 1 && args[1].equals("moves"); //$NON-NLS-1$
+
+		System.out.print(new Perft(GameBuilder.newClassicGame()).report(maxDepth, withMoves));
+	}
+
+	private long perft(int depth, int ply, boolean withMoves)
+	{
+		if (depth == 0)
+			return 1;
+
+		MoveList moves = getMoveList(ply);
+		int count = mGame.generateMoves(moves, false);
+		if (depth == 1)
+			return count;
+
+		long nodes = 0;
+		if (withMoves)
+		{
+			for (int i = 0; i < count; i++)
+			{
+				try
+				{
+					Move move = mGame.toMove(moves.get(i));
+					move.execute();
+					nodes += perft(depth - 1, ply + 1, true);
+					move.undo();
+				}
+				catch (Exception e)
+				{
+					throw new IllegalStateException(e);
+				}
+			}
+		}
+		else
+		{
+			UndoRecord undo = getUndoRecord(ply);
+			for (int i = 0; i < count; i++)
+			{
+				mGame.makeMove(moves.get(i), undo);
+				nodes += perft(depth - 1, ply + 1, false);
+				mGame.unmakeMove(undo);
+			}
+		}
+		return nodes;
+	}
+
+	private MoveList getMoveList(int ply)
+	{
+		while (mMoveLists.size() <= ply)
+			mMoveLists.add(new MoveList());
+		return mMoveLists.get(ply);
+	}
+
+	/**
+	 * Name a packed Move by its origin, destination and promotion type,
+	 * straight from the Boards, so divide doesn't need the play screen the way
+	 * Game.toMove does
+	 */
+	private String describe(int move)
+	{
+		Board[] boards = mGame.getBoards();
+		Square origin = boards[PackedMove.getOriginBoard(move)].getSquare(PackedMove.getOrigin(move));
+		Square dest = boards[PackedMove.getDestBoard(move)].getSquare(PackedMove.getDest(move));
+		int promotion = PackedMove.getPromotion(move);
+		String promo = promotion < 0 ? "" : "=" + origin.getPiece().getPromotesTo().get(promotion); //$NON-NLS-1$ //$NON-NLS-2$
+		return squareName(origin) + squareName(dest) + promo;
+	}
+
+	private static String squareName(Square square)
+	{
+		// Square.toString only knows the files of an 8x8 board
+		return (char) ('a' + square.getCol() - 1) + Integer.toString(square.getRow());
+	}
+
+	private UndoRecord getUndoRecord(int ply)
+	{
+		while (mUndoRecords.size() <= ply)
+			mUndoRecords.add(new UndoRecord());
+		return mUndoRecords.get(ply);
+	}
+
+	private final Game mGame;
+	private final List<MoveList> mMoveLists;
+	private final List<UndoRecord> mUndoRecords;
+}
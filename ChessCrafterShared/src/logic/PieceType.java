@@ -0,0 +1,169 @@
+package logic;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+import logic.PieceMovements.MovementDirection;
+
+import com.google.common.collect.Maps;
+
+/**
+ * PieceType.java
+ * 
+ * One kind of Piece: its name, how it moves and whether it jumps. Types are
+ * interned, so every Piece of a kind shares one PieceType, and each type gets
+ * a small id the first time it is seen. Whether a type is one of the stock
+ * types the rules treat specially is worked out once here, so move generation
+ * can branch on a flag instead of looking up the localized name and comparing
+ * Strings.
+ * 
+ * The movement geometry of a type is kept here too, one AttackTable per Board
+ * shape the type has been used on.
+ */
+public final class PieceType
+{
+	private PieceType(int id, String name, PieceMovements movements, boolean isLeaper)
+	{
+		mId = id;
+		mName = name;
+		mMovements = movements;
+		mIsLeaper = isLeaper;
+		mIsPawn = name.equals(Messages.getString("pawn")); //$NON-NLS-1$
+		mIsKing = name.equals(Messages.getString("king")); //$NON-NLS-1$
+		mIsKnight = name.equals(Messages.getString("knight")); //$NON-NLS-1$
+		mTables = Maps.newConcurrentMap();
+	}
+
+	/**
+	 * Get the type for a combination of name and movements, creating it the
+	 * first time it is seen
+	 * 
+	 * @param name The name of the Piece type
+	 * @param movements The movements of the Piece type
+	 * @param isLeaper If Pieces of the type can jump
+	 * @return The PieceType shared by every such Piece
+	 */
+	public static PieceType getType(String name, PieceMovements movements, boolean isLeaper)
+	{
+		String key = typeKey(name, movements, isLeaper);
+		synchronized (sTypes)
+		{
+			PieceType type = sTypes.get(key);
+			if (type == null)
+			{
+				type = new PieceType(sTypes.size(), name, movements, isLeaper);
+				sTypes.put(key, type);
+			}
+			return type;
+		}
+	}
+
+	/**
+	 * @return The number of types seen so far, which is one more than the
+	 * largest id
+	 */
+	public static int getTypeCount()
+	{
+		synchronized (sTypes)
+		{
+			return sTypes.size();
+		}
+	}
+
+	/**
+	 * @return The id of this type, from 0 up to getTypeCount
+	 */
+	public int getId()
+	{
+		return mId;
+	}
+
+	public String getName()
+	{
+		return mName;
+	}
+
+	public PieceMovements getMovements()
+	{
+		return mMovements;
+	}
+
+	public boolean isLeaper()
+	{
+		return mIsLeaper;
+	}
+
+	public boolean isPawn()
+	{
+		return mIsPawn;
+	}
+
+	public boolean isKing()
+	{
+		return mIsKing;
+	}
+
+	public boolean isKnight()
+	{
+		return mIsKnight;
+	}
+
+	/**
+	 * Get the movement geometry of this type on one Board shape, building it
+	 * the first time the shape is seen
+	 * 
+	 * @param numRows The number of rows on the Board
+	 * @param numColumns The number of columns on the Board
+	 * @param wrapsAround Whether the Board wraps around east to west
+	 * @return The AttackTable for this type on that Board
+	 */
+	public AttackTable getAttackTable(int numRows, int numColumns, boolean wrapsAround)
+	{
+		Long shape = ((long) numRows << 32) | ((long) numColumns << 1) | (wrapsAround ? 1 : 0);
+		AttackTable table = mTables.get(shape);
+		if (table == null)
+		{
+			table = new AttackTable(mMovements, numRows, numColumns, wrapsAround);
+			AttackTable existing = mTables.putIfAbsent(shape, table);
+			if (existing != null)
+				table = existing;
+		}
+		return table;
+	}
+
+	@Override
+	public String toString()
+	{
+		return mName;
+	}
+
+	private static String typeKey(String name, PieceMovements movements, boolean isLeaper)
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(name).append(isLeaper ? "|j|" : "|"); //$NON-NLS-1$ //$NON-NLS-2$
+		for (MovementDirection direction : AttackTable.DIRECTIONS)
+			builder.append(direction).append(movements.getDistance(direction)).append(',');
+
+		// the movement Set has no stable iteration order
+		String[] leaps = new String[movements.getBidirectionalMovements().size()];
+		int i = 0;
+		for (BidirectionalMovement movement : movements.getBidirectionalMovements())
+			leaps[i++] = movement.toString();
+		Arrays.sort(leaps);
+		builder.append(Arrays.toString(leaps));
+
+		return builder.toString();
+	}
+
+	private static final Map<String, PieceType> sTypes = Maps.newHashMap();
+
+	private final int mId;
+	private final String mName;
+	private final PieceMovements mMovements;
+	private final boolean mIsLeaper;
+	private final boolean mIsPawn;
+	private final boolean mIsKing;
+	private final boolean mIsKnight;
+	private final ConcurrentMap<Long, AttackTable> mTables;
+}
@@ -0,0 +1,131 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * AttackMap.java
+ * 
+ * The Squares one team threatens and guards, with one mask per Board of the
+ * Game. It is built in a single pass over the team's legal destinations and
+ * guard Squares, after which Game.isThreatened and Game.isGuarded are a bit
+ * lookup instead of a walk over every Piece of the team.
+ * 
+ * A Square counts as threatened exactly when Piece.isLegalAttack would say so
+ * for some Piece of the team, and as guarded when Piece.isGuarding would.
+ */
+final class AttackMap
+{
+	/**
+	 * @param boards The Boards of the Game, in order
+	 */
+	AttackMap(Board[] boards)
+	{
+		mBoards = boards;
+		mThreats = new long[boards.length][];
+		mGuards = new long[boards.length][];
+		for (int i = 0; i < boards.length; i++)
+		{
+			mThreats[i] = boards[i].getBitboard().newMask();
+			mGuards[i] = boards[i].getBitboard().newMask();
+		}
+	}
+
+	/**
+	 * Fill the masks from the current destinations of a team
+	 * 
+	 * @param team Every Piece of the team, captured or not
+	 */
+	void build(List<Piece> team)
+	{
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			Arrays.fill(mThreats[i], 0L);
+			Arrays.fill(mGuards[i], 0L);
+		}
+
+		for (int i = 0; i < team.size(); i++)
+		{
+			Piece piece = team.get(i);
+			if (piece.isCaptured())
+				continue;
+
+			List<Square> legalDests = piece.getLegalDests();
+			if (piece.getType().isPawn())
+			{
+				// a pawn doesn't threaten the Squares straight ahead of it,
+				// but always threatens the two diagonals in front of it
+				Square origin = piece.getSquare();
+				for (int j = 0; j < legalDests.size(); j++)
+				{
+					if (legalDests.get(j).getCol() != origin.getCol())
+						set(mThreats, legalDests.get(j));
+				}
+				setPawnDiagonals(origin, piece.isBlack() ? -1 : 1);
+			}
+			else
+			{
+				for (int j = 0; j < legalDests.size(); j++)
+					set(mThreats, legalDests.get(j));
+			}
+
+			List<Square> guardSquares = piece.getGuardSquares();
+			for (int j = 0; j < guardSquares.size(); j++)
+				set(mGuards, guardSquares.get(j));
+		}
+	}
+
+	boolean isThreatened(Square square)
+	{
+		return isSet(mThreats, square);
+	}
+
+	boolean isGuarded(Square square)
+	{
+		return isSet(mGuards, square);
+	}
+
+	private void setPawnDiagonals(Square origin, int direction)
+	{
+		int row = origin.getRow() + direction;
+		// the diagonals are matched by row and column alone, so they are
+		// threatened on every Board
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			Board board = mBoards[i];
+			if (!board.isRowValid(row))
+				continue;
+			if (board.isColValid(origin.getCol() - 1))
+				Bitboard.set(mThreats[i], board.getIndex(row, origin.getCol() - 1));
+			if (board.isColValid(origin.getCol() + 1))
+				Bitboard.set(mThreats[i], board.getIndex(row, origin.getCol() + 1));
+		}
+	}
+
+	private void set(long[][] masks, Square square)
+	{
+		int board = indexOf(square.getBoard());
+		if (board >= 0)
+			Bitboard.set(masks[board], square.getIndex());
+	}
+
+	private boolean isSet(long[][] masks, Square square)
+	{
+		int board = indexOf(square.getBoard());
+		return board >= 0 && Bitboard.isSet(masks[board], square.getIndex());
+	}
+
+	private int indexOf(Board board)
+	{
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			if (mBoards[i] == board)
+				return i;
+		}
+		return -1;
+	}
+
+	private final Board[] mBoards;
+	private final long[][] mThreats;
+	private final long[][] mGuards;
+}
@@ -0,0 +1,432 @@
+package models;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import logic.PieceType;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Bitboard.java
+ * 
+ * Occupancy masks for a single Board, kept in sync with the Pieces sitting on
+ * its Squares. Each mask holds one bit per Square, numbered row by row from
+ * the bottom left corner of the Board. Boards of up to 64 Squares (8x8) fit in
+ * a single long; larger custom boards use as many longs as they need.
+ */
+public class Bitboard
+{
+	public static final int NO_TYPE = -1;
+
+	public Bitboard(int numRows, int numColumns)
+	{
+		mNumSquares = numRows * numColumns;
+		mNumWords = wordsFor(mNumSquares);
+
+		mOccupied = new long[mNumWords];
+		mWhite = new long[mNumWords];
+		mBlack = new long[mNumWords];
+		mUninhabitable = new long[mNumWords];
+		mTouched = new long[mNumWords];
+		mTypeMasks = new long[0][];
+		mTypeKeys = new long[0];
+		mTypeCounts = new int[0];
+		mTeamCounts = new int[2];
+
+		mTypeAt = new int[mNumSquares];
+		Arrays.fill(mTypeAt, NO_TYPE);
+
+		mTypeIndices = Maps.newHashMap();
+		mTypeIds = new int[0];
+
+		// nothing has been generated against a new Board yet
+		for (int i = 0; i < mNumSquares; i++)
+			set(mTouched, i);
+	}
+
+	/**
+	 * Get the number of longs needed to hold one bit per Square
+	 * 
+	 * @param numSquares The number of Squares on the Board
+	 * @return The number of longs needed for a mask
+	 */
+	public static int wordsFor(int numSquares)
+	{
+		return (numSquares + 63) >>> 6;
+	}
+
+	public static boolean isSet(long[] mask, int index)
+	{
+		return (mask[index >>> 6] & (1L << index)) != 0;
+	}
+
+	public static void set(long[] mask, int index)
+	{
+		mask[index >>> 6] |= (1L << index);
+	}
+
+	public static void clear(long[] mask, int index)
+	{
+		mask[index >>> 6] &= ~(1L << index);
+	}
+
+	/**
+	 * Check if two masks have any Square in common
+	 * 
+	 * @param first The first mask
+	 * @param second The second mask
+	 * @return If the masks intersect
+	 */
+	public static boolean intersects(long[] first, long[] second)
+	{
+		for (int i = 0; i < first.length; i++)
+		{
+			if ((first[i] & second[i]) != 0)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Check if a mask has no Squares set
+	 * 
+	 * @param mask The mask to check
+	 * @return If the mask is empty
+	 */
+	public static boolean isEmpty(long[] mask)
+	{
+		for (long word : mask)
+		{
+			if (word != 0)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Count the Squares set in a mask
+	 * 
+	 * @param mask The mask to count
+	 * @return The number of Squares set
+	 */
+	public static int cardinality(long[] mask)
+	{
+		int count = 0;
+		for (long word : mask)
+			count += Long.bitCount(word);
+		return count;
+	}
+
+	/**
+	 * Count the Squares set in both masks
+	 * 
+	 * @param first The first mask
+	 * @param second The second mask
+	 * @return The number of Squares set in both masks
+	 */
+	public static int cardinality(long[] first, long[] second)
+	{
+		int count = 0;
+		for (int i = 0; i < first.length; i++)
+			count += Long.bitCount(first[i] & second[i]);
+		return count;
+	}
+
+	/**
+	 * Find the next Square set in a mask
+	 * 
+	 * @param mask The mask to search
+	 * @param fromIndex The first index to consider
+	 * @return The index of the next set Square, or -1 if there is none
+	 */
+	public static int nextSetBit(long[] mask, int fromIndex)
+	{
+		int word = fromIndex >>> 6;
+		if (word >= mask.length)
+			return -1;
+
+		long bits = mask[word] & (-1L << fromIndex);
+		while (true)
+		{
+			if (bits != 0)
+				return (word << 6) + Long.numberOfTrailingZeros(bits);
+			if (++word == mask.length)
+				return -1;
+			bits = mask[word];
+		}
+	}
+
+	public int getNumSquares()
+	{
+		return mNumSquares;
+	}
+
+	public int getNumWords()
+	{
+		return mNumWords;
+	}
+
+	/**
+	 * @return A new, empty mask sized for this Board
+	 */
+	public long[] newMask()
+	{
+		return new long[mNumWords];
+	}
+
+	public long[] getOccupied()
+	{
+		return mOccupied;
+	}
+
+	public long[] getTeam(boolean isBlack)
+	{
+		return isBlack ? mBlack : mWhite;
+	}
+
+	public long[] getUninhabitable()
+	{
+		return mUninhabitable;
+	}
+
+	/**
+	 * @return The mask of every Square whose contents changed since the last
+	 * call to clearTouched
+	 */
+	public long[] getTouched()
+	{
+		return mTouched;
+	}
+
+	/**
+	 * Mark a Square as changed, so anything derived from it is recomputed
+	 * 
+	 * @param index The index of the Square
+	 */
+	public void touch(int index)
+	{
+		set(mTouched, index);
+	}
+
+	public void clearTouched()
+	{
+		Arrays.fill(mTouched, 0L);
+	}
+
+	/**
+	 * Get the mask of every Square holding a Piece of the given type
+	 * 
+	 * @param name The name of the Piece type
+	 * @return The mask for that type, or null if no such Piece has been seen
+	 */
+	public long[] getTypeMask(String name)
+	{
+		Integer type = mTypeIndices.get(name);
+		return type == null ? null : mTypeMasks[type];
+	}
+
+	/**
+	 * @return The XOR of the Zobrist keys of every Piece on the Board, kept up
+	 * to date as Pieces come and go
+	 */
+	public long getZobristKey()
+	{
+		return mZobristKey;
+	}
+
+	public boolean isOccupied(int index)
+	{
+		return isSet(mOccupied, index);
+	}
+
+	public boolean isOccupiedBy(int index, boolean isBlack)
+	{
+		return isSet(isBlack ? mBlack : mWhite, index);
+	}
+
+	public boolean isHabitable(int index)
+	{
+		return !isSet(mUninhabitable, index);
+	}
+
+	/**
+	 * Count the Pieces of one team
+	 * 
+	 * @param isBlack The team to count
+	 * @return The number of that team's Pieces on this Board
+	 */
+	public int count(boolean isBlack)
+	{
+		return mTeamCounts[teamIndex(isBlack)];
+	}
+
+	/**
+	 * Count the Pieces of one type on one team
+	 * 
+	 * @param name The name of the Piece type
+	 * @param isBlack The team to count
+	 * @return The number of such Pieces on this Board
+	 */
+	public int count(String name, boolean isBlack)
+	{
+		Integer type = mTypeIndices.get(name);
+		return type == null ? 0 : mTypeCounts[2 * type + teamIndex(isBlack)];
+	}
+
+	/**
+	 * @return The SquareWeights whose total this Bitboard keeps, or null
+	 */
+	public SquareWeights getWeights()
+	{
+		return mWeights;
+	}
+
+	/**
+	 * @return The total of the SquareWeights over the white Pieces on the
+	 * Board, less the total over the black Pieces
+	 */
+	public int getWeightedScore()
+	{
+		return mWeightedScore;
+	}
+
+	/**
+	 * Start keeping the total of new SquareWeights. Board.setSquareWeights
+	 * weighs the Pieces already on the Board.
+	 */
+	void setWeights(SquareWeights weights)
+	{
+		mWeights = weights;
+		mWeightAt = new int[mNumSquares];
+		mWeightedScore = 0;
+	}
+
+	/**
+	 * Replace the weight of whatever was on a Square with that of the Piece
+	 * now on it
+	 */
+	void weigh(int index, Piece piece)
+	{
+		int weight = 0;
+		if (piece != null)
+		{
+			weight = mWeights.getWeight(piece.getType(), piece.isBlack(), index);
+			if (piece.isBlack())
+				weight = -weight;
+		}
+		mWeightedScore += weight - mWeightAt[index];
+		mWeightAt[index] = weight;
+	}
+
+	/**
+	 * Record the Piece now occupying a Square
+	 * 
+	 * @param index The index of the Square
+	 * @param piece The Piece now on the Square, or null if it was emptied
+	 */
+	public void update(int index, Piece piece)
+	{
+		int word = index >>> 6;
+		long bit = 1L << index;
+
+		if (mWeights != null)
+			weigh(index, piece);
+
+		mTouched[word] |= bit;
+		if (mTypeAt[index] != NO_TYPE)
+		{
+			int team = teamIndex((mBlack[word] & bit) != 0);
+			mZobristKey ^= Zobrist.pieceKey(mTypeKeys[mTypeAt[index]], team == 1, index);
+			mTypeMasks[mTypeAt[index]][word] &= ~bit;
+			mTypeCounts[2 * mTypeAt[index] + team]--;
+			mTeamCounts[team]--;
+			mTypeAt[index] = NO_TYPE;
+		}
+		mOccupied[word] &= ~bit;
+		mWhite[word] &= ~bit;
+		mBlack[word] &= ~bit;
+
+		if (piece == null)
+			return;
+
+		int type = typeIndex(piece.getType());
+		mZobristKey ^= Zobrist.pieceKey(mTypeKeys[type], piece.isBlack(), index);
+		mTypeAt[index] = type;
+		mTypeMasks[type][word] |= bit;
+		mTypeCounts[2 * type + teamIndex(piece.isBlack())]++;
+		mTeamCounts[teamIndex(piece.isBlack())]++;
+		mOccupied[word] |= bit;
+		if (piece.isBlack())
+			mBlack[word] |= bit;
+		else
+			mWhite[word] |= bit;
+	}
+
+	public void setHabitable(int index, boolean isHabitable)
+	{
+		set(mTouched, index);
+		if (isHabitable)
+			clear(mUninhabitable, index);
+		else
+			set(mUninhabitable, index);
+	}
+
+	/**
+	 * Map an interned PieceType to its index here. Different PieceTypes can
+	 * share a name, and so an index, so the name is only looked up the first
+	 * time each PieceType is seen.
+	 */
+	private int typeIndex(PieceType pieceType)
+	{
+		int id = pieceType.getId();
+		if (id >= mTypeIds.length)
+			mTypeIds = Arrays.copyOf(mTypeIds, Math.max(id + 1, mTypeIds.length * 2));
+		// entries are offset by one so a new array means nothing is known
+		if (mTypeIds[id] == 0)
+			mTypeIds[id] = typeIndex(pieceType.getName()) + 1;
+		return mTypeIds[id] - 1;
+	}
+
+	private int typeIndex(String name)
+	{
+		Integer type = mTypeIndices.get(name);
+		if (type == null)
+		{
+			type = mTypeMasks.length;
+			mTypeIndices.put(name, type);
+			mTypeMasks = Arrays.copyOf(mTypeMasks, type + 1);
+			mTypeMasks[type] = new long[mNumWords];
+			mTypeKeys = Arrays.copyOf(mTypeKeys, type + 1);
+			mTypeKeys[type] = Zobrist.typeKey(name);
+			mTypeCounts = Arrays.copyOf(mTypeCounts, 2 * (type + 1));
+		}
+		return type;
+	}
+
+	private static int teamIndex(boolean isBlack)
+	{
+		return isBlack ? 1 : 0;
+	}
+
+	private final int mNumSquares;
+	private final int mNumWords;
+	private final long[] mOccupied;
+	private final long[] mWhite;
+	private final long[] mBlack;
+	private final long[] mUninhabitable;
+	private final long[] mTouched;
+	private final int[] mTypeAt;
+	private final Map<String, Integer> mTypeIndices;
+
+	private int[] mTypeIds;
+	private long[][] mTypeMasks;
+	private long[] mTypeKeys;
+	// per type, the white then the black count
+	private int[] mTypeCounts;
+	private final int[] mTeamCounts;
+	private long mZobristKey;
+	private SquareWeights mWeights;
+	private int[] mWeightAt;
+	private int mWeightedScore;
+}
@@ -1,15 +1,25 @@
 package models;
 
 import java.io.Serializable;
+import java.util.Arrays;
 import java.util.List;
 
-import logic.Messages;
 import logic.Move;
 
 public class Board implements Serializable
 {
 	public static final int NO_ENPASSANT = 0;
 
+	/**
+	 * The index step returns for a step off the Board
+	 */
+	public static final int OFF_BOARD = -1;
+
+	/**
+	 * The most rows or columns step can move in one go
+	 */
+	public static final int MAILBOX_PADDING = 2;
+
 	public Board(int numRows, int numColumns, boolean wrapsAround)
 	{
 		setMaxRow(numRows);
@@ -24,6 +34,37 @@ public class Board implements Serializable
 			for (column = 0; column < numColumns; column++)
 				mSquares[row][column] = new Square((row + 1), (column + 1));
 		}
+
+		initBitboard();
+	}
+
+	/**
+	 * Get the occupancy masks for this Board. The Bitboard is not serialized,
+	 * so it is rebuilt from the Squares the first time it is needed after a
+	 * Board is loaded.
+	 * 
+	 * @return The Bitboard mirroring this Board
+	 */
+	public Bitboard getBitboard()
+	{
+		if (mBitboard == null)
+			initBitboard();
+
+		return mBitboard;
+	}
+
+	/**
+	 * Have the Bitboard keep the total of some SquareWeights over the Pieces
+	 * on this Board from now on, starting with the Pieces on it now
+	 * 
+	 * @param weights The SquareWeights to total
+	 */
+	public void setSquareWeights(SquareWeights weights)
+	{
+		Bitboard bitboard = getBitboard();
+		bitboard.setWeights(weights);
+		for (int index = 0; index < getNumSquares(); index++)
+			bitboard.weigh(index, getSquare(index).getPiece());
 	}
 
 	public int getEnpassantCol()
@@ -106,6 +147,79 @@ public class Board implements Serializable
 		return mover.getSquare();
 	}
 
+	/**
+	 * Get the index of a Square in this Board's Bitboard masks
+	 * 
+	 * @param row The row of the Square
+	 * @param col The column of the Square
+	 * @return The index of the Square
+	 */
+	public int getIndex(int row, int col)
+	{
+		return (row - 1) * mMaxColumn + (col - 1);
+	}
+
+	/**
+	 * Get a Square by its index in this Board's Bitboard masks
+	 * 
+	 * @param index The index of the Square
+	 * @return The Square at that index
+	 */
+	public Square getSquare(int index)
+	{
+		if (mMailbox == null)
+			initMailbox();
+
+		return mIndexedSquares[index];
+	}
+
+	/**
+	 * @return The number of Squares on this Board, one more than the largest
+	 * Square index
+	 */
+	public int getNumSquares()
+	{
+		return mMaxRow * mMaxColumn;
+	}
+
+	/**
+	 * Step from one Square to another a few rows and columns away. Only east
+	 * and west steps go around a wraparound Board, the same as the rays of an
+	 * AttackTable.
+	 * 
+	 * @param index The index of the Square to step from
+	 * @param rowStep The rows to step, at most MAILBOX_PADDING either way
+	 * @param colStep The columns to step, at most MAILBOX_PADDING either way
+	 * @return The index of the Square reached, or OFF_BOARD
+	 */
+	public int step(int index, int rowStep, int colStep)
+	{
+		return step(index, rowStep, colStep, rowStep == 0);
+	}
+
+	/**
+	 * Step from one Square to another a few rows and columns away. The Square
+	 * indices are laid out in a mailbox with a border of OFF_BOARD around it,
+	 * so leaving the Board is found with a single compare instead of a row
+	 * and a column check. On a wraparound Board the border columns can hold
+	 * the Squares on the other side instead.
+	 * 
+	 * @param index The index of the Square to step from
+	 * @param rowStep The rows to step, at most MAILBOX_PADDING either way
+	 * @param colStep The columns to step, at most MAILBOX_PADDING either way
+	 * @param wrapsAround Whether a step off the east or west edge of a
+	 * wraparound Board comes back on the other side
+	 * @return The index of the Square reached, or OFF_BOARD
+	 */
+	public int step(int index, int rowStep, int colStep, boolean wrapsAround)
+	{
+		if (mMailbox == null)
+			initMailbox();
+
+		int[] mailbox = wrapsAround ? mWrappedMailbox : mMailbox;
+		return mailbox[mMailboxPositions[index] + rowStep * mMailboxWidth + colStep];
+	}
+
 	public Square getSquare(int row, int col)
 	{
 		// Use x-1 and y-1 so that we can maintain the illusion of counting from
@@ -130,14 +244,19 @@ public class Board implements Serializable
 		List<Square> dests = null;
 		Piece piece = null;
 
-		if (p.getName().equals(Messages.getString("Board.king"))) //$NON-NLS-1$
+		if (p.getType().isKing())
+			return unique;
+
+		// if no other Piece of this type is left on the team, there is nothing
+		// to disambiguate
+		if (getGame().getBoards().length == 1 && getBitboard().count(p.getName(), p.isBlack()) <= 1)
 			return unique;
 
 		for (int i = 0; i < movingTeam.size(); i++)
 		{
 			piece = movingTeam.get(i);
 
-			if (piece != p && !piece.isCaptured() && piece.getClass() == p.getClass())
+			if (piece != p && !piece.isCaptured() && piece.getName().equals(p.getName()))
 			{
 				dests = piece.getLegalDests();
 
@@ -227,6 +346,69 @@ public class Board implements Serializable
 		return toReturn;
 	}
 
+	private void initBitboard()
+	{
+		Bitboard bitboard = new Bitboard(mMaxRow, mMaxColumn);
+		for (int row = 0, column = 0; row < mMaxRow; row++)
+		{
+			for (column = 0; column < mMaxColumn; column++)
+			{
+				Square square = mSquares[row][column];
+				int index = row * mMaxColumn + column;
+				bitboard.update(index, square.getPiece());
+				bitboard.setHabitable(index, square.isHabitable());
+			}
+		}
+
+		// only attach the Squares once the masks are complete, so they never
+		// report changes to a half built Bitboard
+		mBitboard = bitboard;
+		for (int row = 0, column = 0; row < mMaxRow; row++)
+		{
+			for (column = 0; column < mMaxColumn; column++)
+				mSquares[row][column].attach(this, row * mMaxColumn + column);
+		}
+	}
+
+	/**
+	 * Build the mailboxes step uses, and the Squares by index. None of it is
+	 * serialized, so it is built again the first time it is needed after a
+	 * Board is loaded.
+	 */
+	private void initMailbox()
+	{
+		int width = mMaxColumn + 2 * MAILBOX_PADDING;
+		int[] mailbox = new int[width * (mMaxRow + 2 * MAILBOX_PADDING)];
+		int[] wrappedMailbox = mWrapsAround ? new int[mailbox.length] : mailbox;
+		int[] positions = new int[getNumSquares()];
+		Square[] squares = new Square[getNumSquares()];
+		Arrays.fill(mailbox, OFF_BOARD);
+		Arrays.fill(wrappedMailbox, OFF_BOARD);
+
+		for (int row = 0; row < mMaxRow; row++)
+		{
+			for (int column = -MAILBOX_PADDING; column < mMaxColumn + MAILBOX_PADDING; column++)
+			{
+				int position = (row + MAILBOX_PADDING) * width + column + MAILBOX_PADDING;
+				int index = row * mMaxColumn + (column % mMaxColumn + mMaxColumn) % mMaxColumn;
+				if (column >= 0 && column < mMaxColumn)
+				{
+					mailbox[position] = index;
+					positions[index] = position;
+					squares[index] = mSquares[row][column];
+				}
+				if (mWrapsAround)
+					wrappedMailbox[position] = index;
+			}
+		}
+
+		mMailboxWidth = width;
+		mMailboxPositions = positions;
+		mIndexedSquares = squares;
+		mWrappedMailbox = wrappedMailbox;
+		mMailbox = mailbox;
+	}
+
 	private static final long serialVersionUID = -3660560968400318452L;
 
 	// TODO: this shouldn't be public
@@ -236,4 +418,10 @@ public class Board implements Serializable
 	private int mMaxColumn;
 	private int mEnpassantColumn = NO_ENPASSANT;
 	private boolean mWrapsAround;
+	private transient Bitboard mBitboard;
+	private transient int[] mMailbox;
+	private transient int[] mWrappedMailbox;
+	private transient int[] mMailboxPositions;
+	private transient int mMailboxWidth;
+	private transient Square[] mIndexedSquares;
 }
@@ -0,0 +1,352 @@
+package models;
+
+import java.util.Arrays;
+import java.util.List;
+
+import logic.AttackTable;
+
+import com.google.common.collect.Lists;
+
+/**
+ * CheckMask.java
+ * 
+ * Pins and check evasion for the team to move, worked out from its objective
+ * piece outwards. One walk along each of the eight rays from the objective
+ * piece finds every friendly Piece pinned against it, and every rider giving
+ * check along a ray together with the Squares between the two. Pinned Pieces
+ * keep only the destinations on their pin ray. When the objective piece is in
+ * check from a single Piece, every other Piece keeps only the destinations
+ * that capture the checker or block its ray.
+ * 
+ * Riders attack along the rays of the Board they generate their destinations
+ * on, which for some variants is not the Board they stand on, so the Pieces
+ * on every Board that maps onto the objective piece's Board are looked at.
+ */
+final class CheckMask
+{
+	/**
+	 * Find the Pieces pinned against an objective piece, and cut their
+	 * destinations down to their pin rays
+	 * 
+	 * @param objectivePiece The objective piece of the team to move
+	 * @param rules The Rules of the team to move
+	 */
+	void cropPins(Piece objectivePiece, Rules rules)
+	{
+		findPins(objectivePiece, rules);
+		for (int d = 0; d < mPinned.length; d++)
+		{
+			if (mPinned[d] != null)
+				mPinned[d].setPinned(mPinners[d], mPinRays.get(d));
+		}
+	}
+
+	/**
+	 * Cut the destinations of one Piece down to its pin ray, if findPins found
+	 * it pinned
+	 * 
+	 * @param piece A Piece of the team to move
+	 */
+	void cropPin(Piece piece)
+	{
+		for (int d = 0; d < mPinned.length; d++)
+		{
+			if (mPinned[d] == piece)
+				piece.setPinned(mPinners[d], mPinRays.get(d));
+		}
+	}
+
+	/**
+	 * Find the Pieces pinned against an objective piece, and the riders giving
+	 * it check, without touching any destinations. Only the positions of the
+	 * Pieces are looked at, so the team to move needn't be generated yet.
+	 * 
+	 * @param objectivePiece The objective piece of the team to move
+	 * @param rules The Rules of the team to move
+	 */
+	void findPins(Piece objectivePiece, Rules rules)
+	{
+		Arrays.fill(mRayCheckers, null);
+		Arrays.fill(mPinned, null);
+		mBoard = objectivePiece.getBoard();
+		if (objectivePiece.isCaptured() || objectivePiece.getSquare() == null)
+			return;
+
+		Game game = mBoard.getGame();
+		Bitboard bitboard = mBoard.getBitboard();
+		if (mLine == null || mLine.length < bitboard.getNumSquares())
+			mLine = new int[bitboard.getNumSquares()];
+
+		mAttackingBoards.clear();
+		for (Board board : game.getBoards())
+		{
+			if (rules.getBoard(board) == mBoard)
+				mAttackingBoards.add(board);
+		}
+
+		boolean isBlack = objectivePiece.isBlack();
+		int origin = objectivePiece.getSquare().getIndex();
+
+		for (int d = 0; d < ROW_STEPS.length; d++)
+		{
+			int length = 0;
+			Piece pinned = null;
+			int index = origin;
+			while (true)
+			{
+				// the east and west rays of a wraparound Board come back
+				// around to the objective piece
+				index = mBoard.step(index, ROW_STEPS[d], COL_STEPS[d]);
+				if (index == Board.OFF_BOARD || index == origin)
+					break;
+
+				Piece attacker = findRider(index, OPPOSITE[d], origin, isBlack);
+				if (attacker != null)
+				{
+					if (pinned == null)
+						recordChecker(d, attacker, length);
+					else
+						recordPin(d, pinned, attacker, length);
+					break;
+				}
+
+				mLine[length++] = index;
+				if (!bitboard.isOccupied(index))
+					continue;
+				// an enemy blocks the ray, and so do two friends
+				if (!bitboard.isOccupiedBy(index, isBlack) || pinned != null)
+					break;
+				pinned = mBoard.getSquare(index).getPiece();
+			}
+		}
+	}
+
+	/**
+	 * Take away an en passant capture that would leave the objective piece in
+	 * check. Taking en passant empties two Squares at once, the capturing
+	 * pawn's and the captured pawn's, so a rider behind both on the same row
+	 * isn't caught by cropPins, which only lets one Piece stand in between.
+	 * Must be called after cropPins for the same position.
+	 * 
+	 * @param objectivePiece The objective piece of the team to move
+	 * @param team The team to move
+	 */
+	void cropEnpassant(Piece objectivePiece, List<Piece> team)
+	{
+		for (int i = 0; i < team.size(); i++)
+			cropEnpassant(objectivePiece, team.get(i));
+	}
+
+	/**
+	 * Take away the en passant capture of one Piece if it would leave the
+	 * objective piece in check. Must be called after findPins for the same
+	 * position.
+	 * 
+	 * @param objectivePiece The objective piece of the team to move
+	 * @param piece A Piece of the team to move
+	 */
+	void cropEnpassant(Piece objectivePiece, Piece piece)
+	{
+		if (objectivePiece.isCaptured() || objectivePiece.getSquare() == null || mBoard.getEnpassantCol() == Board.NO_ENPASSANT)
+			return;
+		if (piece.isCaptured() || !piece.getType().isPawn() || piece.getBoard() != mBoard)
+			return;
+
+		boolean isBlack = objectivePiece.isBlack();
+		int captureRow = isBlack ? 4 : 5;
+		Piece captured = mBoard.getSquare(captureRow, mBoard.getEnpassantCol()).getPiece();
+		if (captured == null || captured.isBlack() == isBlack || !captured.getType().isPawn())
+			return;
+
+		Square dest = mBoard.getSquare(captureRow + (isBlack ? -1 : 1), mBoard.getEnpassantCol());
+		if (piece.getSquare().getRow() != captureRow || Math.abs(piece.getSquare().getCol() - dest.getCol()) != 1)
+			return;
+
+		if (piece.getLegalDests().contains(dest)
+				&& isExposed(objectivePiece, piece.getSquare().getIndex(), captured.getSquare().getIndex(), dest.getIndex()))
+		{
+			piece.getLegalDests().remove(dest);
+		}
+	}
+
+	/**
+	 * Whether an enemy rider would see the objective piece once a pawn on one
+	 * Square has taken the pawn on another by moving to a third
+	 */
+	private boolean isExposed(Piece objectivePiece, int from, int captured, int to)
+	{
+		boolean isBlack = objectivePiece.isBlack();
+		int origin = objectivePiece.getSquare().getIndex();
+		Bitboard bitboard = mBoard.getBitboard();
+		for (int d = 0; d < ROW_STEPS.length; d++)
+		{
+			int index = origin;
+			while (true)
+			{
+				index = mBoard.step(index, ROW_STEPS[d], COL_STEPS[d]);
+				if (index == Board.OFF_BOARD || index == origin || index == to)
+					break;
+				if (index == from || index == captured)
+					continue;
+
+				if (findRider(index, OPPOSITE[d], origin, isBlack) != null)
+					return true;
+				if (bitboard.isOccupied(index))
+					break;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Cut the destinations of every Piece but the objective piece down to the
+	 * Squares that capture the only Piece giving check, or block it. Must be
+	 * called after cropPins for the same position.
+	 * 
+	 * @param objectivePiece The objective piece in check
+	 * @param team The team of the objective piece
+	 * @param threat The Piece giving check
+	 */
+	void cropEvasions(Piece objectivePiece, List<Piece> team, Piece threat)
+	{
+		findEvasions(threat);
+		for (int i = 0; i < team.size(); i++)
+		{
+			Piece piece = team.get(i);
+			if (piece != objectivePiece)
+				cropEvasions(piece);
+		}
+	}
+
+	/**
+	 * Remember the only Piece giving check, and the Squares that block it, for
+	 * cropEvasions of single Pieces. Must be called after findPins for the
+	 * same position.
+	 * 
+	 * @param threat The Piece giving check
+	 */
+	void findEvasions(Piece threat)
+	{
+		mBlocks = null;
+		for (int d = 0; d < mRayCheckers.length; d++)
+		{
+			if (mRayCheckers[d] == threat)
+				mBlocks = mRayCheckMasks[d];
+		}
+
+		mThreat = threat;
+		// a pawn that just stepped two Squares into check can be taken en
+		// passant, on the Square it passed over
+		mThreatEnpassant = threat.getType().isPawn() && threat.getBoard().getGame().isClassicChess()
+				&& threat.getBoard().getEnpassantCol() == threat.getSquare().getCol();
+	}
+
+	/**
+	 * Cut the destinations of one Piece, other than the objective piece, down
+	 * to the Squares that capture or block the threat given to findEvasions
+	 * 
+	 * @param piece A Piece of the team in check
+	 */
+	void cropEvasions(Piece piece)
+	{
+		if (piece.isCaptured())
+			return;
+
+		Square threatSquare = mThreat.getSquare();
+		boolean isPawn = mThreatEnpassant && piece.getType().isPawn();
+		int enpassantRow = threatSquare.getRow() + (piece.isBlack() ? -1 : 1);
+		// keep the evasions in place
+		List<Square> dests = piece.getLegalDests();
+		int kept = 0;
+		for (int j = 0; j < dests.size(); j++)
+		{
+			Square dest = dests.get(j);
+			boolean isEvasion = dest == threatSquare
+					|| (mBlocks != null && dest.getBoard() == mBoard && Bitboard.isSet(mBlocks, dest.getIndex()))
+					|| (isPawn && dest.getBoard() == mThreat.getBoard() && dest.getCol() == threatSquare.getCol() && dest.getRow() == enpassantRow);
+			if (isEvasion)
+				dests.set(kept++, dest);
+		}
+		Piece.truncate(dests, kept);
+	}
+
+	/**
+	 * Find an enemy rider on a Square that attacks the objective piece along
+	 * the ray back to it, past every Square in between
+	 */
+	private Piece findRider(int index, int direction, int target, boolean isBlack)
+	{
+		for (int i = 0; i < mAttackingBoards.size(); i++)
+		{
+			Board board = mAttackingBoards.get(i);
+			if (index >= board.getBitboard().getNumSquares())
+				continue;
+
+			Piece piece = board.getSquare(index).getPiece();
+			if (piece == null || piece.isBlack() == isBlack || piece.isCaptured() || piece.isLeaper() || piece.getType().isPawn())
+				continue;
+
+			AttackTable table = piece.getAttackTable(mBoard);
+			if (Bitboard.isSet(table.getRayMasks(index)[direction], target))
+				return piece;
+		}
+		return null;
+	}
+
+	private static List<List<Square>> newPinRays()
+	{
+		List<List<Square>> rays = Lists.newArrayList();
+		for (int d = 0; d < ROW_STEPS.length; d++)
+			rays.add(Lists.<Square> newArrayList());
+		return rays;
+	}
+
+	private void recordChecker(int direction, Piece checker, int length)
+	{
+		if (mRayCheckMasks[direction] == null || mRayCheckMasks[direction].length != mBoard.getBitboard().getNumWords())
+			mRayCheckMasks[direction] = mBoard.getBitboard().newMask();
+		else
+			Arrays.fill(mRayCheckMasks[direction], 0L);
+
+		for (int i = 0; i < length; i++)
+			Bitboard.set(mRayCheckMasks[direction], mLine[i]);
+		mRayCheckers[direction] = checker;
+	}
+
+	private void recordPin(int direction, Piece pinned, Piece pinner, int length)
+	{
+		List<Square> ray = mPinRays.get(direction);
+		ray.clear();
+		for (int i = 0; i < length; i++)
+			ray.add(mBoard.getSquare(mLine[i]));
+		ray.add(pinner.getSquare());
+		mPinned[direction] = pinned;
+		mPinners[direction] = pinner;
+	}
+
+	/**
+	 * The steps of each ray, in the order of AttackTable.DIRECTIONS
+	 */
+	private static final int[] ROW_STEPS = { 0, 0, 1, -1, 1, -1, 1, -1 };
+	private static final int[] COL_STEPS = { 1, -1, 0, 0, 1, 1, -1, -1 };
+	private static final int[] OPPOSITE = { 1, 0, 3, 2, 7, 6, 5, 4 };
+
+	private final Piece[] mRayCheckers = new Piece[ROW_STEPS.length];
+	private final long[][] mRayCheckMasks = new long[ROW_STEPS.length][];
+
+	private final Piece[] mPinned = new Piece[ROW_STEPS.length];
+	private final Piece[] mPinners = new Piece[ROW_STEPS.length];
+	/**
+	 * The Squares each pinned Piece may still move to, one reused List per ray
+	 */
+	private final List<List<Square>> mPinRays = newPinRays();
+
+	private final List<Board> mAttackingBoards = Lists.newArrayList();
+
+	private Piece mThreat;
+	private long[] mBlocks;
+	private boolean mThreatEnpassant;
+
+	private Board mBoard;
+	private int[] mLine;
+}
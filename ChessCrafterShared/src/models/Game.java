@@ -1,7 +1,12 @@
 package models;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Iterator;
 import java.util.List;
@@ -10,19 +15,28 @@ import java.util.Map;
 import logic.AlgebraicConverter;
 import logic.Messages;
 import logic.Move;
+import logic.PieceBuilder;
 
+import rules.NextTurn;
 import timer.ChessTimer;
 import timer.TimerTypes;
 import utility.FileUtility;
 import ai.FakeMove;
 
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public class Game implements Serializable
 {
 	public Game(String gameType, Board[] boards, List<Piece> whiteTeam, List<Piece> blackTeam, Rules whiteRules, Rules blackRules,
 			Map<String, List<String>> whitePromotionMap, Map<String, List<String>> blackPromotionMap)
 	{
+		// generateMoves packs Board and Square indices into an int
+		Preconditions.checkArgument(boards.length <= PackedMove.MAX_BOARDS);
+		for (Board board : boards)
+			Preconditions.checkArgument(board.numRows() * board.numCols() <= PackedMove.MAX_SQUARES);
+
 		mGameType = gameType;
 		mBoards = boards;
 
@@ -44,6 +58,11 @@ public class Game implements Serializable
 		for (Board board : mBoards)
 			board.setGame(this);
 
+		// build the movement tables while the variant loads, so the first
+		// turn doesn't pay for them
+		warmAttackTables(whiteTeam, whiteRules);
+		warmAttackTables(blackTeam, blackRules);
+
 		mStaleLegalDests = true;
 
 		mHistory = Lists.newArrayList();
@@ -60,6 +79,7 @@ public class Game implements Serializable
 			getBlackRules().afterMove(move);
 		else
 			getWhiteRules().afterMove(move);
+		invalidateObjectivePieces();
 	}
 
 	/**
@@ -67,32 +87,45 @@ public class Game implements Serializable
 	 */
 	public void genLegalDests()
 	{
-		Piece[] threats = null;
 		Piece movingObjectivePiece = null;
 		Piece otherObjectivePiece = null;
 		List<Piece> movingTeam = null;
 		List<Piece> otherTeam = null;
 
 		setStaleLegalDests(false);
+		invalidateAttackMaps();
 
+		// rays pass through the enemy objective piece only when it isn't
+		// that team's turn, so anything that can see either objective piece
+		// has to be looked at again every turn
+		touchObjectivePiece(mWhiteRules.objectivePiece(false));
+		touchObjectivePiece(mBlackRules.objectivePiece(true));
+
+		int previousGeneration = mLegalDestsGeneration++;
 		for (int i = 0; i < mBoards.length; i++)
 		{
+			Board board = (isBlackMove() ? getBlackRules() : getWhiteRules()).getBoard(mBoards[i]);
 			for (int r = 0, c = 0; r < mBoards[i].getMaxRow(); r++)
 			{
 				for (c = 0; c < mBoards[i].getMaxCol(); c++)
 				{
-					if (mBoards[i].mSquares[r][c].getPiece() != null)
+					Piece piece = mBoards[i].mSquares[r][c].getPiece();
+					if (piece != null)
 					{
-						mBoards[i].mSquares[r][c].getPiece().genLegalDests(
-								(isBlackMove() ? getBlackRules() : getWhiteRules()).getBoard(mBoards[i]));
+						if (mFullLegalDestsRebuild || !piece.reuseLegalDests(board, previousGeneration))
+							piece.genLegalDests(board);
+						piece.setLegalDestsGeneration(mLegalDestsGeneration);
 					}
 				}
 			}
 		}
 
+		for (Board board : mBoards)
+			board.getBitboard().clearTouched();
+
 		movingObjectivePiece = (isBlackMove()) ? mBlackRules.objectivePiece(true) : mWhiteRules.objectivePiece(false);
 		movingTeam = (isBlackMove()) ? getBlackTeam() : getWhiteTeam();
-		otherObjectivePiece = (isBlackMove()) ? mBlackRules.objectivePiece(true) : mWhiteRules.objectivePiece(false);
+		otherObjectivePiece = (isBlackMove()) ? mWhiteRules.objectivePiece(false) : mBlackRules.objectivePiece(true);
 		otherTeam = (isBlackMove()) ? getWhiteTeam() : getBlackTeam();
 
 		// Make sure the objective piece doesn't put himself in check
@@ -107,20 +140,18 @@ public class Game implements Serializable
 					otherObjectivePiece, otherTeam);
 		}
 
+		// Pieces pinned to the objective piece may only move along the pin,
+		// and en passant may not uncover it
 		if (movingObjectivePiece != null)
 		{
-			// Now see if any of the moves puts the objective piece in check and
-			// are therefore illegal
-			for (int i = 0; i < otherTeam.size(); i++)
-			{
-				if (otherTeam.equals(getWhiteTeam()))
-					getWhiteRules().cropLegalDests(movingObjectivePiece, otherTeam.get(i), movingTeam);
-				else
-					getBlackRules().cropLegalDests(movingObjectivePiece, otherTeam.get(i), movingTeam);
-			}
+			getCheckMask().cropPins(movingObjectivePiece, isBlackMove() ? getBlackRules() : getWhiteRules());
+			if (isClassicChess())
+				getCheckMask().cropEnpassant(movingObjectivePiece, movingTeam);
 		}
 
 		(isBlackMove() ? getBlackRules() : getWhiteRules()).adjustTeamLegalDestinations(movingTeam);
+		// the crops above changed destinations on both teams
+		invalidateAttackMaps();
 
 		// if the objective piece is in check, the legal moves list must be
 		// modified accordingly
@@ -129,20 +160,17 @@ public class Game implements Serializable
 			if (getLastMove() != null)
 				getLastMove().setCheck(true);
 
-			threats = getThreats(movingObjectivePiece);
-
-			switch (threats.length)
+			Piece threat = getOnlyThreat(movingObjectivePiece, otherTeam);
+			if (threat != null)
 			{
-			case 1:
-				// there is only one threat, so another Piece could block, or
-				// the King could move
-				for (int i = 0; i < movingTeam.size(); i++)
-					movingTeam.get(i).genLegalDestsSaveKing(movingObjectivePiece, threats[0]);
-
-				break;
-			case 2:
-				// since there is two threats, the objective piece is the only
-				// one who can get himself out of check.
+				// there is only one threat, so another Piece could capture or
+				// block it, or the King could move
+				getCheckMask().cropEvasions(movingObjectivePiece, movingTeam, threat);
+			}
+			else
+			{
+				// with more than one threat, the objective piece is the only
+				// one who can get himself out of check
 				for (int i = 0; i < movingTeam.size(); i++)
 				{
 					Piece p = (movingTeam.get(i));
@@ -155,12 +183,119 @@ public class Game implements Serializable
 
 				if (getLastMove() != null)
 					getLastMove().setDoubleCheck(true);
+			}
+			invalidateAttackMaps();
+		}
+	}
+
+	/**
+	 * @return How many times the legal destinations have been generated, for
+	 * tests to check nothing generates them more often than it should
+	 */
+	int getLegalDestsGeneration()
+	{
+		return mLegalDestsGeneration;
+	}
+
+	/**
+	 * Forget the attack maps of both teams, so they are rebuilt from the
+	 * current destinations the next time they are needed. Anything that
+	 * changes legal destinations outside of genLegalDests must call this.
+	 */
+	void invalidateAttackMaps()
+	{
+		mIsWhiteAttackMapValid = false;
+		mIsBlackAttackMapValid = false;
+		mIsLegalMoveCountValid = false;
+	}
+
+	/**
+	 * Make both teams look up their objective pieces again. Anything that
+	 * promotes a Piece or moves Pieces between or out of the team Lists must
+	 * call this.
+	 */
+	public void invalidateObjectivePieces()
+	{
+		mWhiteRules.invalidateObjectivePiece();
+		mBlackRules.invalidateObjectivePiece();
+	}
+
+	private CheckMask getCheckMask()
+	{
+		if (mCheckMask == null)
+			mCheckMask = new CheckMask();
+		return mCheckMask;
+	}
+
+	private AttackMap getAttackMap(boolean isBlack)
+	{
+		if (isStaleLegalDests())
+			genLegalDests();
+
+		if (isBlack)
+		{
+			if (mBlackAttackMap == null)
+				mBlackAttackMap = new AttackMap(mBoards);
+			if (!mIsBlackAttackMapValid)
+			{
+				mBlackAttackMap.build(getBlackTeam());
+				mIsBlackAttackMapValid = true;
+			}
+			return mBlackAttackMap;
+		}
+
+		if (mWhiteAttackMap == null)
+			mWhiteAttackMap = new AttackMap(mBoards);
+		if (!mIsWhiteAttackMapValid)
+		{
+			mWhiteAttackMap.build(getWhiteTeam());
+			mIsWhiteAttackMapValid = true;
+		}
+		return mWhiteAttackMap;
+	}
 
-				break;
+	private void touchObjectivePiece(Piece objectivePiece)
+	{
+		if (objectivePiece != null && !objectivePiece.isCaptured() && objectivePiece.getSquare() != null)
+		{
+			for (Board board : mBoards)
+			{
+				if (board.getMaxRow() >= objectivePiece.getSquare().getRow() && board.getMaxCol() >= objectivePiece.getSquare().getCol())
+					board.getBitboard().touch(board.getIndex(objectivePiece.getSquare().getRow(), objectivePiece.getSquare().getCol()));
 			}
 		}
 	}
 
+	/**
+	 * @return If genLegalDests only regenerates the Pieces affected by the
+	 * Squares that changed since the last call
+	 */
+	public boolean isIncrementalLegalDests()
+	{
+		return !mFullLegalDestsRebuild;
+	}
+
+	/**
+	 * Choose whether genLegalDests may reuse the destinations of Pieces whose
+	 * reachable Squares did not change. Turning this off regenerates every
+	 * Piece on every call.
+	 * 
+	 * @param incrementalLegalDests If destinations may be reused
+	 */
+	public void setIncrementalLegalDests(boolean incrementalLegalDests)
+	{
+		mFullLegalDestsRebuild = !incrementalLegalDests;
+	}
+
+	private void warmAttackTables(List<Piece> team, Rules rules)
+	{
+		for (Piece piece : team)
+		{
+			if (piece.getBoard() != null)
+				piece.getAttackTable(rules.getBoard(piece.getBoard()));
+		}
+	}
+
 	public Rules getBlackRules()
 	{
 		return mBlackRules;
@@ -225,12 +360,12 @@ public class Game implements Serializable
 	 */
 	public Piece[] getGuards(Square square, boolean isBlack)
 	{
+		if (!isGuarded(square, isBlack))
+			return null;
+
 		Iterator<Piece> team = (isBlack) ? getBlackTeam().iterator() : getWhiteTeam().iterator();
 		List<Piece> attackers = Lists.newArrayList();
 
-		if (isStaleLegalDests())
-			genLegalDests();
-
 		Piece piece = null;
 		while (team.hasNext())
 		{
@@ -265,18 +400,263 @@ public class Game implements Serializable
 	 */
 	public int getLegalMoveCount()
 	{
-		int count = 0;
-		List<Piece> movingTeam = (isBlackMove()) ? getBlackTeam() : getWhiteTeam();
+		if (isStaleLegalDests())
+			genLegalDests();
+
+		return getLegalDestCount(isBlackMove());
+	}
+
+	/**
+	 * Count the legal destinations of one team's Pieces. The team not to
+	 * move has destinations too, though they aren't checked for leaving its
+	 * objective piece in check.
+	 * 
+	 * @param isBlack The team to count
+	 * @return The number of legal destinations of the team's Pieces
+	 */
+	public int getLegalDestCount(boolean isBlack)
+	{
+		if (isStaleLegalDests())
+			genLegalDests();
+
+		if (!mIsLegalMoveCountValid)
+		{
+			mWhiteLegalDestCount = countLegalDests(getWhiteTeam());
+			mBlackLegalDestCount = countLegalDests(getBlackTeam());
+			mIsLegalMoveCountValid = true;
+		}
+		return isBlack ? mBlackLegalDestCount : mWhiteLegalDestCount;
+	}
 
+	/**
+	 * Determine whether the team to move can move at all: the same answer as
+	 * a nonzero getLegalMoveCount, but without counting. Stale legal
+	 * destinations are only generated in full when the team to move has a
+	 * rule, such as mandatory captures, that crops one Piece's destinations
+	 * because of another's. Otherwise the team to move is generated one Piece
+	 * at a time, objective piece first since it is the one that has to move
+	 * when in check, and the search stops at the first Piece with a legal
+	 * destination.
+	 * 
+	 * @return If there is at least one legal move this turn.
+	 */
+	public boolean hasAnyLegalDest()
+	{
 		if (isStaleLegalDests())
+		{
+			if (!(isBlackMove() ? mBlackRules : mWhiteRules).adjustsTeamLegalDestinations())
+				return findAnyLegalDest();
 			genLegalDests();
+		}
+
+		if (mIsLegalMoveCountValid)
+			return getLegalMoveCount() > 0;
 
+		boolean isBlack = isBlackMove();
+		Piece objectivePiece = isBlack ? mBlackRules.objectivePiece(true) : mWhiteRules.objectivePiece(false);
+		if (objectivePiece != null && !objectivePiece.getLegalDests().isEmpty())
+			return true;
+
+		List<Piece> movingTeam = isBlack ? getBlackTeam() : getWhiteTeam();
 		for (int i = 0; i < movingTeam.size(); i++)
-			count += (movingTeam.get(i)).getLegalDests().size();
+		{
+			if (!movingTeam.get(i).getLegalDests().isEmpty())
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Generate the legal destinations of the team to move one Piece at a
+	 * time, with the same crops genLegalDests applies, until one Piece has a
+	 * destination left. The enemy team is generated in full first, since the
+	 * objective piece may not move onto any Square it attacks. Only some of
+	 * the team to move is generated, so the destinations are left stale for
+	 * the next full pass, which reuses what it can as usual.
+	 */
+	private boolean findAnyLegalDest()
+	{
+		boolean isBlack = isBlackMove();
+		Rules rules = isBlack ? mBlackRules : mWhiteRules;
+		Rules otherRules = isBlack ? mWhiteRules : mBlackRules;
+		Piece movingObjectivePiece = rules.objectivePiece(isBlack);
+		Piece otherObjectivePiece = otherRules.objectivePiece(!isBlack);
+		List<Piece> movingTeam = isBlack ? getBlackTeam() : getWhiteTeam();
+		List<Piece> otherTeam = isBlack ? getWhiteTeam() : getBlackTeam();
+
+		// the Pieces look at the destinations of others while being cropped,
+		// which must not set off a full pass
+		setStaleLegalDests(false);
+		try
+		{
+			for (int i = 0; i < otherTeam.size(); i++)
+				genLegalDests(otherTeam.get(i), rules);
+
+			if (movingObjectivePiece != null)
+			{
+				genLegalDests(movingObjectivePiece, rules);
+				rules.cropLegalDests(movingObjectivePiece, movingObjectivePiece, movingTeam);
+			}
+			if (otherObjectivePiece != null)
+				otherRules.cropLegalDests(otherObjectivePiece, otherObjectivePiece, otherTeam);
+			invalidateAttackMaps();
+
+			if (movingObjectivePiece != null && !movingObjectivePiece.getLegalDests().isEmpty())
+				return true;
+
+			Piece threat = null;
+			if (movingObjectivePiece != null)
+			{
+				getCheckMask().findPins(movingObjectivePiece, rules);
+				if (movingObjectivePiece.isInCheck())
+				{
+					if (getLastMove() != null)
+						getLastMove().setCheck(true);
+
+					threat = getOnlyThreat(movingObjectivePiece, otherTeam);
+					if (threat == null)
+					{
+						// with more than one threat, only the objective piece
+						// can move, and it can't
+						if (getLastMove() != null)
+							getLastMove().setDoubleCheck(true);
+						return false;
+					}
+					getCheckMask().findEvasions(threat);
+				}
+			}
+
+			for (int i = 0; i < movingTeam.size(); i++)
+			{
+				Piece piece = movingTeam.get(i);
+				if (piece == movingObjectivePiece || !genLegalDests(piece, rules))
+					continue;
+
+				if (movingObjectivePiece != null)
+				{
+					getCheckMask().cropPin(piece);
+					if (isClassicChess())
+						getCheckMask().cropEnpassant(movingObjectivePiece, piece);
+					if (threat != null)
+						getCheckMask().cropEvasions(piece);
+				}
+				if (!piece.getLegalDests().isEmpty())
+					return true;
+			}
+			return false;
+		}
+		finally
+		{
+			setStaleLegalDests(true);
+			invalidateAttackMaps();
+		}
+	}
 
+	/**
+	 * Generate the uncropped destinations of one Piece on a Board, the way
+	 * genLegalDests does for every Piece on the Boards
+	 * 
+	 * @return If the Piece is on a Board, and was generated
+	 */
+	private static boolean genLegalDests(Piece piece, Rules rules)
+	{
+		if (piece.isCaptured() || piece.getSquare() == null)
+			return false;
+		piece.genLegalDests(rules.getBoard(piece.getSquare().getBoard()));
+		return true;
+	}
+
+	private static int countLegalDests(List<Piece> team)
+	{
+		int count = 0;
+		for (int i = 0; i < team.size(); i++)
+		{
+			if (!team.get(i).isCaptured())
+				count += team.get(i).getLegalDests().size();
+		}
+		return count;
+	}
+
+	/**
+	 * Count the Pieces a team has on the Boards. Pieces waiting to be placed
+	 * are not on a Board, so they aren't counted.
+	 * 
+	 * @param isBlack The team to count
+	 * @return The number of that team's Pieces on the Boards
+	 */
+	public int getPieceCount(boolean isBlack)
+	{
+		int count = 0;
+		for (Board board : mBoards)
+			count += board.getBitboard().count(isBlack);
+		return count;
+	}
+
+	/**
+	 * Count the Pieces of one type a team has on the Boards
+	 * 
+	 * @param name The name of the Piece type
+	 * @param isBlack The team to count
+	 * @return The number of such Pieces on the Boards
+	 */
+	public int getPieceCount(String name, boolean isBlack)
+	{
+		int count = 0;
+		for (Board board : mBoards)
+			count += board.getBitboard().count(name, isBlack);
 		return count;
 	}
 
+	/**
+	 * Pack every legal Move of the team to move into a list, one per
+	 * promotion type where the Move promotes
+	 * 
+	 * @param moves The list to fill; its previous contents are discarded
+	 * @param capturesOnly Whether to leave out Moves that don't capture
+	 * @return The number of Moves generated
+	 */
+	public int generateMoves(MoveList moves, boolean capturesOnly)
+	{
+		moves.clear();
+		if (isStaleLegalDests())
+			genLegalDests();
+
+		boolean isBlack = isBlackMove();
+		List<Piece> movingTeam = isBlack ? getBlackTeam() : getWhiteTeam();
+		Rules rules = isBlack ? mBlackRules : mWhiteRules;
+		for (int i = 0; i < movingTeam.size(); i++)
+		{
+			Piece piece = movingTeam.get(i);
+			if (piece.isCaptured())
+				continue;
+
+			int originBoard = getBoardIndex(piece.getBoard());
+			int origin = piece.getSquare().getIndex();
+			List<Square> legalDests = piece.getLegalDests();
+			List<String> promotesTo = piece.getPromotesTo();
+			for (int j = 0; j < legalDests.size(); j++)
+			{
+				Square dest = legalDests.get(j);
+				Piece target = dest.getPiece();
+				boolean isCapture = target != null && target.isBlack() != isBlack;
+				if (capturesOnly && !isCapture)
+					continue;
+
+				int destBoard = getBoardIndex(dest.getBoard());
+				if (promotesTo != null && !promotesTo.isEmpty() && rules.isPromotionSquare(piece, dest))
+				{
+					for (int k = 0; k < promotesTo.size() && k < PackedMove.MAX_PROMOTIONS; k++)
+						moves.add(PackedMove.pack(originBoard, origin, destBoard, dest.getIndex(), k, isCapture));
+				}
+				else
+				{
+					moves.add(PackedMove.pack(originBoard, origin, destBoard, dest.getIndex(), -1, isCapture));
+				}
+			}
+		}
+		return moves.size();
+	}
+
 	/**
 	 * Get the specified objective piece
 	 * 
@@ -288,6 +668,117 @@ public class Game implements Serializable
 		return isBlack ? mWhiteRules.objectivePiece(false) : mBlackRules.objectivePiece(true);
 	}
 
+	/**
+	 * Get the 64 bit Zobrist hash of the current position. It covers the
+	 * Pieces on every Board, the team to move, how far into its turn it is,
+	 * the en passant columns, the castling rights and, when captured Pieces
+	 * can be placed again, the Pieces each team holds. The Piece keys are kept
+	 * up to date by the Boards as Pieces move, so this mostly combines a few
+	 * values.
+	 * 
+	 * @return The hash of the current position
+	 */
+	public long getZobristKey()
+	{
+		long key = isBlackMove() ? Zobrist.BLACK_TO_MOVE : 0;
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			key ^= Zobrist.boardKey(i, mBoards[i].getBitboard().getZobristKey());
+			if (mBoards[i].getEnpassantCol() != Board.NO_ENPASSANT)
+				key ^= Zobrist.enpassantKey(i, mBoards[i].getEnpassantCol());
+		}
+		if (isClassicChess())
+			key ^= Zobrist.castlingKey(getCastlingRights());
+
+		NextTurn nextTurn = mWhiteRules.getNextTurn();
+		key ^= Zobrist.turnKey(nextTurn.getMovesMade(), nextTurn.getWhiteMoves(), nextTurn.getBlackMoves());
+
+		if (mWhiteRules.getPiecesDrop() || mWhiteRules.getPiecesDropAndSwitch() || mBlackRules.getPiecesDrop()
+				|| mBlackRules.getPiecesDropAndSwitch())
+		{
+			key ^= getHandKey(getWhiteTeam());
+			key ^= getHandKey(getBlackTeam());
+		}
+		return key;
+	}
+
+	/**
+	 * Hash the captured Pieces a team holds, by type, so the order they were
+	 * taken in doesn't matter
+	 */
+	private static long getHandKey(List<Piece> team)
+	{
+		long key = 0;
+		for (int i = 0; i < team.size(); i++)
+		{
+			Piece piece = team.get(i);
+			if (!piece.isCaptured())
+				continue;
+
+			int count = 1;
+			for (int j = 0; j < i; j++)
+			{
+				if (team.get(j).isCaptured() && team.get(j).getName().equals(piece.getName()))
+					count++;
+			}
+			key ^= Zobrist.handKey(Zobrist.typeKey(piece.getName()), piece.isBlack(), count);
+		}
+		return key;
+	}
+
+	/**
+	 * Get the castling rights of both teams, with the same test the King uses
+	 * to generate castling Moves: an unmoved King and an unmoved Piece in the
+	 * corner
+	 * 
+	 * @return One bit per right: white queen side, white king side, black
+	 * queen side and black king side
+	 */
+	public int getCastlingRights()
+	{
+		return getCastlingRights(mWhiteRules.objectivePiece(false)) | (getCastlingRights(mBlackRules.objectivePiece(true)) << 2);
+	}
+
+	private static int getCastlingRights(Piece king)
+	{
+		if (king == null || king.isCaptured() || king.getMoveCount() != 0)
+			return 0;
+
+		Board board = king.getBoard();
+		int row = king.getSquare().getRow();
+		int rights = 0;
+		Piece rook = board.getSquare(row, 1).getPiece();
+		if (rook != null && rook.getMoveCount() == 0)
+			rights |= 1;
+		rook = board.getSquare(row, board.getMaxCol()).getPiece();
+		if (rook != null && rook.getMoveCount() == 0)
+			rights |= 2;
+		return rights;
+	}
+
+	/**
+	 * Find the one Piece of a team attacking a Piece, without building the
+	 * array getThreats returns
+	 * 
+	 * @param piece The attacked Piece
+	 * @param attackers The attacking team
+	 * @return The attacker, or null if there is more than one, or none
+	 */
+	private static Piece getOnlyThreat(Piece piece, List<Piece> attackers)
+	{
+		Square square = piece.getSquare();
+		Piece threat = null;
+		for (int i = 0; i < attackers.size(); i++)
+		{
+			if (!attackers.get(i).isLegalAttack(square))
+				continue;
+			if (threat != null)
+				return null;
+			threat = attackers.get(i);
+		}
+		return threat;
+	}
+
 	/**
 	 * Get the threats on the given piece
 	 * 
@@ -308,12 +799,12 @@ public class Game implements Serializable
 	 */
 	private Piece[] getThreats(Square threatened, boolean attackerIsBlack)
 	{
+		if (!isThreatened(threatened, attackerIsBlack))
+			return null;
+
 		Iterator<Piece> team = (attackerIsBlack) ? getBlackTeam().iterator() : getWhiteTeam().iterator();
 		List<Piece> attackers = Lists.newArrayList();
 
-		if (isStaleLegalDests())
-			genLegalDests();
-
 		Piece piece = null;
 		while (team.hasNext())
 		{
@@ -383,10 +874,7 @@ public class Game implements Serializable
 		if (getLastMove() != null)
 			return getLastMove().isCheckmate();
 
-		if (isStaleLegalDests())
-			genLegalDests();
-
-		if (getLegalMoveCount() == 0 && isCheck())
+		if (!hasAnyLegalDest() && isCheck())
 			return true;
 		else
 			return false;
@@ -399,7 +887,10 @@ public class Game implements Serializable
 	 */
 	public boolean isClassicChess()
 	{
-		return mGameType.equals(Messages.getString("classic")); //$NON-NLS-1$
+		// move generation asks on every pawn move, so look the name up once
+		if (mIsClassicChess == null)
+			mIsClassicChess = mGameType.equals(Messages.getString("classic")); //$NON-NLS-1$
+		return mIsClassicChess;
 	}
 
 	/**
@@ -411,7 +902,7 @@ public class Game implements Serializable
 	 */
 	public boolean isGuarded(Square square, boolean isBlack)
 	{
-		return (getGuards(square, isBlack) != null);
+		return getAttackMap(isBlack).isGuarded(square);
 	}
 
 	public boolean isStaleLegalDests()
@@ -429,10 +920,7 @@ public class Game implements Serializable
 		if (getLastMove() != null)
 			return getLastMove().isStalemate();
 
-		if (isStaleLegalDests())
-			genLegalDests();
-
-		if (getLegalMoveCount() == 0 && !isCheck())
+		if (!hasAnyLegalDest() && !isCheck())
 			return true;
 		else
 			return false;
@@ -458,7 +946,7 @@ public class Game implements Serializable
 	 */
 	public boolean isThreatened(Square sq, boolean isBlack)
 	{
-		return (getThreats(sq, isBlack) != null);
+		return getAttackMap(isBlack).isThreatened(sq);
 	}
 
 	/**
@@ -488,6 +976,245 @@ public class Game implements Serializable
 		getWhiteRules().checkEndOfGame(mWhiteRules.objectivePiece(false));
 	}
 
+	/**
+	 * Make a Move for search or analysis. Unlike Move.execute, this doesn't
+	 * touch the history, the timers or the last Move, never asks the user
+	 * anything and doesn't refresh the play screen. Legal destinations are
+	 * only marked stale. Every change is written into the given record, so
+	 * unmakeMove can put the Game back exactly as it was.
+	 * 
+	 * @param piece The Piece to move; it must belong to the team to move
+	 * @param dest The Square to move it to
+	 * @param promo The type to promote to, or null for the first type the
+	 * Piece promotes to
+	 * @param undo The record to fill; its previous contents are discarded
+	 */
+	public void makeMove(Piece piece, Square dest, String promo, UndoRecord undo)
+	{
+		Board board = piece.getBoard();
+		Square origin = piece.getSquare();
+		boolean isClassic = isClassicChess();
+		boolean isPawn = piece.getType().isPawn();
+
+		undo.clear();
+		undo.mPiece = piece;
+		undo.mBoard = board;
+		undo.mOrigin = origin;
+		undo.mDest = dest;
+		undo.mEnpassantCol = board.getEnpassantCol();
+		undo.mMoveCount = piece.getMoveCount();
+		undo.mMoverRules = isBlackMove() ? mBlackRules : mWhiteRules;
+
+		// genLegalDests marks check on the last Move, which belongs to the
+		// real game
+		undo.mLastMove = mLastMove;
+		mLastMove = null;
+
+		Piece captured = dest.getPiece();
+		if (isClassic)
+		{
+			if (isPawn && captured == null && origin.getCol() != dest.getCol())
+				captured = board.getSquare(origin.getRow(), dest.getCol()).getPiece();
+			else
+				board.setEnpassantCol(Board.NO_ENPASSANT);
+		}
+
+		if (captured != null)
+		{
+			undo.mCaptured = captured;
+			undo.mCaptureSquare = captured.getSquare();
+			captured.resetDests(true);
+			captured.getSquare().setPiece(null);
+		}
+
+		if (isClassic)
+		{
+			if (isPawn && Math.abs(origin.getRow() - dest.getRow()) == 2)
+				board.setEnpassantCol(origin.getCol());
+
+			if (piece.getType().isKing() && piece.getMoveCount() == 0)
+			{
+				if (dest.getCol() == 3)
+				{
+					undo.mRookOrigin = board.getSquare(origin.getRow(), 1);
+					undo.mRookDest = board.getSquare(origin.getRow(), 4);
+				}
+				else if (dest.getCol() == 7)
+				{
+					undo.mRookOrigin = board.getSquare(origin.getRow(), 8);
+					undo.mRookDest = board.getSquare(origin.getRow(), 6);
+				}
+
+				if (undo.mRookOrigin != null)
+				{
+					Piece rook = undo.mRookOrigin.setPiece(null);
+					undo.mRookDest.setPiece(rook);
+					rook.setMoveCount(rook.getMoveCount() + 1);
+				}
+			}
+		}
+
+		origin.setPiece(null);
+		dest.setPiece(piece);
+		piece.resetDests(false);
+		piece.setMoveCount(piece.getMoveCount() + 1);
+
+		if (undo.mMoverRules.isPromotionSquare(piece, dest))
+			promote(piece, promo, undo);
+
+		undo.mMoverRules.afterMove(this, undo);
+
+		// we only need to track turns once, so always use the whiteRules
+		mWhiteRules.getNextTurn().saveState(undo.mTurnState);
+		setBlackMove(mWhiteRules.getNextTurn().advance());
+
+		setStaleLegalDests(true);
+	}
+
+	/**
+	 * Make a Move packed by generateMoves in the current position
+	 * 
+	 * @param move The packed Move
+	 * @param undo The record to fill; its previous contents are discarded
+	 */
+	public void makeMove(int move, UndoRecord undo)
+	{
+		Piece piece = getOrigin(move).getPiece();
+		makeMove(piece, getDest(move), getPromotion(piece, move), undo);
+	}
+
+	/**
+	 * Turn a Move packed by generateMoves in the current position into a Move
+	 * that can be played
+	 * 
+	 * @param move The packed Move
+	 * @return The Move
+	 * @throws Exception If the Move can't be built
+	 */
+	public Move toMove(int move) throws Exception
+	{
+		Square origin = getOrigin(move);
+		return new Move(mBoards[PackedMove.getOriginBoard(move)], origin, getDest(move), getPromotion(origin.getPiece(), move));
+	}
+
+	/**
+	 * Take back a Move made with makeMove. Moves must be taken back in the
+	 * opposite order they were made.
+	 * 
+	 * @param undo The record makeMove filled in
+	 */
+	public void unmakeMove(UndoRecord undo)
+	{
+		Piece piece = undo.mPiece;
+
+		setBlackMove(mWhiteRules.getNextTurn().restoreState(undo.mTurnState));
+
+		undo.mMoverRules.undoAfterMove(this, undo);
+
+		if (undo.isPromotion())
+		{
+			piece.setType(undo.mPromotedFromType, undo.mPromotedFromPromotesTo);
+			invalidateObjectivePieces();
+		}
+
+		undo.mDest.setPiece(null);
+		undo.mOrigin.setPiece(piece);
+		piece.setMoveCount(undo.mMoveCount);
+
+		if (undo.mRookOrigin != null)
+		{
+			Piece rook = undo.mRookDest.setPiece(null);
+			undo.mRookOrigin.setPiece(rook);
+			rook.setMoveCount(rook.getMoveCount() - 1);
+		}
+
+		if (undo.mCaptured != null)
+		{
+			undo.mCaptured.resetDests(false);
+			undo.mCaptureSquare.setPiece(undo.mCaptured);
+		}
+
+		undo.mBoard.setEnpassantCol(undo.mEnpassantCol);
+		mLastMove = undo.mLastMove;
+
+		setStaleLegalDests(true);
+	}
+
+	private Square getOrigin(int move)
+	{
+		return mBoards[PackedMove.getOriginBoard(move)].getSquare(PackedMove.getOrigin(move));
+	}
+
+	private Square getDest(int move)
+	{
+		return mBoards[PackedMove.getDestBoard(move)].getSquare(PackedMove.getDest(move));
+	}
+
+	private String getPromotion(Piece piece, int move)
+	{
+		int promotion = PackedMove.getPromotion(move);
+		return promotion < 0 ? null : piece.getPromotesTo().get(promotion);
+	}
+
+	private int getBoardIndex(Board board)
+	{
+		for (int i = 0; i < mBoards.length; i++)
+		{
+			if (mBoards[i] == board)
+				return i;
+		}
+		return 0;
+	}
+
+	private void promote(Piece piece, String promo, UndoRecord undo)
+	{
+		// we don't want to promote the objective pieces
+		if (piece.getPromotesTo() == null || piece.getPromotesTo().isEmpty()
+				|| undo.mMoverRules.getObjectiveName().equals(piece.getName()))
+		{
+			return;
+		}
+
+		String name = promo;
+		if (name == null)
+			name = piece.getPromotesTo().get(0);
+		else if (name.equals(piece.getName()) || !piece.getPromotesTo().contains(name))
+			return;
+
+		Piece template = getPromotionTemplate(name, piece);
+		if (template == null)
+			return;
+
+		undo.mPromotedFromType = piece.getType();
+		undo.mPromotedFromPromotesTo = piece.getPromotesTo();
+		piece.setType(template.getType(), template.getPromotesTo());
+		invalidateObjectivePieces();
+	}
+
+	private Piece getPromotionTemplate(String name, Piece toPromote)
+	{
+		if (mPromotionTemplates == null)
+			mPromotionTemplates = Maps.newHashMap();
+
+		Piece template = mPromotionTemplates.get(name);
+		if (template == null)
+		{
+			try
+			{
+				// a detached Square, so building the template can't disturb
+				// the Board
+				template = PieceBuilder.makePiece(name, toPromote.isBlack(), new Square(1, 1), toPromote.getBoard());
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+				return null;
+			}
+			mPromotionTemplates.put(name, template);
+		}
+		return template;
+	}
+
 	/**
 	 * Revert to the previous turn
 	 */
@@ -533,6 +1260,32 @@ public class Game implements Serializable
 		}
 	}
 
+	/**
+	 * Make an independent copy of this Game, for example so another thread can
+	 * search it. The copy has no timers and shares nothing with this Game but
+	 * the rule enums, so it may only be played with makeMove and unmakeMove.
+	 * 
+	 * @return The copy
+	 * @throws IOException If part of the Game can't be copied
+	 */
+	public Game copy() throws IOException
+	{
+		try
+		{
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream out = new TimerlessOutputStream(bytes);
+			out.writeObject(this);
+			out.close();
+			ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			return (Game) in.readObject();
+		}
+		catch (ClassNotFoundException e)
+		{
+			// the classes were just written out by this same program
+			throw new IOException(e);
+		}
+	}
+
 	public void setBlackMove(boolean isBlackMove)
 	{
 		mIsBlackMove = isBlackMove;
@@ -574,6 +1327,7 @@ public class Game implements Serializable
 			getBlackRules().undoAfterMove(move);
 		else
 			getWhiteRules().undoAfterMove(move);
+		invalidateObjectivePieces();
 	}
 
 	/**
@@ -625,6 +1379,26 @@ public class Game implements Serializable
 		return mIsPlayback;
 	}
 
+	/**
+	 * Writes the timers out as null, since they hold on to their listeners in
+	 * the GUI, without touching the Game being written. Saved Games keep their
+	 * timers, so they can't simply be transient.
+	 */
+	private static final class TimerlessOutputStream extends ObjectOutputStream
+	{
+		TimerlessOutputStream(OutputStream out) throws IOException
+		{
+			super(out);
+			enableReplaceObject(true);
+		}
+
+		@Override
+		protected Object replaceObject(Object object) throws IOException
+		{
+			return object instanceof ChessTimer ? null : object;
+		}
+	}
+
 	private static final long serialVersionUID = 7291801823624891384L;
 
 	private final Board[] mBoards;
@@ -642,7 +1416,19 @@ public class Game implements Serializable
 	private boolean mIsBlackMove;
 	private boolean mIsPlayback;
 	private boolean mStaleLegalDests;
+	private boolean mFullLegalDestsRebuild;
+	private int mLegalDestsGeneration;
 
 	private List<Move> mHistory;
 	private Move mLastMove;
+	private transient Map<String, Piece> mPromotionTemplates;
+	private transient AttackMap mWhiteAttackMap;
+	private transient AttackMap mBlackAttackMap;
+	private transient boolean mIsWhiteAttackMapValid;
+	private transient boolean mIsBlackAttackMapValid;
+	private transient CheckMask mCheckMask;
+	private transient Boolean mIsClassicChess;
+	private transient int mWhiteLegalDestCount;
+	private transient int mBlackLegalDestCount;
+	private transient boolean mIsLegalMoveCountValid;
 }
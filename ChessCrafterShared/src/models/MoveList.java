@@ -0,0 +1,99 @@
+package models;
+
+import java.util.Arrays;
+
+/**
+ * MoveList.java
+ * 
+ * A growable buffer of packed Moves. A search keeps one per ply and fills it
+ * again with Game.generateMoves at every node it visits at that ply, so once
+ * the buffers have grown to the largest Move count seen nothing more is
+ * allocated.
+ */
+public final class MoveList
+{
+	public MoveList()
+	{
+		mMoves = new int[DEFAULT_CAPACITY];
+	}
+
+	public void add(int move)
+	{
+		if (mSize == mMoves.length)
+			mMoves = Arrays.copyOf(mMoves, mSize * 2);
+		mMoves[mSize++] = move;
+	}
+
+	public int get(int index)
+	{
+		return mMoves[index];
+	}
+
+	public void set(int index, int move)
+	{
+		mMoves[index] = move;
+	}
+
+	public int size()
+	{
+		return mSize;
+	}
+
+	public void clear()
+	{
+		mSize = 0;
+	}
+
+	/**
+	 * @param move A packed Move
+	 * @return The index of the Move in this list, or -1 if it isn't there
+	 */
+	public int indexOf(int move)
+	{
+		for (int i = 0; i < mSize; i++)
+		{
+			if (mMoves[i] == move)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Move the Move at the given index to the front position, sliding the
+	 * Moves in between back by one so their order is kept
+	 * 
+	 * @param index The index of the Move to move
+	 * @param front The index to move it to, no later than index
+	 */
+	public void moveToFront(int index, int front)
+	{
+		if (index <= front)
+			return;
+
+		int move = mMoves[index];
+		System.arraycopy(mMoves, front, mMoves, front + 1, index - front);
+		mMoves[front] = move;
+	}
+
+	/**
+	 * Put every capture ahead of every other Move, keeping the order within
+	 * each group
+	 * 
+	 * @return The number of captures
+	 */
+	public int moveCapturesToFront()
+	{
+		int captures = 0;
+		for (int i = 0; i < mSize; i++)
+		{
+			if (PackedMove.isCapture(mMoves[i]))
+				moveToFront(i, captures++);
+		}
+		return captures;
+	}
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	private int[] mMoves;
+	private int mSize;
+}
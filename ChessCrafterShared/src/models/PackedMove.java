@@ -0,0 +1,102 @@
+package models;
+
+/**
+ * PackedMove.java
+ * 
+ * A Move packed into a single int, for move generation and search: the
+ * origin and destination Square indices, the index in the Game of the Board
+ * each is on, the position of the promotion type in the moving Piece's
+ * promotion list, and whether the Move captures. Packed Moves are only
+ * meaningful for the position they were generated in; Game.makeMove plays one
+ * and Game.toMove turns one into a full Move when it is actually played.
+ * 
+ * Bits 0-9 hold the origin index, 10-19 the destination index, 20-21 the
+ * origin Board, 22-23 the destination Board, 24-29 the promotion type plus one
+ * (0 for none) and bit 30 the capture flag. Moving a Piece onto its own
+ * Square is never legal, so no Move packs to NONE.
+ */
+public final class PackedMove
+{
+	/**
+	 * No Move
+	 */
+	public static final int NONE = 0;
+
+	/**
+	 * The most Squares a Board may have for its Moves to be packed
+	 */
+	public static final int MAX_SQUARES = 1 << 10;
+
+	/**
+	 * The most Boards a Game may have for its Moves to be packed
+	 */
+	public static final int MAX_BOARDS = 1 << 2;
+
+	/**
+	 * The most promotion types a Piece may have for its Moves to be packed
+	 */
+	public static final int MAX_PROMOTIONS = (1 << 6) - 1;
+
+	private PackedMove()
+	{
+	}
+
+	/**
+	 * @param originBoard The index in the Game of the Board the Piece is on
+	 * @param origin The index of the Square the Piece is on
+	 * @param destBoard The index in the Game of the destination Board
+	 * @param dest The index of the destination Square
+	 * @param promotion The position of the promotion type in the Piece's
+	 * promotion list, or -1 for no promotion
+	 * @param isCapture Whether the Move captures
+	 * @return The packed Move
+	 */
+	public static int pack(int originBoard, int origin, int destBoard, int dest, int promotion, boolean isCapture)
+	{
+		return origin | (dest << DEST_SHIFT) | (originBoard << ORIGIN_BOARD_SHIFT) | (destBoard << DEST_BOARD_SHIFT)
+				| ((promotion + 1) << PROMOTION_SHIFT) | (isCapture ? CAPTURE : 0);
+	}
+
+	public static int getOrigin(int move)
+	{
+		return move & SQUARE_MASK;
+	}
+
+	public static int getDest(int move)
+	{
+		return (move >>> DEST_SHIFT) & SQUARE_MASK;
+	}
+
+	public static int getOriginBoard(int move)
+	{
+		return (move >>> ORIGIN_BOARD_SHIFT) & BOARD_MASK;
+	}
+
+	public static int getDestBoard(int move)
+	{
+		return (move >>> DEST_BOARD_SHIFT) & BOARD_MASK;
+	}
+
+	/**
+	 * @param move A packed Move
+	 * @return The position of the promotion type in the Piece's promotion
+	 * list, or -1 if the Move doesn't choose one
+	 */
+	public static int getPromotion(int move)
+	{
+		return ((move >>> PROMOTION_SHIFT) & MAX_PROMOTIONS) - 1;
+	}
+
+	public static boolean isCapture(int move)
+	{
+		return (move & CAPTURE) != 0;
+	}
+
+	private static final int DEST_SHIFT = 10;
+	private static final int ORIGIN_BOARD_SHIFT = 20;
+	private static final int DEST_BOARD_SHIFT = 22;
+	private static final int PROMOTION_SHIFT = 24;
+	private static final int CAPTURE = 1 << 30;
+	private static final int SQUARE_MASK = MAX_SQUARES - 1;
+	private static final int BOARD_MASK = MAX_BOARDS - 1;
+}
@@ -1,14 +1,14 @@
 package models;
 
 import java.io.Serializable;
-import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
+import logic.AttackTable;
 import logic.BidirectionalMovement;
 import logic.Messages;
 import logic.PieceMovements;
 import logic.PieceMovements.MovementDirection;
+import logic.PieceType;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
@@ -31,6 +31,8 @@ public class Piece implements Serializable
 
 		mName = name;
 		mIsLeaper = canJump;
+		mPieceMovements = movements;
+		mType = PieceType.getType(name, movements, canJump);
 
 		setBlack(isBlack);
 		mCurrentSquare = curSquare;
@@ -38,7 +40,6 @@ public class Piece implements Serializable
 		// tell the Square what Piece is on it
 		curSquare.setPiece(this);
 		mBoard = board;
-		mPieceMovements = movements;
 
 		List<Square> legalDests = Lists.newArrayList();
 		setLegalDests(legalDests);
@@ -78,8 +79,36 @@ public class Piece implements Serializable
 	}
 
 	/**
-	 * Adjust the legal destinations of this piece if they are forced to
-	 * continue protecting the objective piece from a member of the enemy team
+	 * Add a legal destination to the List, reading occupancy from the masks of
+	 * the Board being generated on instead of the Square objects.
+	 * 
+	 * @param dest The Square to be added to the List
+	 * @param bitboard The Bitboard of the Board the Square is on
+	 * @return If the Square was successfully added to the List
+	 */
+	private boolean addLegalDest(Square dest, Bitboard bitboard)
+	{
+		int index = dest.getIndex();
+		if (!bitboard.isHabitable(index))
+			return true;
+
+		if (dest.getRow() == mCurrentSquare.getRow() && dest.getCol() == mCurrentSquare.getCol())
+			return false;
+
+		if (bitboard.isOccupiedBy(index, isBlack()))
+		{
+			getGuardSquares().add(dest);
+			return false;
+		}
+
+		getLegalDests().add(dest);
+		return true;
+	}
+
+	/**
+	 * If this is the objective piece of the team to move, keep it from moving
+	 * into check and add its castling Moves. Pins on the rest of the team are
+	 * found by Game.genLegalDests in one pass from the objective piece.
 	 * 
 	 * @param objectivePiece The piece to protect
 	 * @param enemyTeam The enemy team
@@ -89,21 +118,17 @@ public class Piece implements Serializable
 		if (((isBlack() ? mBoard.getGame().getBlackRules() : mBoard.getGame().getWhiteRules()).objectivePiece(isBlack()) == this)
 				&& (mBoard.getGame().isBlackMove() == isBlack()))
 		{
-			List<Square> tmpLegalDests = getLegalDests();
-			Iterator<Square> perlimMoves = tmpLegalDests.iterator();
-
-			List<Square> legalDests = Lists.newArrayList();
-			setLegalDests(legalDests);
-
-			// make sure the you don't move into check
-			Square dest;
-			while (perlimMoves.hasNext())
+			// make sure the you don't move into check, keeping the safe
+			// destinations in place
+			List<Square> legalDests = getLegalDests();
+			int kept = 0;
+			for (int i = 0; i < legalDests.size(); i++)
 			{
-				dest = perlimMoves.next();
-
+				Square dest = legalDests.get(i);
 				if (!mBoard.getGame().isThreatened(dest, !isBlack()) && !mBoard.getGame().isGuarded(dest, !isBlack()))
-					addLegalDest(dest);
+					legalDests.set(kept++, dest);
 			}
+			truncate(legalDests, kept);
 
 			if (mBoard.getGame().isClassicChess())
 			{
@@ -120,9 +145,11 @@ public class Piece implements Serializable
 						for (int c = (rook.getSquare().getCol() + 1); c <= mCurrentSquare.getCol() && !blocked; c++)
 						{
 							if (c < mCurrentSquare.getCol())
-								blocked = mBoard.getSquare(mCurrentSquare.getRow(), c).isOccupied();
+								blocked = mBoard.getBitboard().isOccupied(mBoard.getIndex(mCurrentSquare.getRow(), c));
 
-							if (!blocked)
+							// the King only crosses the Squares from its own to
+							// the c file; the rook may pass an attacked Square
+							if (!blocked && c >= 3)
 								blocked = mBoard.getGame().isThreatened(mBoard.getSquare(mCurrentSquare.getRow(), c), !isBlack());
 						}
 
@@ -139,7 +166,7 @@ public class Piece implements Serializable
 						for (int c = (rook.getSquare().getCol() - 1); c >= mCurrentSquare.getCol() && !blocked; c--)
 						{
 							if (c > mCurrentSquare.getCol())
-								blocked = mBoard.getSquare(mCurrentSquare.getRow(), c).isOccupied();
+								blocked = mBoard.getBitboard().isOccupied(mBoard.getIndex(mCurrentSquare.getRow(), c));
 
 							if (!blocked)
 								blocked = mBoard.getGame().isThreatened(mBoard.getSquare(mCurrentSquare.getRow(), c), !isBlack());
@@ -150,130 +177,129 @@ public class Piece implements Serializable
 					}
 				}
 			}
-
-			return;
 		}
+	}
 
-		Square[] line = getLineOfSight(objectivePiece, false);
-		Piece pin = null;
-		Piece tmp;
-		boolean done = false;
-
-		if (mIsCaptured)
-			return;
+	/**
+	 * Generate the List of legal destinations for this Piece
+	 * 
+	 * @param board The Board on which to look for legal destinations
+	 * @return The number of legal destinations for this Piece
+	 */
+	public int genLegalDests(Board board)
+	{
+		int count = generateLegalDests(board);
+		board.getGame().invalidateAttackMaps();
 
-		if (line != null)
+		// remember the uncropped destinations, so they can be reused while
+		// nothing they depend on changes
+		if (mRawLegalDests == null)
 		{
-			List<Square> temp = Lists.newArrayList();
-			for (Square square : line)
-			{
-				if (mLegalDests.contains(square) || square.equals(mCurrentSquare))
-					temp.add(square);
-			}
-			line = new Square[temp.size()];
-			temp.toArray(line);
+			mRawLegalDests = Lists.newArrayList();
+			mRawGuardSquares = Lists.newArrayList();
+		}
+		copySquares(getLegalDests(), mRawLegalDests);
+		copySquares(getGuardSquares(), mRawGuardSquares);
+		mRawLegalDestsBoard = board;
+		mRawLegalDestsOrigin = mCurrentSquare;
 
-			if (mBoard.getGame().isStaleLegalDests())
-				mBoard.getGame().genLegalDests();
+		return count;
+	}
 
-			// start i at 1 since 0 is this Piece
-			for (int i = 1; i < line.length && !done; i++)
-			{
-				tmp = line[i].getPiece();
+	/**
+	 * Restore the destinations from the last call to genLegalDests, if no
+	 * Square this Piece could reach from its current Square has changed since.
+	 * Pawns are always regenerated, since their destinations also depend on
+	 * their move count and the en passant column.
+	 * 
+	 * @param board The Board on which to look for legal destinations
+	 * @param generation The number of the previous full pass over the Game
+	 * @return If the destinations were restored; if not, genLegalDests must
+	 * be called
+	 */
+	boolean reuseLegalDests(Board board, int generation)
+	{
+		if (mRawLegalDests == null || mLegalDestsGeneration != generation || mRawLegalDestsBoard != board
+				|| mRawLegalDestsOrigin != mCurrentSquare || mIsCaptured || getType().isPawn())
+		{
+			return false;
+		}
 
-				if (tmp != null)
-				{
-					// two pieces blocking the attack is not a pin
-					if (pin != null)
-					{
-						pin = null;
-						done = true;
-					}
-					// friend in the way
-					else if (tmp.isBlack() == isBlack())
-					{
-						done = true;
-					}
-					else
-					{
-						pin = tmp;
-					}
-				}
-			}
+		int origin = mCurrentSquare.getIndex();
+		long[] touched = board.getBitboard().getTouched();
+		if (Bitboard.isSet(touched, origin) || Bitboard.intersects(getAttackTable(board).getAttackMask(origin), touched))
+			return false;
 
-			if (pin != null)
-			{
-				// need to AND moves with line (includes this square)
-				List<Square> maintainPins = Arrays.asList(line);
-				pin.setPinned(this, maintainPins);
-			}
-		}
+		copySquares(mRawLegalDests, getLegalDests());
+		copySquares(mRawGuardSquares, getGuardSquares());
+		setPinnedBy(null);
+		return true;
 	}
 
 	/**
-	 * Generate the List of legal destinations for this Piece
-	 * 
-	 * @param board The Board on which to look for legal destinations
-	 * @return The number of legal destinations for this Piece
+	 * Copy one List of Squares over another. ArrayList.addAll copies its
+	 * argument into a new array first, which generation can't afford.
 	 */
-	public int genLegalDests(Board board)
+	private static void copySquares(List<Square> from, List<Square> to)
+	{
+		to.clear();
+		for (int i = 0; i < from.size(); i++)
+			to.add(from.get(i));
+	}
+
+	/**
+	 * Drop the end of a List of Squares, from the back so nothing shifts
+	 */
+	static void truncate(List<Square> squares, int size)
+	{
+		for (int i = squares.size() - 1; i >= size; i--)
+			squares.remove(i);
+	}
+
+	void setLegalDestsGeneration(int generation)
+	{
+		mLegalDestsGeneration = generation;
+	}
+
+	private int generateLegalDests(Board board)
 	{
 		// clear both ArrayLists
 		getLegalDests().clear();
 		getGuardSquares().clear();
 		setPinnedBy(null);
 
+		Bitboard bitboard = board.getBitboard();
+
 		// special genLegalDests for Pawns, to incorporate enPassant, special
 		// initial movement, and diagonal capturing
-		if (mName.equals(Messages.getString("pawn"))) //$NON-NLS-1$
+		if (getType().isPawn())
 		{
-			Square dest = null;
-			int dir, row, col;
 			setPinnedBy(null);
 			if (mIsCaptured)
 				return 0;
 
-			dir = (isBlack()) ? -1 : 1;
+			int origin = mCurrentSquare.getIndex();
+			int dir = (isBlack()) ? -1 : 1;
 
 			// take one step forward
-			if (board.isRowValid(mCurrentSquare.getRow() + dir))
-			{
-				dest = board.getSquare(mCurrentSquare.getRow() + dir, mCurrentSquare.getCol());
-				if (!dest.isOccupied() && !getLegalDests().contains(dest))
-					addLegalDest(dest);
-			}
+			int ahead = board.step(origin, dir, 0);
+			if (ahead != Board.OFF_BOARD && !bitboard.isOccupied(ahead) && !getLegalDests().contains(board.getSquare(ahead)))
+				addLegalDest(board.getSquare(ahead), bitboard);
 
 			// take an opposing piece
-			if (board.isRowValid(row = (mCurrentSquare.getRow() + dir)))
-			{
-				col = mCurrentSquare.getCol();
-
-				// if valid row
-				// and the square is occupied (by the other team)
-				// or it's not my move (so I'm threatening the square)
-				if (board.isColValid((col + 1))
-						&& ((board.getSquare(row, col + 1).isOccupied() && isBlack() != board.getSquare(row, col + 1).getPiece()
-								.isBlack())))
-				{
-					addLegalDest(board.getSquare(row, col + 1));
-				}
-				if (board.isColValid((col - 1))
-						&& ((board.getSquare(row, col - 1).isOccupied() && isBlack() != board.getSquare(row, col - 1).getPiece()
-								.isBlack())))
-				{
-					addLegalDest(board.getSquare(row, col - 1));
-				}
-			}
+			int east = board.step(origin, dir, 1);
+			int west = board.step(origin, dir, -1);
+			if (east != Board.OFF_BOARD && bitboard.isOccupiedBy(east, !isBlack()))
+				addLegalDest(board.getSquare(east), bitboard);
+			if (west != Board.OFF_BOARD && bitboard.isOccupiedBy(west, !isBlack()))
+				addLegalDest(board.getSquare(west), bitboard);
 
 			// two step
-			if (getMoveCount() == 0 && board.isRowValid((mCurrentSquare.getRow() + (2 * dir))))
+			int twoAhead = board.step(origin, 2 * dir, 0);
+			if (getMoveCount() == 0 && twoAhead != Board.OFF_BOARD && !bitboard.isOccupied(twoAhead) && !bitboard.isOccupied(ahead)
+					&& !getLegalDests().contains(board.getSquare(twoAhead)))
 			{
-				dest = board.getSquare((mCurrentSquare.getRow() + (2 * dir)), mCurrentSquare.getCol());
-				if (!dest.isOccupied() && !board.getSquare((mCurrentSquare.getRow() + dir), mCurrentSquare.getCol()).isOccupied()
-						&& !getLegalDests().contains(dest))
-				{
-					addLegalDest(dest);
-				}
+				addLegalDest(board.getSquare(twoAhead), bitboard);
 			}
 
 			if (board.getGame().isClassicChess())
@@ -282,333 +308,82 @@ public class Piece implements Serializable
 				if (isBlack() == board.isBlackTurn()
 						&& ((!isBlack() && mCurrentSquare.getRow() == 5) || (isBlack() && mCurrentSquare.getRow() == 4)))
 				{
-					col = mCurrentSquare.getCol();
-					row = isBlack() ? mCurrentSquare.getRow() - 1 : mCurrentSquare.getRow() + 1;
-					if (board.isColValid(col + 1) && board.getEnpassantCol() == (col + 1))
-						addLegalDest(board.getSquare(row, (col + 1)));
-
-					if (board.isColValid(col - 1) && board.getEnpassantCol() == (col - 1))
-						addLegalDest(board.getSquare(row, (col - 1)));
+					if (east != Board.OFF_BOARD && board.getSquare(east).getCol() == board.getEnpassantCol())
+						addLegalDest(board.getSquare(east), bitboard);
+					if (west != Board.OFF_BOARD && board.getSquare(west).getCol() == board.getEnpassantCol())
+						addLegalDest(board.getSquare(west), bitboard);
 				}
 			}
 
 			return getLegalDests().size();
 		}
 
-		boolean done = false;
-		Square dest;
-		int distance;
-		boolean wraparound = board.isWrapAround();
-
-		// east
-		distance = mPieceMovements.getDistance(MovementDirection.EAST);
-		int northMax = distance + mCurrentSquare.getCol();
-		if (northMax > board.getMaxCol() || distance == PieceMovements.UNLIMITED)
-		{
-			if (!wraparound)
-				northMax = board.getMaxCol();
-		}
-		for (int c = mCurrentSquare.getCol() + 1; ((distance == PieceMovements.UNLIMITED && wraparound) ? true : c <= northMax)
-				&& !done; c++)
-		{
-			int j = c;
-			if (wraparound)
-			{
-				if (j > board.getMaxCol())
-					j = j % board.getMaxCol();
-			}
-
-			if (j == 0)
-				break;
+		AttackTable table = getAttackTable(board);
+		int origin = mCurrentSquare.getIndex();
+		long[] occupied = bitboard.getOccupied();
+		int[][] rays = table.getRays(origin);
+		long[][] rayMasks = table.getRayMasks(origin);
 
-			dest = board.getSquare(mCurrentSquare.getRow(), j);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
+		// keep going past the enemy objective piece when it isn't our turn,
+		// so it can't escape by moving along the ray
+		Piece passThrough = board.isBlackTurn() != isBlack() ? board.getGame().getOtherObjectivePiece(isBlack()) : null;
 
-		// west
-		distance = mPieceMovements.getDistance(MovementDirection.WEST);
-		int southMax = mCurrentSquare.getCol() - distance;
-		if (southMax < 1 || distance == PieceMovements.UNLIMITED)
+		for (int d = 0; d < rays.length; d++)
 		{
-			if (!wraparound)
-				southMax = 1;
-		}
-		for (int c = mCurrentSquare.getCol() - 1; ((distance == PieceMovements.UNLIMITED && wraparound) ? true : c >= southMax)
-				&& !done; c--)
-		{
-			int j = c;
-			if (wraparound)
+			int[] ray = rays[d];
+
+			// nothing on the ray can stop us, so every Square on it is a
+			// destination
+			if (mIsLeaper || !Bitboard.intersects(rayMasks[d], occupied))
 			{
-				if (j < 1)
-					j = board.getMaxCol() + j;
+				for (int target : ray)
+				{
+					if (!addLegalDest(board.getSquare(target), bitboard) && !mIsLeaper)
+						break;
+				}
+				continue;
 			}
 
-			dest = board.getSquare(mCurrentSquare.getRow(), j);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// north
-		distance = mPieceMovements.getDistance(MovementDirection.NORTH);
-		int eastMax = distance + mCurrentSquare.getRow();
-
-		if (eastMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
-			eastMax = board.getMaxRow();
-
-		for (int r = mCurrentSquare.getRow() + 1; (r <= eastMax) && !done; r++)
-		{
-			int j = r;
-			dest = board.getSquare(j, mCurrentSquare.getCol());
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// south
-		distance = mPieceMovements.getDistance(MovementDirection.SOUTH);
-		int westMax = mCurrentSquare.getRow() - distance;
-
-		if (westMax < 1 || distance == PieceMovements.UNLIMITED)
-			westMax = 1;
-
-		for (int r = mCurrentSquare.getRow() - 1; (r >= westMax) && !done; r--)
-		{
-			int j = r;
-			dest = board.getSquare(j, mCurrentSquare.getCol());
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// northeast
-		distance = mPieceMovements.getDistance(MovementDirection.NORTHEAST);
-		int neMax = ((mCurrentSquare.getRow() >= mCurrentSquare.getCol()) ? mCurrentSquare.getRow() : mCurrentSquare.getCol())
-				+ distance;
-
-		if (neMax >= board.getMaxCol() || distance == PieceMovements.UNLIMITED)
-			neMax = board.getMaxCol();
-		if (neMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
-			neMax = board.getMaxRow();
-
-		for (int r = mCurrentSquare.getRow() + 1, c = mCurrentSquare.getCol() + 1; r <= neMax && c <= neMax && !done; r++, c++)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// southeast
-		distance = mPieceMovements.getDistance(MovementDirection.SOUTHEAST);
-		int eastMaximum = mCurrentSquare.getCol() + distance;
-
-		if (eastMaximum >= board.getMaxCol() || distance == PieceMovements.UNLIMITED)
-			eastMaximum = board.getMaxCol();
-
-		int southMin = mCurrentSquare.getRow() - distance;
-
-		if (southMin <= 1 || distance == PieceMovements.UNLIMITED)
-			southMin = 1;
-
-		for (int r = mCurrentSquare.getRow() - 1, c = mCurrentSquare.getCol() + 1; r >= southMin && c <= eastMaximum && !done; r--, c++)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// northwest
-		distance = mPieceMovements.getDistance(MovementDirection.NORTHWEST);
-		int westMin = mCurrentSquare.getCol() - distance;
-		if (westMin <= 1 || distance == PieceMovements.UNLIMITED)
-			westMin = 1;
-
-		int NorthMax = mCurrentSquare.getRow() + distance;
-		if (NorthMax >= board.getMaxRow() || distance == PieceMovements.UNLIMITED)
-			NorthMax = board.getMaxRow();
-
-		for (int r = mCurrentSquare.getRow() + 1, c = mCurrentSquare.getCol() - 1; r <= NorthMax && c >= westMin && !done; r++, c--)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
-		}
-		done = false;
-
-		// southwest
-		distance = mPieceMovements.getDistance(MovementDirection.SOUTHWEST);
-		westMin = mCurrentSquare.getCol() - distance;
-		if (westMin <= 1 || distance == PieceMovements.UNLIMITED)
-			westMin = 1;
-
-		southMin = mCurrentSquare.getRow() - distance;
-		if (southMin <= 1 || distance == PieceMovements.UNLIMITED)
-			southMin = 1;
+			for (int target : ray)
+			{
+				Square dest = board.getSquare(target);
+				if (!addLegalDest(dest, bitboard))
+					break;
 
-		for (int r = mCurrentSquare.getRow() - 1, c = mCurrentSquare.getCol() - 1; r >= southMin && c >= westMin && !done; r--, c--)
-		{
-			dest = board.getSquare(r, c);
-			done = !addLegalDest(dest);
-			done = mIsLeaper ? false : (done || (dest.isOccupied() && !(board.isBlackTurn() != isBlack() && dest.getPiece().equals(
-					board.getGame().getOtherObjectivePiece(isBlack())))));
+				if (Bitboard.isSet(occupied, target) && (passThrough == null || dest.getPiece() != passThrough))
+					break;
+			}
 		}
 
 		/*
 		 * Knight / Leaper Movements
 		 * 
-		 * Store of Knight Movements are as followed:
-		 * 
 		 * A Piece can move x File by y Rank squares at a time.
 		 * 
 		 * IE: A knight can move 1 by 2 or 2 by 1, but not 1 by 1 or 2 by 2
 		 */
-		for (BidirectionalMovement movement : mPieceMovements.getBidirectionalMovements())
-		{
-			int f, r;
-			int rank = movement.getRowDistance();
-			int file = movement.getColumnDistance();
-
-			// one o'clock
-			f = (mCurrentSquare.getRow() + file);
-			r = (mCurrentSquare.getCol() + rank);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// two o'clock
-			f = (mCurrentSquare.getRow() + rank);
-			r = (mCurrentSquare.getCol() + file);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// four o'clock
-			f = (mCurrentSquare.getRow() + file);
-			r = (mCurrentSquare.getCol() - rank);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// five o'clock
-			f = (mCurrentSquare.getRow() + rank);
-			r = (mCurrentSquare.getCol() - file);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// seven o'clock
-			f = (mCurrentSquare.getRow() - file);
-			r = (mCurrentSquare.getCol() - rank);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// eight o'clock
-			f = (mCurrentSquare.getRow() - rank);
-			r = (mCurrentSquare.getCol() - file);
-			if (wraparound)
-			{
-				if (r < 1)
-					r = board.getMaxCol() + r;
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// ten o'clock
-			f = (mCurrentSquare.getRow() - file);
-			r = (mCurrentSquare.getCol() + rank);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-
-			// eleven o'clock
-			f = (mCurrentSquare.getRow() - rank);
-			r = (mCurrentSquare.getCol() + file);
-			if (wraparound)
-			{
-				if (r > board.getMaxCol() + 1)
-					r = r % board.getMaxCol();
-			}
-
-			if (board.isRowValid(f) && board.isColValid(r))
-				addLegalDest(board.getSquare(f, r));
-		}
+		for (int target : table.getLeaps(origin))
+			addLegalDest(board.getSquare(target), bitboard);
 
 		return getLegalDests().size();
 	}
 
 	/**
-	 * Generate legal destinations that will save the King piece from check
+	 * Get the precomputed movement geometry of this Piece for the given Board.
+	 * The table is looked up once and kept until the Piece is asked about a
+	 * different Board.
 	 * 
-	 * @param king The King piece
-	 * @param threat The Piece threatening the King piece
+	 * @param board The Board this Piece is generating destinations on
+	 * @return The AttackTable for this Piece's movements on that Board
 	 */
-	public void genLegalDestsSaveKing(Piece king, Piece threat)
+	public AttackTable getAttackTable(Board board)
 	{
-		if ((isBlack() ? mBoard.getGame().getBlackRules() : mBoard.getGame().getWhiteRules()).objectivePiece(isBlack()) == this)
-			return;
-		if (king == null)
-			return;
-		Iterator<Square> oldLegalDests = getLegalDests().iterator();
-		Square sq = null;
-
-		if (mIsCaptured)
-			return;
-
-		List<Square> legalDests = Lists.newArrayList();
-		setLegalDests(legalDests);
-
-		while (oldLegalDests.hasNext())
+		if (mAttackTable == null || mAttackTableBoard != board)
 		{
-			sq = oldLegalDests.next();
-
-			if (threat.isBlockable(sq, king))
-				getLegalDests().add(sq);
-			else if (sq.equals(threat.getSquare()))
-				getLegalDests().add(sq);
+			mAttackTable = getType().getAttackTable(board.getMaxRow(), board.getMaxCol(), board.isWrapAround());
+			mAttackTableBoard = board;
 		}
+		return mAttackTable;
 	}
 
 	public Board getBoard()
@@ -629,192 +404,6 @@ public class Piece implements Serializable
 		return mLegalDests;
 	}
 
-	/**
-	 * Get the Squares between this piece and the target piece
-	 * 
-	 * @param targetRow The row of the target
-	 * @param targetCol The column of the target
-	 * @param inclusive Whether or not to include the target piece square
-	 * @return The Squares between this Piece and the target piece
-	 */
-	public Square[] getLineOfSight(int targetRow, int targetCol, boolean inclusive)
-	{
-		if (mName.equals(Messages.getString("pawn"))) //$NON-NLS-1$
-			return null;
-		if ((mIsBlack ? mBoard.getGame().getBlackRules() : mBoard.getGame().getWhiteRules()).objectivePiece(mIsBlack).equals(this))
-			return null;
-		Square[] returnSet = null;
-		List<Square> returnTemp = Lists.newArrayList();
-		int originCol = getSquare().getCol();
-		int originRow = getSquare().getRow();
-		int r = 0;// Row
-		int c = 0;// Column
-		int i = 0;// Return Square counter
-
-		// Same column
-		if (originCol == targetCol)
-		{
-			// North
-			if (originRow < targetRow && canAttack(targetRow, targetCol, MovementDirection.NORTH))
-			{
-				for (r = (originRow + 1); r <= targetRow; r++)
-				{
-					if (r != targetRow || inclusive)
-						returnTemp.add(i++, mBoard.getSquare(r, originCol));
-				}
-			}
-			// South
-			else
-			{
-				if (canAttack(targetRow, targetCol, MovementDirection.SOUTH))
-				{
-					for (r = (originRow - 1); r >= targetRow; r--)
-					{
-						if (r != targetRow || inclusive)
-							returnTemp.add(i++, mBoard.getSquare(r, originCol));
-					}
-				}
-			}
-		}
-
-		// Same Row
-		else if (originRow == targetRow)
-		{
-			// East
-			if (originCol < targetCol && canAttack(targetRow, targetCol, MovementDirection.EAST))
-			{
-				for (c = (originCol + 1); c <= targetCol; c++)
-				{
-					if (c != targetCol || inclusive)
-						returnTemp.add(i++, mBoard.getSquare(originRow, c));
-				}
-			}
-			// West
-			else
-			{
-				if (canAttack(targetRow, targetCol, MovementDirection.WEST))
-				{
-					for (c = (originCol - 1); c >= targetCol; c--)
-					{
-						if (c != targetCol || inclusive)
-							returnTemp.add(i++, mBoard.getSquare(originRow, c));
-					}
-				}
-			}
-		}
-
-		// First diagonal
-		else if ((originCol - targetCol) == (originRow - targetRow))
-		{
-			// Northeast
-			if (originRow < targetRow && canAttack(targetRow, targetCol, MovementDirection.NORTHEAST))
-			{
-				for (c = (originCol + 1), r = (originRow + 1); r <= targetRow; c++, r++)
-				{
-					if (r != targetRow || inclusive)
-						returnTemp.add(i++, mBoard.getSquare(r, c));
-				}
-			}
-			// Southwest
-			else
-			{
-				if (canAttack(targetRow, targetCol, MovementDirection.SOUTHWEST))
-				{
-					for (c = (originCol - 1), r = (originRow - 1); r >= targetRow; c--, r--)
-					{
-						if (r != targetRow || inclusive)
-							returnTemp.add(i++, mBoard.getSquare(r, c));
-					}
-				}
-			}
-		}
-		// Second diagonal
-		else if ((originCol - targetCol) == ((originRow - targetRow) * -1))
-		{
-			// Northwest
-			if ((originRow - targetRow) < 0 && canAttack(targetRow, targetCol, MovementDirection.NORTHWEST))
-			{
-				for (c = (originCol - 1), r = (originRow + 1); r <= targetRow; c--, r++)
-				{
-					if (r != targetRow || inclusive)
-						returnTemp.add(i++, mBoard.getSquare(r, c));
-				}
-			}
-			// Southeast
-			else
-			{
-				if (canAttack(targetRow, targetCol, MovementDirection.SOUTHEAST))
-				{
-					for (c = (originCol + 1), r = (originRow - 1); r >= targetRow; c++, r--)
-					{
-						if (r != targetRow || inclusive)
-							returnTemp.add(i++, mBoard.getSquare(r, c));
-					}
-				}
-			}
-		}
-
-		if (i != 0)
-		{// If i is zero, they weren't in line so return the null array
-			returnSet = new Square[i + 1];
-			returnSet[0] = getSquare();
-
-			int j = 1;
-			for (Square sq : returnTemp)
-				returnSet[j++] = sq;
-		}
-
-		return returnSet;
-	}
-
-	/**
-	 * @param destRow The row you wish to move to
-	 * @param destCol The column you wish to move to
-	 * @param direction The direction that space is from you.
-	 * @return true if you are allowed to take that space and/or the piece on
-	 * it, false otherwise
-	 */
-	public boolean canAttack(int destRow, int destCol, MovementDirection direction)
-	{
-		int distance = mPieceMovements.getDistance(direction);
-		if (distance == PieceMovements.UNLIMITED)
-			return true;
-
-		switch (direction)
-		{
-		case SOUTH:
-			return (destRow - mCurrentSquare.getRow()) < distance;
-		case NORTH:
-			return (mCurrentSquare.getRow() - destRow) < distance;
-		case EAST:
-			return (destCol - mCurrentSquare.getCol()) < distance;
-		case WEST:
-			return (mCurrentSquare.getCol() - destCol) < distance;
-		case NORTHEAST:
-			return (mCurrentSquare.getCol() - destCol) < distance;
-		case SOUTHEAST:
-			return (mCurrentSquare.getCol() - destCol) < distance;
-		case NORTHWEST:
-			return (destCol - mCurrentSquare.getCol()) < distance;
-		case SOUTHWEST:
-			return (destCol - mCurrentSquare.getCol()) < distance;
-		default:
-			throw new IllegalArgumentException("Unknown movement direction character");
-		}
-	}
-
-	/**
-	 * Get the Squares between this piece and the target piece
-	 * 
-	 * @param target The piece in the line of sight
-	 * @param inclusive Whether or not to include the target piece square
-	 * @return The Squares between this Piece and the target piece
-	 */
-	public Square[] getLineOfSight(Piece target, boolean inclusive)
-	{
-		return getLineOfSight(target.getSquare().getRow(), target.getSquare().getCol(), inclusive);
-	}
-
 	public int getMoveCount()
 	{
 		return mMoveCount;
@@ -860,7 +449,7 @@ public class Piece implements Serializable
 		builder.append("<tr> <td align=\"center\">"); //$NON-NLS-1$
 		builder.append(directionToTooltip(mPieceMovements.getDistance(MovementDirection.WEST)));
 		builder.append("</td><td align=\"center\">"); //$NON-NLS-1$
-		builder.append(mName.equals(Messages.getString("Piece.knight")) ? Messages.getString("Piece.knightChar") : mName.charAt(0)); //$NON-NLS-1$ //$NON-NLS-2$
+		builder.append(getType().isKnight() ? Messages.getString("Piece.knightChar") : mName.charAt(0)); //$NON-NLS-1$
 		builder.append("</td><td align=\"center\">"); //$NON-NLS-1$
 		builder.append(directionToTooltip(mPieceMovements.getDistance(MovementDirection.EAST)));
 		builder.append("</td></tr>"); //$NON-NLS-1$
@@ -911,30 +500,6 @@ public class Piece implements Serializable
 		return mIsBlack;
 	}
 
-	/**
-	 * Check if the given Square can be saved from the given target by this
-	 * piece
-	 * 
-	 * @param toSave The Square to save
-	 * @param toBlock The Piece to block
-	 * @return If the given Square can be saved
-	 */
-	public boolean isBlockable(Square toSave, Piece toBlock)
-	{
-		boolean blockable = false;
-		Square[] lineOfSight = null;
-
-		if (mBoard.getGame().isStaleLegalDests())
-			mBoard.getGame().genLegalDests();
-
-		lineOfSight = getLineOfSight(toBlock, false);
-		int i = 0;
-		while (!blockable && lineOfSight != null && i < lineOfSight.length)
-			blockable = (toSave.equals(lineOfSight[i++]));
-
-		return blockable;
-	}
-
 	public boolean isCaptured()
 	{
 		return mIsCaptured;
@@ -967,7 +532,7 @@ public class Piece implements Serializable
 	 */
 	public boolean isLegalAttack(Square threatened)
 	{
-		if (mName.equals(Messages.getString("pawn"))) //$NON-NLS-1$
+		if (getType().isPawn())
 		{
 			if (mBoard.getGame().isStaleLegalDests())
 				mBoard.getGame().genLegalDests();
@@ -1005,6 +570,9 @@ public class Piece implements Serializable
 	public void setBlack(boolean isBlack)
 	{
 		mIsBlack = isBlack;
+		// keep the team masks of the Board in sync when a Piece changes sides
+		if (mCurrentSquare != null && mCurrentSquare.getPiece() == this)
+			mCurrentSquare.pieceChanged();
 	}
 
 	public void setIsCaptured(boolean isCaptured)
@@ -1016,6 +584,22 @@ public class Piece implements Serializable
 		mIsCaptured = isCaptured;
 	}
 
+	/**
+	 * Clear the destinations of a Piece that has just been moved, captured
+	 * or put back, and mark whether it is captured. Unlike setIsCaptured this
+	 * doesn't regenerate stale legal destinations first, which Game.makeMove
+	 * and Game.unmakeMove can't afford halfway through a Move.
+	 * 
+	 * @param isCaptured Whether the Piece is now captured
+	 */
+	void resetDests(boolean isCaptured)
+	{
+		mLegalDests.clear();
+		mGuardSquares.clear();
+		setPinnedBy(null);
+		mIsCaptured = isCaptured;
+	}
+
 	public void setGuardSquares(List<Square> guardSquares)
 	{
 		mGuardSquares = guardSquares;
@@ -1059,6 +643,49 @@ public class Piece implements Serializable
 		mCurrentSquare = curSquare;
 	}
 
+	public PieceMovements getPieceMovements()
+	{
+		return mPieceMovements;
+	}
+
+	public boolean isLeaper()
+	{
+		return mIsLeaper;
+	}
+
+	/**
+	 * @return The interned type of this Piece, which move generation branches
+	 * on instead of comparing names
+	 */
+	public PieceType getType()
+	{
+		// the type isn't serialized, so a copied Piece looks it up again
+		if (mType == null)
+			mType = PieceType.getType(mName, mPieceMovements, mIsLeaper);
+		return mType;
+	}
+
+	/**
+	 * Turn this Piece into another type in place, keeping its team, Square
+	 * and move count. Game.makeMove promotes this way, so search doesn't
+	 * build a new Piece for every promotion it tries.
+	 * 
+	 * @param type The new type
+	 * @param promotesTo The types the new type promotes to
+	 */
+	void setType(PieceType type, List<String> promotesTo)
+	{
+		mType = type;
+		mName = type.getName();
+		mPieceMovements = type.getMovements();
+		mIsLeaper = type.isLeaper();
+		mPromotesTo = promotesTo;
+		mAttackTable = null;
+		mRawLegalDestsBoard = null;
+		if (mCurrentSquare != null && mCurrentSquare.getPiece() == this)
+			mCurrentSquare.pieceChanged();
+	}
+
 	public List<String> getPromotesTo()
 	{
 		return mPromotesTo;
@@ -1085,4 +712,13 @@ public class Piece implements Serializable
 	private Piece mPinnedBy;
 	private Square mOriginalSquare;
 	private List<String> mPromotesTo = Lists.newArrayList();
+
+	private transient PieceType mType;
+	private transient AttackTable mAttackTable;
+	private transient Board mAttackTableBoard;
+	private transient List<Square> mRawLegalDests;
+	private transient List<Square> mRawGuardSquares;
+	private transient Board mRawLegalDestsBoard;
+	private transient Square mRawLegalDestsOrigin;
+	private transient int mLegalDestsGeneration;
 }
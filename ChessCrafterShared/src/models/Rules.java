@@ -44,21 +44,25 @@ public class Rules implements Serializable
 	public void addAfterMove(AfterMove afterMove)
 	{
 		mAfterMoves.add(afterMove);
+		mAfterMoveArray = null;
 	}
 
 	public void addCropLegalDests(CropLegalDestinations cropLegalDests)
 	{
 		mCropLegalDests.add(cropLegalDests);
+		mCropLegalDestsArray = null;
 	}
 
 	public void clearCropLegalDests()
 	{
 		mCropLegalDests.clear();
+		mCropLegalDestsArray = null;
 	}
 
 	public void clearAfterMoves()
 	{
 		mAfterMoves.clear();
+		mAfterMoveArray = null;
 	}
 
 	public void addEndOfGame(EndOfGame endOfGame)
@@ -92,10 +96,39 @@ public class Rules implements Serializable
 			rule.performAfterMoveAction(move);
 	}
 
+	/**
+	 * Perform the AfterMove rules for a Move made with Game.makeMove
+	 * 
+	 * @param game The Game the Move was made in
+	 * @param undo The record of the Move
+	 */
+	public void afterMove(Game game, UndoRecord undo)
+	{
+		AfterMove[] rules = getAfterMoveArray();
+		for (int i = 0; i < rules.length; i++)
+			rules[i].apply(game, undo);
+	}
+
+	/**
+	 * Revert the AfterMove rules for a Move taken back with Game.unmakeMove,
+	 * in the opposite order they were performed
+	 * 
+	 * @param game The Game the Move was made in
+	 * @param undo The record of the Move
+	 */
+	public void undoAfterMove(Game game, UndoRecord undo)
+	{
+		AfterMove[] rules = getAfterMoveArray();
+		for (int i = rules.length - 1; i >= 0; i--)
+			rules[i].revert(game, undo);
+	}
+
 	public void cropLegalDests(Piece movingObjectivePiece, Piece pieceToAdjust, List<Piece> enemyTeam)
 	{
-		for (CropLegalDestinations cropLegalDests : mCropLegalDests)
-			cropLegalDests.cropLegalDestinations(movingObjectivePiece, pieceToAdjust, enemyTeam);
+		if (mCropLegalDestsArray == null)
+			mCropLegalDestsArray = mCropLegalDests.toArray(new CropLegalDestinations[mCropLegalDests.size()]);
+		for (int i = 0; i < mCropLegalDestsArray.length; i++)
+			mCropLegalDestsArray[i].cropLegalDestinations(movingObjectivePiece, pieceToAdjust, enemyTeam);
 	}
 
 	public void checkEndOfGame(Piece objectivePiece)
@@ -113,6 +146,19 @@ public class Rules implements Serializable
 		return mGetPromotionSquares.getPromotionSquares(toPromote);
 	}
 
+	/**
+	 * Check if a Piece promotes by moving to a Square, without building the
+	 * List of promotion Squares
+	 * 
+	 * @param toPromote The moving Piece
+	 * @param dest The Square it moves to
+	 * @return If the Piece may be promoted there
+	 */
+	public boolean isPromotionSquare(Piece toPromote, Square dest)
+	{
+		return mPromote != Promote.NO_PROMOTIONS && mGetPromotionSquares.isPromotionSquare(toPromote, dest);
+	}
+
 	public boolean nextTurn()
 	{
 		return mNextTurn.getNextTurn();
@@ -128,6 +174,14 @@ public class Rules implements Serializable
 		return mObjectivePiece.getObjectivePiece(isBlack);
 	}
 
+	/**
+	 * Look the objective pieces up again the next time they are asked for
+	 */
+	public void invalidateObjectivePiece()
+	{
+		mObjectivePiece.invalidate();
+	}
+
 	public Piece promote(Piece pieceToPromote, boolean pieceCanBePromoted, String pieceTypeToPromoteFrom)
 	{
 		return mPromote.promotePiece(pieceToPromote, pieceCanBePromoted, pieceTypeToPromoteFrom);
@@ -137,7 +191,6 @@ public class Rules implements Serializable
 	{
 		mEndOfGame.setGame(game);
 		mObjectivePiece.setGame(game);
-		mGetBoard.setGame(game);
 		// mGetPromotionSquares.setGame(game);
 		mPromote.setGame(game);
 
@@ -191,6 +244,16 @@ public class Rules implements Serializable
 		return !(mAfterMoves.contains(AfterMove.CAPTURER_PLACES_CAPTURED) || mAfterMoves.contains(AfterMove.CAPTURER_STEALS_CAPTURED));
 	}
 
+	/**
+	 * @return If adjustTeamLegalDestinations may change one Piece's
+	 * destinations because of another's, so the team has to be generated as
+	 * a whole
+	 */
+	public boolean adjustsTeamLegalDestinations()
+	{
+		return mAdjustTeamLegalDestinations != AdjustTeamLegalDestinations.CLASSIC;
+	}
+
 	public boolean getCaptureMandatory()
 	{
 		return mAdjustTeamLegalDestinations.equals(AdjustTeamLegalDestinations.MUST_CAPTURE);
@@ -216,6 +279,11 @@ public class Rules implements Serializable
 		return mAfterMoves.contains(AfterMove.CAPTURER_STEALS_CAPTURED);
 	}
 
+	public boolean getCapturerSwapsColor()
+	{
+		return mAfterMoves.contains(AfterMove.SWAP_COLOR_OF_CAPTURER);
+	}
+
 	public boolean getNoAfterMovesSelected()
 	{
 		return (!getCapturedReturnToStart()) && (!getPiecesDrop()) && (!getPiecesDropAndSwitch());
@@ -231,6 +299,14 @@ public class Rules implements Serializable
 		return mGetBoard.equals(GetBoard.OPPOSITE_BOARD);
 	}
 
+	private AfterMove[] getAfterMoveArray()
+	{
+		// EnumSet iterators are allocated per loop, which search can't afford
+		if (mAfterMoveArray == null)
+			mAfterMoveArray = mAfterMoves.toArray(new AfterMove[mAfterMoves.size()]);
+		return mAfterMoveArray;
+	}
+
 	private static final long serialVersionUID = -7895448383101471186L;
 
 	private NextTurn mNextTurn;
@@ -242,4 +318,7 @@ public class Rules implements Serializable
 	private Promote mPromote;
 	private GetPromotionSquares mGetPromotionSquares;
 	private AdjustTeamLegalDestinations mAdjustTeamLegalDestinations;
+
+	private transient AfterMove[] mAfterMoveArray;
+	private transient CropLegalDestinations[] mCropLegalDestsArray;
 }
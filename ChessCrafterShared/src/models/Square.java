@@ -75,6 +75,8 @@ public class Square implements Serializable
 	public void setIsHabitable(boolean isHabitable)
 	{
 		mIsHabitable = isHabitable;
+		if (mBoard != null)
+			mBoard.getBitboard().setHabitable(mIndex, isHabitable);
 	}
 
 	/**
@@ -89,10 +91,54 @@ public class Square implements Serializable
 		mPiece = p;
 		if (mPiece != null)
 			mPiece.setSquare(this);
+		if (mBoard != null)
+			mBoard.getBitboard().update(mIndex, mPiece);
 
 		return oldPiece;
 	}
 
+	/**
+	 * Get the index of this Square in the masks of its Board's Bitboard
+	 * 
+	 * @return The index of this Square
+	 */
+	public int getIndex()
+	{
+		return mIndex;
+	}
+
+	/**
+	 * @return The Board which owns this Square, or null if it hasn't been
+	 * attached to one yet
+	 */
+	Board getBoard()
+	{
+		return mBoard;
+	}
+
+	/**
+	 * Tell the Bitboard of the owning Board that the Piece on this Square
+	 * changed in place, for example by switching teams.
+	 */
+	void pieceChanged()
+	{
+		if (mBoard != null)
+			mBoard.getBitboard().update(mIndex, mPiece);
+	}
+
+	/**
+	 * Attach this Square to the Board which owns it, so that changes to the
+	 * occupying Piece are mirrored in the Board's Bitboard.
+	 * 
+	 * @param board The Board which owns this Square
+	 * @param index The index of this Square on the Board
+	 */
+	void attach(Board board, int index)
+	{
+		mBoard = board;
+		mIndex = index;
+	}
+
 	public void setCol(int col)
 	{
 		// TODO Make sure they're setting a valid coordinate
@@ -136,6 +182,8 @@ public class Square implements Serializable
 	private int mRow;// File
 	private int mColumn;// Rank
 	private boolean mIsHabitable;
+	private int mIndex;
 
+	private transient Board mBoard;
 	private SquareStateListener mListener;
 }
@@ -0,0 +1,22 @@
+package models;
+
+import logic.PieceType;
+
+/**
+ * SquareWeights.java
+ * 
+ * A value for every Piece type on every Square, such as an evaluation's
+ * material and piece-square tables. A Bitboard given one keeps the total over
+ * the Pieces on its Board as they come and go, so the total never has to be
+ * counted up again.
+ */
+public interface SquareWeights
+{
+	/**
+	 * @param type The type of the Piece
+	 * @param isBlack The team of the Piece
+	 * @param index The index of the Square the Piece is on
+	 * @return The value of the Piece there to its own team
+	 */
+	int getWeight(PieceType type, boolean isBlack, int index);
+}
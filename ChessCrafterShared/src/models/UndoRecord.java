@@ -0,0 +1,187 @@
+package models;
+
+import java.util.List;
+
+import logic.Move;
+import logic.PieceType;
+import rules.NextTurn;
+
+/**
+ * UndoRecord.java
+ * 
+ * Everything Game.makeMove changes that Game.unmakeMove needs to put back.
+ * Records are meant to be allocated once per search ply and reused for every
+ * Move tried at that ply, so they hold plain references and counters instead
+ * of building anything new.
+ */
+public final class UndoRecord
+{
+	/**
+	 * The most Pieces one atomic capture can remove: the eight neighbors of
+	 * the captured Piece plus the capturer
+	 */
+	public static final int MAX_EXPLODED = 9;
+
+	public UndoRecord()
+	{
+		mExploded = new Piece[MAX_EXPLODED];
+		mTurnState = new int[NextTurn.STATE_SIZE];
+	}
+
+	/**
+	 * Forget the previous Move, so the record can be filled again
+	 */
+	void clear()
+	{
+		mPiece = null;
+		mBoard = null;
+		mOrigin = null;
+		mDest = null;
+		mCaptured = null;
+		mCaptureSquare = null;
+		mRookOrigin = null;
+		mRookDest = null;
+		mMoverRules = null;
+		mLastMove = null;
+		mPromotedFromType = null;
+		mPromotedFromPromotesTo = null;
+		mRemoved = null;
+		mRemovedIndex = -1;
+		mSwappedIndex = -1;
+		for (int i = 0; i < mExplodedCount; i++)
+			mExploded[i] = null;
+		mExplodedCount = 0;
+	}
+
+	/**
+	 * @return The Piece that moved
+	 */
+	public Piece getPiece()
+	{
+		return mPiece;
+	}
+
+	/**
+	 * @return The Square the moving Piece started on
+	 */
+	public Square getOrigin()
+	{
+		return mOrigin;
+	}
+
+	/**
+	 * @return The Square the moving Piece went to
+	 */
+	public Square getDest()
+	{
+		return mDest;
+	}
+
+	/**
+	 * @return The Piece that was captured, or null
+	 */
+	public Piece getCaptured()
+	{
+		return mCaptured;
+	}
+
+	/**
+	 * @return The Square the captured Piece was taken from. This is not the
+	 * destination for en passant captures.
+	 */
+	public Square getCaptureSquare()
+	{
+		return mCaptureSquare;
+	}
+
+	/**
+	 * @return If the moving Piece was promoted
+	 */
+	public boolean isPromotion()
+	{
+		return mPromotedFromType != null;
+	}
+
+	/**
+	 * @return The Piece an AfterMove rule took off the Board to make room,
+	 * or null
+	 */
+	public Piece getRemoved()
+	{
+		return mRemoved;
+	}
+
+	/**
+	 * Record a Piece an AfterMove rule took off the Board and out of its team
+	 * 
+	 * @param removed The Piece that was removed
+	 * @param teamIndex Its index in its team before it was removed
+	 */
+	public void setRemoved(Piece removed, int teamIndex)
+	{
+		mRemoved = removed;
+		mRemovedIndex = teamIndex;
+	}
+
+	public int getRemovedIndex()
+	{
+		return mRemovedIndex;
+	}
+
+	/**
+	 * @return The index a Piece had in its old team before an AfterMove rule
+	 * moved it to the other team, or -1
+	 */
+	public int getSwappedIndex()
+	{
+		return mSwappedIndex;
+	}
+
+	public void setSwappedIndex(int swappedIndex)
+	{
+		mSwappedIndex = swappedIndex;
+	}
+
+	/**
+	 * Record a Piece removed by an atomic capture
+	 * 
+	 * @param piece The Piece that exploded
+	 */
+	public void addExploded(Piece piece)
+	{
+		mExploded[mExplodedCount++] = piece;
+	}
+
+	public int getExplodedCount()
+	{
+		return mExplodedCount;
+	}
+
+	public Piece getExploded(int index)
+	{
+		return mExploded[index];
+	}
+
+	Piece mPiece;
+	Board mBoard;
+	Square mOrigin;
+	Square mDest;
+	Piece mCaptured;
+	Square mCaptureSquare;
+	Square mRookOrigin;
+	Square mRookDest;
+	Rules mMoverRules;
+	Move mLastMove;
+	int mEnpassantCol;
+	int mMoveCount;
+	final int[] mTurnState;
+
+	PieceType mPromotedFromType;
+	List<String> mPromotedFromPromotesTo;
+
+	private Piece mRemoved;
+	private int mRemovedIndex = -1;
+	private int mSwappedIndex = -1;
+	private final Piece[] mExploded;
+	private int mExplodedCount;
+}
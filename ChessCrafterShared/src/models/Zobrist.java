@@ -0,0 +1,127 @@
+package models;
+
+/**
+ * Zobrist.java
+ * 
+ * The random keys that are XORed together into a Game's position hash. Custom
+ * variants can define any number of Piece types on Boards of any size, so
+ * rather than filling tables up front, every key is derived on demand by
+ * mixing its inputs. The same position always hashes to the same key, in
+ * every Game and every run.
+ */
+public final class Zobrist
+{
+	/**
+	 * The key XORed in when it is black's move
+	 */
+	public static final long BLACK_TO_MOVE = mix(0x5DEECE66DL);
+
+	private Zobrist()
+	{
+	}
+
+	/**
+	 * Mix every character of a Piece type's name into 64 bits. String.hashCode
+	 * has only 32, and short names that differ in two characters can share it.
+	 * 
+	 * @param name The name of the Piece type
+	 * @return The key the other keys of that type are derived from
+	 */
+	public static long typeKey(String name)
+	{
+		long key = mix(name.length() ^ TYPE_SALT);
+		for (int i = 0; i < name.length(); i++)
+			key = mix(key ^ name.charAt(i));
+		return key;
+	}
+
+	/**
+	 * @param typeKey The key of the Piece's type, from typeKey
+	 * @param isBlack The Piece's team
+	 * @param index The index of the Piece's Square on its Board
+	 * @return The key of a Piece of that type and team on that Square
+	 */
+	public static long pieceKey(long typeKey, boolean isBlack, int index)
+	{
+		return mix(typeKey ^ mix(((long) index << 1) ^ (isBlack ? 1 : 0) ^ PIECE_SALT));
+	}
+
+	/**
+	 * @param typeKey The key of the Piece's type, from typeKey
+	 * @param isBlack The team holding the Piece
+	 * @param count How many Pieces of that type the team holds, counting this
+	 * one
+	 * @return The key of a held Piece. A team holding n Pieces of a type gets
+	 * the keys for counts 1 to n, so n always hashes differently from n - 1.
+	 */
+	public static long handKey(long typeKey, boolean isBlack, int count)
+	{
+		return mix(typeKey ^ mix(((long) count << 1) ^ (isBlack ? 1 : 0) ^ HAND_SALT));
+	}
+
+	/**
+	 * @param movesMade The Moves the team to move has made this turn
+	 * @param whiteMoves The Moves white makes per turn
+	 * @param blackMoves The Moves black makes per turn
+	 * @return The key of those turn counters, nothing for the one Move a turn
+	 * of classic chess
+	 */
+	public static long turnKey(int movesMade, int whiteMoves, int blackMoves)
+	{
+		if (movesMade == 0 && whiteMoves == 1 && blackMoves == 1)
+			return 0;
+		return mix(((long) movesMade << 40) ^ ((long) whiteMoves << 20) ^ blackMoves ^ TURN_SALT);
+	}
+
+	/**
+	 * @param boardIndex The index of the Board in the Game
+	 * @param column The column a pawn may be captured en passant on
+	 * @return The key of that en passant column
+	 */
+	public static long enpassantKey(int boardIndex, int column)
+	{
+		return mix(((long) boardIndex << 32) ^ column ^ ENPASSANT_SALT);
+	}
+
+	/**
+	 * @param rights One bit per castling right, as returned by
+	 * Game.getCastlingRights
+	 * @return The key of that combination of castling rights
+	 */
+	public static long castlingKey(int rights)
+	{
+		return rights == 0 ? 0 : mix(rights ^ CASTLING_SALT);
+	}
+
+	/**
+	 * Fold the Piece keys of one Board into the position hash. The first Board
+	 * is used as is, so the usual single Board Game costs nothing extra.
+	 * 
+	 * @param boardIndex The index of the Board in the Game
+	 * @param pieceKey The XOR of the keys of the Pieces on the Board
+	 * @return The key to XOR into the position hash
+	 */
+	public static long boardKey(int boardIndex, long pieceKey)
+	{
+		return boardIndex == 0 ? pieceKey : mix(pieceKey ^ mix(boardIndex ^ BOARD_SALT));
+	}
+
+	/**
+	 * The finalizer of the SplitMix64 generator, which spreads any change in
+	 * the input over the whole output
+	 */
+	private static long mix(long value)
+	{
+		value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+		value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+		return value ^ (value >>> 31);
+	}
+
+	private static final long PIECE_SALT = 0x9E3779B97F4A7C15L;
+	private static final long ENPASSANT_SALT = 0x632BE59BD9B4E019L;
+	private static final long CASTLING_SALT = 0x85157AF5B2A35C8FL;
+	private static final long BOARD_SALT = 0xD6E8FEB86659FD93L;
+	private static final long TYPE_SALT = 0xA0761D6478BD642FL;
+	private static final long HAND_SALT = 0xE7037ED1A0B428DBL;
+	private static final long TURN_SALT = 0x8EBC6AF09C88C6E3L;
+}
@@ -5,8 +5,6 @@ import java.util.List;
 import models.Piece;
 import models.Square;
 
-import com.google.common.collect.Lists;
-
 public enum AdjustTeamLegalDestinations
 {
 	CLASSIC, MUST_CAPTURE;
@@ -26,41 +24,58 @@ public enum AdjustTeamLegalDestinations
 
 	/**
 	 * Adjust the available destinations if the player has chosen to play a
-	 * variant where captures are mandatory.
+	 * variant where captures are mandatory. The whole team is searched for a
+	 * capture before any list is touched, so a team without one keeps its
+	 * destinations after a single pass, and a team with one has its quiet
+	 * Moves dropped in place.
 	 * 
 	 * @param team The team to adjust.
 	 */
 	private void mustCapture(List<Piece> team)
 	{
-		boolean foundCapture = false;
+		int firstCapturer = -1;
+		for (int i = 0; i < team.size() && firstCapturer < 0; i++)
+		{
+			if (hasCapture(team.get(i)))
+				firstCapturer = i;
+		}
+		if (firstCapturer < 0)
+			return;
+
 		for (int i = 0; i < team.size(); i++)
 		{
-			Piece current = team.get(i);
-			for (Square s : current.getLegalDests())
-			{
-				if (s.isOccupied())
-				{
-					foundCapture = true;
-					break;
-				}
-			}
+			// the Pieces ahead of the first capturer were just found to have
+			// no captures
+			if (i < firstCapturer)
+				team.get(i).getLegalDests().clear();
+			else
+				keepCaptures(team.get(i).getLegalDests());
+		}
+	}
 
-			if (foundCapture)
-				break;
+	private static boolean hasCapture(Piece piece)
+	{
+		if (piece.isCaptured())
+			return false;
+
+		List<Square> legalDests = piece.getLegalDests();
+		for (int i = 0; i < legalDests.size(); i++)
+		{
+			if (legalDests.get(i).isOccupied())
+				return true;
 		}
-		if (foundCapture)
+		return false;
+	}
+
+	private static void keepCaptures(List<Square> legalDests)
+	{
+		int kept = 0;
+		for (int i = 0; i < legalDests.size(); i++)
 		{
-			for (int i = 0; i < team.size(); i++)
-			{
-				Piece current = team.get(i);
-				List<Square> adjusted = Lists.newArrayList();
-				for (Square s : current.getLegalDests())
-				{
-					if (s.isOccupied())
-						adjusted.add(s);
-				}
-				current.setLegalDests(adjusted);
-			}
+			Square dest = legalDests.get(i);
+			if (dest.isOccupied())
+				legalDests.set(kept++, dest);
 		}
+		legalDests.subList(kept, legalDests.size()).clear();
 	}
 }
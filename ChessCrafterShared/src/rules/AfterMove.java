@@ -8,6 +8,7 @@ import models.Board;
 import models.Game;
 import models.Piece;
 import models.Square;
+import models.UndoRecord;
 
 import com.google.common.collect.Lists;
 
@@ -65,11 +66,154 @@ public enum AfterMove
 		}
 	}
 
+	/**
+	 * Perform this rule for a Move made with Game.makeMove. Nothing is shown
+	 * to the user: Pieces a capturer takes into its hand stay off the Board
+	 * until a later placement, which search doesn't model.
+	 * 
+	 * @param game The Game the Move was made in
+	 * @param undo The record of the Move, which also receives what is needed
+	 * to revert this rule
+	 */
+	public void apply(Game game, UndoRecord undo)
+	{
+		Piece captured = undo.getCaptured();
+		if (captured == null)
+			return;
+
+		switch (this)
+		{
+		case SWAP_COLOR_OF_CAPTURER:
+			undo.setSwappedIndex(switchTeams(game, undo.getPiece()));
+			game.invalidateObjectivePieces();
+			break;
+		case CAPTURED_PIECE_TO_ORIGIN:
+			Square home = captured.getOriginalSquare();
+			if (home == undo.getCaptureSquare())
+				break;
+
+			Piece removed = home.getPiece();
+			if (removed != null)
+			{
+				List<Piece> team = removed.isBlack() ? game.getBlackTeam() : game.getWhiteTeam();
+				int index = team.indexOf(removed);
+				team.remove(index);
+				undo.setRemoved(removed, index);
+				game.invalidateObjectivePieces();
+			}
+			home.setPiece(captured);
+			captured.setIsCaptured(false);
+			break;
+		case CAPTURER_STEALS_CAPTURED:
+			undo.setSwappedIndex(switchTeams(game, captured));
+			game.invalidateObjectivePieces();
+			break;
+		case ATOMIC_CAPTURE:
+			int center = undo.getCaptureSquare().getIndex();
+			Board board = captured.getBoard();
+			for (int rowStep = -1; rowStep <= 1; rowStep++)
+			{
+				for (int colStep = -1; colStep <= 1; colStep++)
+				{
+					// the blast goes around a wraparound Board on every row
+					int index = board.step(center, rowStep, colStep, true);
+					if (index == Board.OFF_BOARD)
+						continue;
+
+					Piece piece = board.getSquare(index).getPiece();
+					if (piece != null && piece != undo.getPiece() && !piece.isCaptured() && !piece.getType().isPawn())
+					{
+						piece.setIsCaptured(true);
+						piece.getSquare().setPiece(null);
+						undo.addExploded(piece);
+					}
+				}
+			}
+			undo.getPiece().setIsCaptured(true);
+			undo.getPiece().getSquare().setPiece(null);
+			undo.addExploded(undo.getPiece());
+			break;
+		case CAPTURER_PLACES_CAPTURED:
+		case CLASSIC:
+		default:
+			break;
+		}
+	}
+
+	/**
+	 * Revert this rule for a Move being taken back with Game.unmakeMove
+	 * 
+	 * @param game The Game the Move was made in
+	 * @param undo The record filled in by apply
+	 */
+	public void revert(Game game, UndoRecord undo)
+	{
+		Piece captured = undo.getCaptured();
+		if (captured == null)
+			return;
+
+		switch (this)
+		{
+		case SWAP_COLOR_OF_CAPTURER:
+			switchTeamsBack(game, undo.getPiece(), undo.getSwappedIndex());
+			game.invalidateObjectivePieces();
+			break;
+		case CAPTURED_PIECE_TO_ORIGIN:
+			Square home = captured.getOriginalSquare();
+			if (home == undo.getCaptureSquare())
+				break;
+
+			home.setPiece(undo.getRemoved());
+			if (undo.getRemoved() != null)
+			{
+				(undo.getRemoved().isBlack() ? game.getBlackTeam() : game.getWhiteTeam()).add(undo.getRemovedIndex(), undo.getRemoved());
+				game.invalidateObjectivePieces();
+			}
+			captured.setIsCaptured(true);
+			captured.setSquare(undo.getCaptureSquare());
+			break;
+		case CAPTURER_STEALS_CAPTURED:
+			switchTeamsBack(game, captured, undo.getSwappedIndex());
+			game.invalidateObjectivePieces();
+			break;
+		case ATOMIC_CAPTURE:
+			for (int i = undo.getExplodedCount() - 1; i >= 0; i--)
+			{
+				Piece piece = undo.getExploded(i);
+				piece.setIsCaptured(false);
+				piece.getSquare().setPiece(piece);
+			}
+			break;
+		case CAPTURER_PLACES_CAPTURED:
+		case CLASSIC:
+		default:
+			break;
+		}
+	}
+
 	public void setGame(Game game)
 	{
 		mGame = game;
 	}
 
+	private static int switchTeams(Game game, Piece piece)
+	{
+		List<Piece> team = piece.isBlack() ? game.getBlackTeam() : game.getWhiteTeam();
+		int index = team.indexOf(piece);
+		team.remove(index);
+		(piece.isBlack() ? game.getWhiteTeam() : game.getBlackTeam()).add(piece);
+		piece.setBlack(!piece.isBlack());
+		return index;
+	}
+
+	private static void switchTeamsBack(Game game, Piece piece, int index)
+	{
+		List<Piece> team = piece.isBlack() ? game.getBlackTeam() : game.getWhiteTeam();
+		team.remove(team.lastIndexOf(piece));
+		piece.setBlack(!piece.isBlack());
+		(piece.isBlack() ? game.getBlackTeam() : game.getWhiteTeam()).add(index, piece);
+	}
+
 	private void swapColorOfCapturingPiece(Move move)
 	{
 		if (move.getCaptured() == null)
@@ -264,7 +408,7 @@ public enum AfterMove
 			if (s == null)
 				continue;
 			Piece p = s.getPiece();
-			if (p != null && (!(p.getName().equals(Messages.getString("pawn"))) && p != suicide) && p != captured) //$NON-NLS-1$
+			if (p != null && (!p.getType().isPawn() && p != suicide) && p != captured)
 			{
 				exploded.add(p);
 				p.setIsCaptured(true);
@@ -1,7 +1,5 @@
 package rules;
 
-import java.util.List;
-
 import utility.GuiUtility;
 import logic.Move;
 import logic.Result;
@@ -78,7 +76,7 @@ public enum EndOfGame
 
 	private void classicCheckEndOfGame(Piece objectivePiece)
 	{
-		if (mGame.getLegalMoveCount() == 0 || objectivePiece.isCaptured())
+		if (!mGame.hasAnyLegalDest() || objectivePiece.isCaptured())
 		{
 			// if the King is threatened, it's check mate.
 			if (objectivePiece == null || objectivePiece.isInCheck() || objectivePiece.isCaptured())
@@ -150,12 +148,9 @@ public enum EndOfGame
 
 	private void checkLoseAllPieces()
 	{
-		List<Piece> team = (!mIsBlackRuleSet ? mGame.getBlackTeam() : mGame.getWhiteTeam());
-		for (Piece piece : team)
-		{
-			if (!piece.isCaptured())
-				return;
-		}
+		if (mGame.getPieceCount(!mIsBlackRuleSet) > 0)
+			return;
+
 		Result result = mIsBlackRuleSet ? Result.BLACK_WIN : Result.WHITE_WIN;
 		result.setGuiText(Messages.getString("gameOverExcSpace") + result.winText() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
 		GuiUtility.getChessCrafter().getPlayGameScreen(mGame).endOfGame(result);
@@ -163,12 +158,9 @@ public enum EndOfGame
 
 	private void captureAllPieces()
 	{
-		List<Piece> team = (mIsBlackRuleSet ? mGame.getBlackTeam() : mGame.getWhiteTeam());
-		for (Piece piece : team)
-		{
-			if (!piece.isCaptured())
-				return;
-		}
+		if (mGame.getPieceCount(mIsBlackRuleSet) > 0)
+			return;
+
 		Result result = !mIsBlackRuleSet ? Result.BLACK_WIN : Result.WHITE_WIN;
 		result.setGuiText(Messages.getString("gameOverExcSpace") + result.winText() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
 		GuiUtility.getChessCrafter().getPlayGameScreen(mGame).endOfGame(result);
@@ -176,12 +168,9 @@ public enum EndOfGame
 
 	private void checkCaptureAllOfType()
 	{
-		List<Piece> team = (!mIsBlackRuleSet ? mGame.getBlackTeam() : mGame.getWhiteTeam());
-		for (Piece piece : team)
-		{
-			if (piece.getName().equals(mPieceName) && !piece.isCaptured())
-				return;
-		}
+		if (mGame.getPieceCount(mPieceName, !mIsBlackRuleSet) > 0)
+			return;
+
 		Result result = mIsBlackRuleSet ? Result.BLACK_WIN : Result.WHITE_WIN;
 		result.setGuiText(Messages.getString("gameOverExcSpace") + result.winText() + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
 		GuiUtility.getChessCrafter().getPlayGameScreen(mGame).endOfGame(result);
@@ -20,11 +20,6 @@ public enum GetBoard
 		}
 	}
 
-	public void setGame(Game game)
-	{
-		mGame = game;
-	}
-
 	private Board classicGetBoard(Board startBoard)
 	{
 		return startBoard;
@@ -32,10 +27,11 @@ public enum GetBoard
 
 	private Board getOppositeBoard(Board startBoard)
 	{
-		if (startBoard.equals(mGame.getBoards()[0]))
-			return mGame.getBoards()[1];
-		return mGame.getBoards()[0];
+		// ask the Board for its Game, since a copy of a Game for searching
+		// shares these rules with the original
+		Game game = startBoard.getGame();
+		if (startBoard.equals(game.getBoards()[0]))
+			return game.getBoards()[1];
+		return game.getBoards()[0];
 	}
-
-	private Game mGame;
 }
@@ -23,6 +23,27 @@ public enum GetPromotionSquares
 		}
 	}
 
+	/**
+	 * Check if the given Square is one of the promotion Squares for the given
+	 * Piece, without building the List
+	 * 
+	 * @param piece The Piece that might promote
+	 * @param square The Square the Piece is moving to
+	 * @return If the Piece promotes on that Square
+	 */
+	public boolean isPromotionSquare(Piece piece, Square square)
+	{
+		switch (this)
+		{
+		case CLASSIC:
+			int row = piece.isBlack() ? 1 : piece.getBoard().getMaxRow();
+			return square.getRow() == row && piece.getBoard().getSquare(row, square.getCol()) == square;
+		case NO_PROMOTIONS:
+		default:
+			return false;
+		}
+	}
+
 	private List<Square> classicPromoSquares(Piece piece)
 	{
 		List<Square> toReturn = Lists.newArrayList();
@@ -17,6 +17,11 @@ public class NextTurn implements Serializable
 	 */
 	private static final long serialVersionUID = 4504947872189771271L;
 
+	/**
+	 * The number of ints saveState writes
+	 */
+	public static final int STATE_SIZE = 4;
+
 	public NextTurn(NextTurnOption option, int whiteMoves, int blackMoves, int increment)
 	{
 		mNumberOfWhiteMovesBeforeTurnChange = whiteMoves;
@@ -61,6 +66,62 @@ public class NextTurn implements Serializable
 		}
 	}
 
+	/**
+	 * Move on to the next turn without telling the play screen, for looking
+	 * ahead during search
+	 * 
+	 * @return If it is now black's move
+	 */
+	public boolean advance()
+	{
+		mIsQuiet = true;
+		try
+		{
+			return getNextTurn();
+		}
+		finally
+		{
+			mIsQuiet = false;
+		}
+	}
+
+	/**
+	 * Copy the turn counters into the given array, so they can be restored
+	 * later with restoreState
+	 * 
+	 * @param state An array of at least STATE_SIZE ints
+	 */
+	public void saveState(int[] state)
+	{
+		state[0] = mIsBlackMove ? 1 : 0;
+		state[1] = mCurrentNumberOfMovesMade;
+		state[2] = mNumberOfWhiteMovesBeforeTurnChange;
+		state[3] = mNumberOfBlackMovesBeforeTurnChange;
+	}
+
+	/**
+	 * Put back the turn counters saved by saveState
+	 * 
+	 * @param state The saved counters
+	 * @return If it is now black's move
+	 */
+	public boolean restoreState(int[] state)
+	{
+		mIsBlackMove = state[0] == 1;
+		mCurrentNumberOfMovesMade = state[1];
+		mNumberOfWhiteMovesBeforeTurnChange = state[2];
+		mNumberOfBlackMovesBeforeTurnChange = state[3];
+		return mIsBlackMove;
+	}
+
+	/**
+	 * @return The Moves the team to move has made so far this turn
+	 */
+	public int getMovesMade()
+	{
+		return mCurrentNumberOfMovesMade;
+	}
+
 	public int getWhiteMoves()
 	{
 		return mNumberOfWhiteMovesBeforeTurnChange;
@@ -79,7 +140,7 @@ public class NextTurn implements Serializable
 	private boolean classicNextTurn()
 	{
 		mIsBlackMove = !mIsBlackMove;
-		GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+		notifyTurn();
 
 		return mIsBlackMove;
 	}
@@ -88,7 +149,7 @@ public class NextTurn implements Serializable
 	{
 		mIsBlackMove = !mIsBlackMove;
 		if (isPlayback)
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			notifyTurn();
 
 		return mIsBlackMove;
 	}
@@ -98,7 +159,7 @@ public class NextTurn implements Serializable
 		if (++mCurrentNumberOfMovesMade >= mNumberOfWhiteMovesBeforeTurnChange)
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			notifyTurn();
 			mNumberOfWhiteMovesBeforeTurnChange += mTurnIncrement;
 			mCurrentNumberOfMovesMade = 0;
 		}
@@ -110,7 +171,7 @@ public class NextTurn implements Serializable
 		if (--mCurrentNumberOfMovesMade < 0)
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			notifyTurn();
 			mNumberOfWhiteMovesBeforeTurnChange -= mTurnIncrement;
 			mCurrentNumberOfMovesMade = mNumberOfWhiteMovesBeforeTurnChange - 1;
 		}
@@ -122,7 +183,7 @@ public class NextTurn implements Serializable
 		if (++mCurrentNumberOfMovesMade >= (mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange))
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			notifyTurn();
 			mNumberOfBlackMovesBeforeTurnChange += mTurnIncrement;
 			mNumberOfWhiteMovesBeforeTurnChange += mTurnIncrement;
 			mCurrentNumberOfMovesMade = 0;
@@ -137,7 +198,7 @@ public class NextTurn implements Serializable
 			mIsBlackMove = !mIsBlackMove;
 			mNumberOfBlackMovesBeforeTurnChange -= mTurnIncrement;
 			mNumberOfWhiteMovesBeforeTurnChange -= mTurnIncrement;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			notifyTurn();
 
 			mCurrentNumberOfMovesMade = mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange;
 		}
@@ -149,7 +210,7 @@ public class NextTurn implements Serializable
 		if (++mCurrentNumberOfMovesMade >= (mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange))
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			notifyTurn();
 
 			mCurrentNumberOfMovesMade = 0;
 		}
@@ -161,17 +222,24 @@ public class NextTurn implements Serializable
 		if (--mCurrentNumberOfMovesMade < 0)
 		{
 			mIsBlackMove = !mIsBlackMove;
-			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+			notifyTurn();
 
 			mCurrentNumberOfMovesMade = mIsBlackMove ? mNumberOfBlackMovesBeforeTurnChange : mNumberOfWhiteMovesBeforeTurnChange;
 		}
 		return mIsBlackMove;
 	}
 
+	private void notifyTurn()
+	{
+		if (!mIsQuiet)
+			GuiUtility.getChessCrafter().getPlayGameScreen(null).turn(mIsBlackMove);
+	}
+
 	private NextTurnOption mNextTurnOption;
 	private int mNumberOfWhiteMovesBeforeTurnChange;
 	private int mNumberOfBlackMovesBeforeTurnChange;
 	private int mCurrentNumberOfMovesMade;
 	private int mTurnIncrement;
 	private boolean mIsBlackMove;
+	private transient boolean mIsQuiet;
 }
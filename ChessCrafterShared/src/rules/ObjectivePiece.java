@@ -38,23 +38,49 @@ public class ObjectivePiece implements Serializable
 		return mObjectivePieceType;
 	}
 
+	/**
+	 * Get the objective piece of a team. The team is only searched the first
+	 * time, after which the Piece found is kept until invalidate is called.
+	 * Captured Pieces stay on their team, so captures don't change the
+	 * answer; promotions and Pieces changing teams do.
+	 * 
+	 * @param isBlack The team to get the objective piece of
+	 * @return The objective piece, or null if the team has none
+	 */
 	public Piece getObjectivePiece(boolean isBlack)
 	{
-		switch (mObjectivePieceType)
+		int team = isBlack ? 1 : 0;
+		if (mObjectivePieces == null)
 		{
-		case CLASSIC:
-			return classicObjectivePiece(isBlack);
-		case CUSTOM_OBJECTIVE:
-			return customObjectivePiece(isBlack);
-		case NO_OBJECTIVE:
-		default:
-			return null;
+			mObjectivePieces = new Piece[2];
+			mIsResolved = new boolean[2];
 		}
+
+		Piece piece = mObjectivePieces[team];
+		// a Piece that changed team without an invalidate can't be kept
+		if (mIsResolved[team] && (piece == null || piece.isBlack() == isBlack))
+			return piece;
+
+		piece = findObjectivePiece(isBlack);
+		mObjectivePieces[team] = piece;
+		mIsResolved[team] = true;
+		return piece;
+	}
+
+	/**
+	 * Forget the objective pieces found so far, because a Piece was promoted,
+	 * changed teams or was added to or removed from a team
+	 */
+	public void invalidate()
+	{
+		mIsResolved = null;
+		mObjectivePieces = null;
 	}
 
 	public void setGame(Game game)
 	{
 		mGame = game;
+		invalidate();
 	}
 
 	public String getObjectivePieceName()
@@ -62,13 +88,27 @@ public class ObjectivePiece implements Serializable
 		return mObjectivePieceName;
 	}
 
+	private Piece findObjectivePiece(boolean isBlack)
+	{
+		switch (mObjectivePieceType)
+		{
+		case CLASSIC:
+			return classicObjectivePiece(isBlack);
+		case CUSTOM_OBJECTIVE:
+			return customObjectivePiece(isBlack);
+		case NO_OBJECTIVE:
+		default:
+			return null;
+		}
+	}
+
 	private Piece classicObjectivePiece(boolean isBlack)
 	{
 		if (isBlack)
 		{
 			for (Piece piece : mGame.getBlackTeam())
 			{
-				if (piece.getName().equals(Messages.getString("king"))) //$NON-NLS-1$
+				if (piece.getType().isKing())
 					return piece;
 			}
 		}
@@ -76,7 +116,7 @@ public class ObjectivePiece implements Serializable
 		{
 			for (Piece piece : mGame.getWhiteTeam())
 			{
-				if (piece.getName().equals(Messages.getString("king"))) //$NON-NLS-1$
+				if (piece.getType().isKing())
 					return piece;
 			}
 		}
@@ -109,4 +149,6 @@ public class ObjectivePiece implements Serializable
 	private Game mGame;
 	private String mObjectivePieceName;
 	private ObjectivePieceTypes mObjectivePieceType;
+	private transient Piece[] mObjectivePieces;
+	private transient boolean[] mIsResolved;
 }
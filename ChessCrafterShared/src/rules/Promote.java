@@ -75,6 +75,7 @@ public enum Promote
 						mGame.getBlackTeam().set(mGame.getBlackTeam().indexOf(pieceToPromote), promoted);
 					else
 						mGame.getWhiteTeam().set(mGame.getWhiteTeam().indexOf(pieceToPromote), promoted);
+					mGame.invalidateObjectivePieces();
 					promoted.getLegalDests().clear();
 					promoted.setMoveCount(pieceToPromote.getMoveCount());
 					return promoted;
@@ -124,6 +125,7 @@ public enum Promote
 				mGame.getBlackTeam().set(mGame.getBlackTeam().indexOf(pieceToPromote), promoted);
 			else
 				mGame.getWhiteTeam().set(mGame.getWhiteTeam().indexOf(pieceToPromote), promoted);
+			mGame.invalidateObjectivePieces();
 			promoted.getLegalDests().clear();
 			promoted.setMoveCount(pieceToPromote.getMoveCount());
 			return promoted;
@@ -0,0 +1,98 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.UndoRecord;
+
+import org.junit.Test;
+
+import ai.AIAdapter.AIBoard;
+import ai.AIAdapter.AIPiece;
+import ai.AIAdapter.AISquare;
+
+public class AIAdapterTest
+{
+	@Test
+	public final void testSnapshotMirrorsBoard() throws Exception
+	{
+		AIBoard board = new AIAdapter(GameBuilder.newClassicGame()).getBoards()[0];
+		assertEquals(8, board.maxRow());
+		assertEquals(8, board.maxCol());
+		assertNull(board.getSquare(4, 5).getPiece());
+		assertTrue(board.getSquare(4, 5).isHabitable());
+
+		AIPiece pawn = board.getSquare(2, 5).getPiece();
+		assertFalse(pawn.isBlack());
+		assertSame(board, pawn.getBoard());
+
+		List<AISquare> dests = pawn.getLegalDests();
+		assertEquals(2, dests.size());
+		assertTrue(dests.contains(board.getSquare(3, 5)));
+		assertTrue(dests.contains(board.getSquare(4, 5)));
+		assertEquals(board.getSquare(4, 5), dests.get(dests.indexOf(board.getSquare(4, 5))));
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testLegalDestsCantChange() throws Exception
+	{
+		AIBoard board = new AIAdapter(GameBuilder.newClassicGame()).getBoards()[0];
+		board.getSquare(2, 5).getPiece().getLegalDests().clear();
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test(expected = UnsupportedOperationException.class)
+	public final void testSnapshotSquaresCantChange() throws Exception
+	{
+		AIBoard board = new AIAdapter(GameBuilder.newClassicGame()).getBoards()[0];
+		board.getSquare(4, 5).setPiece(board.getSquare(2, 5).getPiece());
+	}
+
+	@SuppressWarnings("deprecation")
+	@Test
+	public final void testPluginSquaresCanChange() throws Exception
+	{
+		AIAdapter adapter = new AIAdapter(GameBuilder.newClassicGame());
+		AIPiece pawn = adapter.getBoards()[0].getSquare(2, 5).getPiece();
+		AISquare square = adapter.new AISquare(4, 5, true, null);
+		assertNull(square.getPiece());
+		assertTrue(square.isHabitable());
+
+		square.setPiece(pawn);
+		assertSame(pawn, square.getPiece());
+		// a Square that can change is only equal to itself
+		assertEquals(square, square);
+		assertFalse(square.equals(adapter.new AISquare(4, 5, true, pawn)));
+		assertFalse(square.equals(adapter.getBoards()[0].getSquare(4, 5)));
+		assertFalse(adapter.getBoards()[0].getSquare(4, 5).equals(square));
+	}
+
+	@Test
+	public final void testSnapshotIsSharedUntilTheGameMoves() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		AIAdapter adapter = new AIAdapter(game);
+		AIBoard before = adapter.getBoards()[0];
+		assertSame(before, adapter.getBoards()[0]);
+		assertNotSame(adapter.getBoards(), adapter.getBoards());
+
+		Board board = game.getBoards()[0];
+		game.makeMove(board.getSquare(2, 5).getPiece(), board.getSquare(4, 5), null, new UndoRecord());
+		AIBoard after = adapter.getBoards()[0];
+		assertNotSame(before, after);
+		assertNull(after.getSquare(2, 5).getPiece());
+		assertTrue(after.getSquare(4, 5).getPiece() != null);
+
+		// the old snapshot still shows the position it was taken in
+		assertTrue(before.getSquare(2, 5).getPiece() != null);
+	}
+}
@@ -0,0 +1,12 @@
+package ai;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ AIAdapterTest.class, AlphaBetaPluginTest.class, AlphaBetaSearchTest.class, EvaluatorTest.class, LazySmpSearchTest.class, MonteCarloSearchTest.class, MoveOrdererTest.class, StaticExchangeTest.class, TranspositionTableTest.class })
+public class AISuite
+{
+
+}
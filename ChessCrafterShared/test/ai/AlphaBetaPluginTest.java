@@ -0,0 +1,36 @@
+package ai;
+
+import static ai.AlphaBetaSearchTest.assertMove;
+import static ai.AlphaBetaSearchTest.describe;
+import static ai.AlphaBetaSearchTest.playOpening;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import models.Game;
+
+import org.junit.Test;
+
+public class AlphaBetaPluginTest
+{
+	@Test
+	public final void testGetMoveLeavesGameAlone() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 } });
+		String before = describe(game);
+		long key = game.getZobristKey();
+		new AlphaBetaPlugin(300, 2).getMove(new AIAdapter(game).getBoards());
+
+		assertEquals(before, describe(game));
+		assertEquals(key, game.getZobristKey());
+		assertNull(game.getBoards()[0].getBitboard().getWeights());
+	}
+
+	@Test
+	public final void testMoveFitsGame() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 6, 4, 3 }, { 8, 2, 6, 3 }, { 1, 4, 5, 8 },
+				{ 8, 7, 6, 6 } });
+
+		// the Move was found on a copy, but names the Squares of this Game
+		assertMove(new AlphaBetaPlugin(1000, 2).getMove(new AIAdapter(game).getBoards()), 5, 8, 7, 6);
+	}
+}
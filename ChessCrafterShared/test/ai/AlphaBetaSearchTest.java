@@ -0,0 +1,111 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.Piece;
+import models.Rules;
+import models.UndoRecord;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+
+public class AlphaBetaSearchTest
+{
+	@Test
+	public final void testFindsMateInOne() throws Exception
+	{
+		// 1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6, and Qxf7 is mate
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 6, 4, 3 }, { 8, 2, 6, 3 }, { 1, 4, 5, 8 },
+				{ 8, 7, 6, 6 } });
+		AlphaBetaSearch search = new AlphaBetaSearch(game);
+		search.setMaxDepth(3);
+
+		assertMove(search.findMove(60000), 5, 8, 7, 6);
+		assertTrue(search.getScore() >= AlphaBetaSearch.MATE - AlphaBetaSearch.MAX_PLY);
+	}
+
+	@Test
+	public final void testTakesHangingQueen() throws Exception
+	{
+		// 1. e4 d5 2. Qg4, and the bishop on c8 can take the queen
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 1, 4, 4, 7 } });
+		AlphaBetaSearch search = new AlphaBetaSearch(game);
+		search.setMaxDepth(2);
+
+		assertMove(search.findMove(60000), 8, 3, 4, 7);
+		assertEquals(2, search.getCompletedDepth());
+	}
+
+	@Test
+	public final void testSearchRestoresGame() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 } });
+		String before = describe(game);
+		AlphaBetaSearch search = new AlphaBetaSearch(game);
+		search.setMaxDepth(3);
+		search.findMove(60000);
+
+		assertEquals(before, describe(game));
+		assertTrue(search.getNodes() > 0);
+	}
+
+	static Game playOpening(int[][] moves) throws Exception
+	{
+		return playOpening(moves, null);
+	}
+
+	/**
+	 * Play an opening with the classic rules, then give both teams another
+	 * AfterMove rule for the rest of the Game
+	 * 
+	 * @param moves The origin row and column and destination row and column
+	 * of each Move
+	 * @param afterMove The rule to play on with, or null to keep the classic
+	 * rules
+	 * @return The Game, with its legal destinations generated
+	 */
+	static Game playOpening(int[][] moves, AfterMove afterMove) throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		Board board = game.getBoards()[0];
+		for (int[] move : moves)
+		{
+			game.genLegalDests();
+			game.makeMove(board.getSquare(move[0], move[1]).getPiece(), board.getSquare(move[2], move[3]), null, new UndoRecord());
+		}
+
+		if (afterMove != null)
+		{
+			for (Rules rules : new Rules[] { game.getWhiteRules(), game.getBlackRules() })
+			{
+				rules.clearAfterMoves();
+				rules.addAfterMove(afterMove);
+			}
+		}
+		game.genLegalDests();
+		return game;
+	}
+
+	static void assertMove(FakeMove move, int originRow, int originColumn, int destinationRow, int destinationColumn)
+	{
+		assertEquals(originRow, move.mOriginRow);
+		assertEquals(originColumn, move.mOriginColumn);
+		assertEquals(destinationRow, move.mDestinationRow);
+		assertEquals(destinationColumn, move.mDestinationColumn);
+	}
+
+	static String describe(Game game)
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(game.isBlackMove()).append(game.getBoards()[0].getEnpassantCol());
+		for (Piece piece : game.getWhiteTeam())
+			builder.append(piece.getName()).append(piece.isCaptured()).append(piece.getMoveCount()).append(piece.getSquare());
+		for (Piece piece : game.getBlackTeam())
+			builder.append(piece.getName()).append(piece.isCaptured()).append(piece.getMoveCount()).append(piece.getSquare());
+		return builder.toString();
+	}
+}
@@ -0,0 +1,110 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.MoveList;
+import models.Piece;
+import models.Rules;
+import models.SquareWeights;
+import models.UndoRecord;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+
+public class EvaluatorTest
+{
+	@Test
+	public final void testStockPieceValues() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		Board board = game.getBoards()[0];
+		Evaluator evaluator = new Evaluator(game);
+
+		int pawn = evaluator.getValue(board.getSquare(2, 1).getPiece());
+		int knight = evaluator.getValue(board.getSquare(1, 2).getPiece());
+		int bishop = evaluator.getValue(board.getSquare(1, 3).getPiece());
+		int rook = evaluator.getValue(board.getSquare(1, 1).getPiece());
+		int queen = evaluator.getValue(board.getSquare(1, 4).getPiece());
+
+		assertEquals(Evaluator.PAWN_VALUE, pawn);
+		assertTrue(Math.abs(knight - 320) < 30);
+		assertTrue(Math.abs(bishop - 330) < 30);
+		assertTrue(Math.abs(rook - 500) < 60);
+		assertTrue(Math.abs(queen - 900) < 30);
+		assertTrue(knight < rook && bishop < rook && rook < queen);
+	}
+
+	@Test
+	public final void testEvaluation() throws Exception
+	{
+		assertEquals(0, new Evaluator(GameBuilder.newClassicGame()).evaluate());
+
+		// 1. Nh3 e5, and white has put a knight on the rim and fallen behind
+		Game game = AlphaBetaSearchTest.playOpening(new int[][] { { 1, 7, 3, 8 }, { 7, 5, 5, 5 } });
+		assertTrue(new Evaluator(game).evaluate() < 0);
+
+		// 1. e4 d5 2. Qg4 Bxg4, and white is a queen down
+		game = AlphaBetaSearchTest.playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 1, 4, 4, 7 }, { 8, 3, 4, 7 } });
+		assertTrue(new Evaluator(game).evaluate() < -600);
+	}
+
+	/**
+	 * The totals the Bitboards keep must follow every Move and every
+	 * after-move rule, and come back when the Moves are taken back
+	 */
+	@Test
+	public final void testWeightsFollowMoves() throws Exception
+	{
+		AfterMove[] afterMoves = { AfterMove.CLASSIC, AfterMove.ATOMIC_CAPTURE, AfterMove.SWAP_COLOR_OF_CAPTURER,
+				AfterMove.CAPTURER_STEALS_CAPTURED, AfterMove.CAPTURED_PIECE_TO_ORIGIN };
+		for (AfterMove afterMove : afterMoves)
+		{
+			// 1. e4 d5, with captures to be had straight away
+			Game game = AlphaBetaSearchTest.playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 } });
+			for (Rules rules : new Rules[] { game.getWhiteRules(), game.getBlackRules() })
+			{
+				rules.clearAfterMoves();
+				rules.addAfterMove(afterMove);
+			}
+			new Evaluator(game).evaluate();
+
+			int before = game.getBoards()[0].getBitboard().getWeightedScore();
+			assertWeights(game, 3);
+			assertEquals(before, game.getBoards()[0].getBitboard().getWeightedScore());
+		}
+	}
+
+	private static void assertWeights(Game game, int depth)
+	{
+		Board board = game.getBoards()[0];
+		SquareWeights weights = board.getBitboard().getWeights();
+		int total = 0;
+		for (int index = 0; index < board.getNumSquares(); index++)
+		{
+			Piece piece = board.getSquare(index).getPiece();
+			if (piece != null)
+			{
+				int weight = weights.getWeight(piece.getType(), piece.isBlack(), index);
+				total += piece.isBlack() ? -weight : weight;
+			}
+		}
+		assertEquals(total, board.getBitboard().getWeightedScore());
+
+		if (depth == 0)
+			return;
+
+		MoveList moves = new MoveList();
+		UndoRecord undo = new UndoRecord();
+		game.generateMoves(moves, false);
+		for (int i = 0; i < moves.size(); i++)
+		{
+			game.makeMove(moves.get(i), undo);
+			assertWeights(game, depth - 1);
+			game.unmakeMove(undo);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package ai;
+
+import static ai.AlphaBetaSearchTest.assertMove;
+import static ai.AlphaBetaSearchTest.describe;
+import static ai.AlphaBetaSearchTest.playOpening;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import models.Game;
+
+import org.junit.Test;
+
+public class LazySmpSearchTest
+{
+	@Test
+	public final void testFindsMateInOne() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 6, 4, 3 }, { 8, 2, 6, 3 }, { 1, 4, 5, 8 },
+				{ 8, 7, 6, 6 } });
+		LazySmpSearch search = new LazySmpSearch(game, 4);
+		search.setMaxDepth(3);
+
+		assertMove(search.findMove(60000), 5, 8, 7, 6);
+		assertTrue(search.getScore() >= AlphaBetaSearch.MATE - AlphaBetaSearch.MAX_PLY);
+	}
+
+	@Test
+	public final void testSearchRestoresGame() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 } });
+		String before = describe(game);
+		long key = game.getZobristKey();
+		LazySmpSearch search = new LazySmpSearch(game, 3);
+		search.setMaxDepth(3);
+		search.findMove(60000);
+
+		assertEquals(before, describe(game));
+		assertEquals(key, game.getZobristKey());
+		assertEquals(3, search.getCompletedDepth());
+	}
+
+	@Test
+	public final void testSearchesCopies() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 } });
+		LazySmpSearch search = new LazySmpSearch(game, 2);
+		search.setMaxDepth(2);
+		search.findMove(60000);
+
+		// the searches' Evaluators total their weights on their own Boards
+		assertNull(game.getBoards()[0].getBitboard().getWeights());
+	}
+
+	@Test
+	public final void testStopsWithinBudget() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 } });
+		LazySmpSearch search = new LazySmpSearch(game, 2);
+		long start = System.currentTimeMillis();
+
+		assertTrue(search.findMove(500) != null);
+		assertTrue(System.currentTimeMillis() - start < 5000);
+	}
+}
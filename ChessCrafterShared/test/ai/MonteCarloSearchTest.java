@@ -0,0 +1,154 @@
+package ai;
+
+import static ai.AlphaBetaSearchTest.assertMove;
+import static ai.AlphaBetaSearchTest.describe;
+import static ai.AlphaBetaSearchTest.playOpening;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+import logic.GameBuilder;
+import logic.Perft;
+import models.Board;
+import models.Game;
+import models.MoveList;
+import models.Piece;
+import models.Rules;
+import models.UndoRecord;
+
+import org.junit.Test;
+
+import rules.NextTurn;
+import rules.NextTurn.NextTurnOption;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class MonteCarloSearchTest
+{
+	@Test
+	public final void testFindsMateInOne() throws Exception
+	{
+		// 1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6, and Qxf7 is mate
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 6, 4, 3 }, { 8, 2, 6, 3 }, { 1, 4, 5, 8 },
+				{ 8, 7, 6, 6 } });
+		MonteCarloSearch search = new MonteCarloSearch(game, 1);
+		search.setMaxPlayouts(3000);
+
+		assertMove(search.findMove(60000), 5, 8, 7, 6);
+	}
+
+	@Test
+	public final void testSearchRestoresGame() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 } });
+		String before = describe(game);
+		MonteCarloSearch search = new MonteCarloSearch(game, 1);
+		search.setMaxPlayouts(200);
+		search.findMove(60000);
+
+		assertEquals(before, describe(game));
+		assertEquals(200, search.getPlayouts());
+		assertTrue(game.getLegalMoveCount() > 0);
+	}
+
+	@Test
+	public final void testPlayoutsDoNotAllocate() throws Exception
+	{
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+		assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+		long thread = Thread.currentThread().getId();
+
+		Game game = GameBuilder.newClassicGame();
+		// let every Piece grow its destination lists before counting
+		new Perft(game).perft(3);
+		MonteCarloSearch search = new MonteCarloSearch(game, 1);
+		search.setMaxPlayouts(300);
+		search.findMove(60000);
+
+		search = new MonteCarloSearch(game, 1);
+		search.setMaxPlayouts(1000);
+		long before = allocations.getThreadAllocatedBytes(thread);
+		search.findMove(60000);
+		long perPlayout = (allocations.getThreadAllocatedBytes(thread) - before) / search.getPlayouts();
+
+		// a playout of 48 plies that allocated on every Move would take tens of
+		// kilobytes; the tree nodes alone take a few hundred bytes
+		assertTrue(perPlayout + " bytes per playout", perPlayout < 2048);
+	}
+
+	@Test
+	public final void testPluginLeavesGameAlone() throws Exception
+	{
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 } });
+		String before = describe(game);
+		new MonteCarloPlugin(300, 2).getMove(new AIAdapter(game).getBoards());
+
+		assertEquals(before, describe(game));
+		assertNull(game.getBoards()[0].getBitboard().getWeights());
+	}
+
+	@Test
+	public final void testScoresTurnsOfSeveralMoves() throws Exception
+	{
+		// white moves twice a turn. Only Nxb4 followed by Rxa8 mates; every
+		// other turn leaves white worse off. A search that scored white's
+		// first Move for the team to move after it, which is white again,
+		// would steer away from the mate.
+		Board board = new Board(8, 8, false);
+		List<Piece> whiteTeam = Lists.newArrayList(GameBuilder.createKing(false, board.getSquare(1, 8), board),
+				GameBuilder.createRook(false, board.getSquare(1, 1), board), GameBuilder.createBishop(false, board.getSquare(1, 2), board),
+				GameBuilder.createKnight(false, board.getSquare(2, 1), board), GameBuilder.createPawn(false, board.getSquare(2, 7), board),
+				GameBuilder.createPawn(false, board.getSquare(2, 8), board));
+		List<Piece> blackTeam = Lists.newArrayList(GameBuilder.createKing(true, board.getSquare(8, 8), board),
+				GameBuilder.createRook(true, board.getSquare(8, 1), board), GameBuilder.createRook(true, board.getSquare(4, 2), board),
+				GameBuilder.createPawn(true, board.getSquare(7, 7), board), GameBuilder.createPawn(true, board.getSquare(7, 8), board));
+		Rules whiteRules = new Rules(false);
+		Rules blackRules = new Rules(true);
+		whiteRules.setNextTurn(new NextTurn(NextTurnOption.DIFFERENT_NUMBER_OF_TURNS, 2, 1, 0));
+		blackRules.setNextTurn(new NextTurn(NextTurnOption.DIFFERENT_NUMBER_OF_TURNS, 2, 1, 0));
+		Game game = new Game("Variant", new Board[] { board }, whiteTeam, blackTeam, whiteRules, blackRules, //$NON-NLS-1$
+				Maps.<String, List<String>> newHashMap(), Maps.<String, List<String>> newHashMap());
+
+		MonteCarloSearch search = new MonteCarloSearch(game, 1);
+		search.setMaxPlayouts(3000);
+		assertMove(search.findMove(60000), 2, 1, 4, 2);
+
+		game.makeMove(search.getBestMove(), new UndoRecord());
+		assertFalse(game.isBlackMove());
+		assertTrue(hasMate(game));
+	}
+
+	/**
+	 * @return Whether the team to move, on its last Move of the turn, has a
+	 * Move that mates
+	 */
+	private static boolean hasMate(Game game)
+	{
+		MoveList moves = new MoveList();
+		game.generateMoves(moves, false);
+		int[] candidates = new int[moves.size()];
+		for (int i = 0; i < candidates.length; i++)
+			candidates[i] = moves.get(i);
+
+		Piece blackKing = game.getBlackRules().objectivePiece(true);
+		for (int move : candidates)
+		{
+			UndoRecord undo = new UndoRecord();
+			game.makeMove(move, undo);
+			boolean isMate = game.isBlackMove() && game.generateMoves(moves, false) == 0 && blackKing.isInCheck();
+			game.unmakeMove(undo);
+			if (isMate)
+				return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,91 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import logic.GameBuilder;
+import models.Board;
+import models.Game;
+import models.MoveList;
+import models.PackedMove;
+import models.Piece;
+import models.Rules;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class MoveOrdererTest
+{
+	@Test
+	public final void testOrder() throws Exception
+	{
+		// 1. e4 d5 2. Qg4, and black can take the queen or the pawn
+		Game game = AlphaBetaSearchTest.playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 1, 4, 4, 7 } });
+		Board board = game.getBoards()[0];
+		MoveOrderer orderer = new MoveOrderer(game, new Evaluator(game));
+		MoveList moves = new MoveList();
+		game.generateMoves(moves, false);
+
+		int takesQueen = find(moves, board.getIndex(8, 3), board.getIndex(4, 7));
+		int takesPawn = find(moves, board.getIndex(5, 4), board.getIndex(4, 5));
+		int killer = find(moves, board.getIndex(7, 8), board.getIndex(6, 8));
+		int hashMove = find(moves, board.getIndex(7, 1), board.getIndex(6, 1));
+		orderer.cutoff(killer, 3, 4);
+
+		orderer.order(moves, 3, hashMove);
+		assertEquals(hashMove, moves.get(0));
+		assertEquals(takesQueen, moves.get(1));
+		assertEquals(takesPawn, moves.get(2));
+		assertEquals(killer, moves.get(3));
+		for (int i = 4; i < moves.size(); i++)
+			assertFalse(PackedMove.isCapture(moves.get(i)));
+
+		// the killer is only a killer at its own ply, but its history carries
+		orderer.order(moves, 4, PackedMove.NONE);
+		assertEquals(takesQueen, moves.get(0));
+		assertEquals(killer, moves.get(2));
+
+		// a new search forgets the killers, but only ages the history
+		orderer.newSearch();
+		orderer.order(moves, 3, PackedMove.NONE);
+		assertEquals(killer, moves.get(2));
+	}
+
+	@Test
+	public final void testHistoryOnLargeBoards() throws Exception
+	{
+		// four Boards of 1024 Squares, more than the history table tells apart
+		Board[] boards = new Board[4];
+		for (int i = 0; i < boards.length; i++)
+			boards[i] = new Board(32, 32, false);
+		Board board = boards[0];
+		List<Piece> whiteTeam = Lists.newArrayList(GameBuilder.createKing(false, board.getSquare(1, 1), board),
+				GameBuilder.createRook(false, board.getSquare(30, 30), board));
+		List<Piece> blackTeam = Lists.newArrayList(GameBuilder.createKing(true, board.getSquare(32, 1), board));
+		Game game = new Game("Variant", boards, whiteTeam, blackTeam, new Rules(false), new Rules(true), //$NON-NLS-1$
+				Maps.<String, List<String>> newHashMap(), Maps.<String, List<String>> newHashMap());
+
+		MoveOrderer orderer = new MoveOrderer(game, new Evaluator(game));
+		MoveList moves = new MoveList();
+		game.generateMoves(moves, false);
+		int rookMove = find(moves, board.getIndex(30, 30), board.getIndex(30, 2));
+		orderer.cutoff(rookMove, 0, 4);
+
+		orderer.order(moves, 1, PackedMove.NONE);
+		assertEquals(rookMove, moves.get(0));
+	}
+
+	private static int find(MoveList moves, int origin, int dest)
+	{
+		for (int i = 0; i < moves.size(); i++)
+		{
+			if (PackedMove.getOrigin(moves.get(i)) == origin && PackedMove.getDest(moves.get(i)) == dest)
+				return moves.get(i);
+		}
+		throw new AssertionError();
+	}
+}
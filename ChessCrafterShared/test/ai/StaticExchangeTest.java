@@ -0,0 +1,91 @@
+package ai;
+
+import static ai.AlphaBetaSearchTest.playOpening;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import models.Board;
+import models.Game;
+import models.MoveList;
+import models.PackedMove;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+
+public class StaticExchangeTest
+{
+	@Test
+	public final void testExchange() throws Exception
+	{
+		// 1. e4 e5 2. Qh5 Nc6, and the e5 pawn is guarded by the knight
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 4, 5, 8 }, { 8, 2, 6, 3 } });
+		Evaluator evaluator = new Evaluator(game);
+		StaticExchange exchange = new StaticExchange(game, evaluator);
+		int queen = evaluator.getValue(game.getBoards()[0].getSquare(5, 8).getPiece());
+
+		int takesPawn = find(game, 5, 8, 5, 5);
+		assertEquals(Evaluator.PAWN_VALUE - queen, exchange.evaluate(takesPawn));
+		assertTrue(exchange.isLosing(takesPawn));
+
+		// the king can take back on f7, since nothing guards the queen
+		assertTrue(exchange.isLosing(find(game, 5, 8, 7, 6)));
+	}
+
+	@Test
+	public final void testPieceBehindJoinsIn() throws Exception
+	{
+		// 1. e4 d5 2. Qf3 a6: after exd5 Qxd5 the queen on f3 can take back
+		// through e4, so black does better not to recapture
+		Game game = playOpening(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 1, 4, 3, 6 }, { 7, 1, 6, 1 } });
+		StaticExchange exchange = new StaticExchange(game, new Evaluator(game));
+
+		assertEquals(Evaluator.PAWN_VALUE, exchange.evaluate(find(game, 4, 5, 5, 4)));
+	}
+
+	@Test
+	public final void testAfterMoveRules() throws Exception
+	{
+		// 1. e4 e5 2. Qh5 Nc6, as above
+		int[][] opening = { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 4, 5, 8 }, { 8, 2, 6, 3 } };
+
+		// Qxf7 blows up the black king along with the pawn
+		Game game = playOpening(opening, AfterMove.ATOMIC_CAPTURE);
+		StaticExchange exchange = new StaticExchange(game, new Evaluator(game));
+		assertTrue(exchange.evaluate(find(game, 5, 8, 7, 6)) > StaticExchange.OBJECTIVE_VALUE / 2);
+		assertFalse(exchange.isLosing(find(game, 5, 8, 7, 6)));
+
+		// the queen goes over to black for a pawn
+		game = playOpening(opening, AfterMove.SWAP_COLOR_OF_CAPTURER);
+		Evaluator evaluator = new Evaluator(game);
+		exchange = new StaticExchange(game, new Evaluator(game));
+		int queen = evaluator.getValue(game.getBoards()[0].getSquare(5, 8).getPiece());
+		assertEquals(Evaluator.PAWN_VALUE - 2 * queen, exchange.evaluate(find(game, 5, 8, 5, 5)));
+
+		// every Piece taken changes sides, so each counts twice
+		game = playOpening(opening, AfterMove.CAPTURER_STEALS_CAPTURED);
+		exchange = new StaticExchange(game, new Evaluator(game));
+		assertEquals(2 * (Evaluator.PAWN_VALUE - queen), exchange.evaluate(find(game, 5, 8, 5, 5)));
+
+		// the pawn goes back to e7, so nothing is won or lost for certain
+		game = playOpening(opening, AfterMove.CAPTURED_PIECE_TO_ORIGIN);
+		exchange = new StaticExchange(game, new Evaluator(game));
+		assertEquals(0, exchange.evaluate(find(game, 5, 8, 5, 5)));
+	}
+
+	private static int find(Game game, int originRow, int originCol, int destRow, int destCol)
+	{
+		Board board = game.getBoards()[0];
+		MoveList moves = new MoveList();
+		game.generateMoves(moves, true);
+		for (int i = 0; i < moves.size(); i++)
+		{
+			if (PackedMove.getOrigin(moves.get(i)) == board.getIndex(originRow, originCol)
+					&& PackedMove.getDest(moves.get(i)) == board.getIndex(destRow, destCol))
+			{
+				return moves.get(i);
+			}
+		}
+		throw new AssertionError();
+	}
+}
@@ -0,0 +1,94 @@
+package ai;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+public class TranspositionTableTest
+{
+	@Test
+	public final void testCapacityIsPowerOfTwo()
+	{
+		assertEquals(1 << 16, new TranspositionTable(1).getCapacity());
+		assertEquals(1 << 17, new TranspositionTable(3).getCapacity());
+	}
+
+	@Test
+	public final void testStoreAndProbe()
+	{
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 0x123456789ABCDEFL;
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(key));
+
+		table.store(key, 7, TranspositionTable.LOWER_BOUND, -AlphaBetaSearch.MATE, 0xF0E0D0C0);
+		long entry = table.probe(key);
+		assertEquals(7, TranspositionTable.getDepth(entry));
+		assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.getBound(entry));
+		assertEquals(-AlphaBetaSearch.MATE, TranspositionTable.getScore(entry));
+		assertEquals(0xF0E0D0C0, TranspositionTable.getMove(entry));
+
+		// another position in the same slot doesn't match
+		assertEquals(TranspositionTable.NO_ENTRY, table.probe(key ^ (1L << 40)));
+	}
+
+	@Test
+	public final void testDeeperEntryIsKept()
+	{
+		TranspositionTable table = new TranspositionTable(1);
+		long key = 42;
+		table.store(key, 9, TranspositionTable.LOWER_BOUND, 100, 1);
+		table.store(key, 3, TranspositionTable.UPPER_BOUND, -100, 2);
+		assertEquals(9, TranspositionTable.getDepth(table.probe(key)));
+
+		table.store(key, 3, TranspositionTable.EXACT, 50, 3);
+		assertEquals(50, TranspositionTable.getScore(table.probe(key)));
+	}
+
+	@Test
+	public final void testConcurrentStoresNeverTear() throws Exception
+	{
+		final TranspositionTable table = new TranspositionTable(1);
+		final AtomicInteger mismatches = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++)
+		{
+			final long seed = t;
+			threads[t] = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					// few keys, so threads keep writing over each other's
+					// entries; every entry's contents are derived from its
+					// key, so a torn entry would show up as a mismatch
+					Random random = new Random(seed);
+					for (int i = 0; i < 200000; i++)
+					{
+						long key = (random.nextInt(64) * 0x9E3779B97F4A7C15L) & ~0xFFFL;
+						if (random.nextBoolean())
+						{
+							table.store(key, 5, TranspositionTable.EXACT, (int) (key >>> 50), (int) (key >>> 20));
+						}
+						else
+						{
+							long entry = table.probe(key);
+							if (entry != TranspositionTable.NO_ENTRY
+									&& (TranspositionTable.getScore(entry) != (int) (key >>> 50) || TranspositionTable.getMove(entry) != (int) (key >>> 20)))
+								mismatches.incrementAndGet();
+						}
+					}
+				}
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(0, mismatches.get());
+		assertTrue(table.getCapacity() > 0);
+	}
+}
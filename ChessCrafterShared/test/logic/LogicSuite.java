@@ -0,0 +1,12 @@
+package logic;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ PerftTest.class, PieceTypeTest.class })
+public class LogicSuite
+{
+
+}
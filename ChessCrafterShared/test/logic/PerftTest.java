@@ -0,0 +1,451 @@
+package logic;
+
+import static org.junit.Assert.assertEquals;
+import gui.PlayGameScreen;
+import gui.PlayNetGameScreen;
+import gui.WatchGameScreen;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+import javax.swing.JMenu;
+
+import models.Board;
+import models.Game;
+import models.MoveList;
+import models.Piece;
+import models.Rules;
+import models.Square;
+import models.UndoRecord;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import rules.AdjustTeamLegalDestinations;
+import rules.AfterMove;
+import rules.NextTurn;
+import utility.ChessCrafter;
+import utility.GuiUtility;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+public class PerftTest
+{
+	/**
+	 * The published node counts for the starting position of classic chess
+	 */
+	private static final long[] CLASSIC_COUNTS = { 1, 20, 400, 8902, 197281 };
+
+	/**
+	 * The reference positions of the Chess Programming Wiki's perft results
+	 * page and their published node counts from depth 1. The deeper counts
+	 * are left out to keep the suite quick.
+	 */
+	private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq -"; //$NON-NLS-1$
+	private static final String POSITION_3 = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - -"; //$NON-NLS-1$
+	private static final String POSITION_4 = "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq -"; //$NON-NLS-1$
+	private static final String POSITION_5 = "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ -"; //$NON-NLS-1$
+	private static final long[] KIWIPETE_COUNTS = { 48, 2039, 97862 };
+	private static final long[] POSITION_3_COUNTS = { 14, 191, 2812, 43238 };
+	private static final long[] POSITION_4_COUNTS = { 6, 264, 9467 };
+	private static final long[] POSITION_5_COUNTS = { 44, 1486, 62379 };
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception
+	{
+		// Move.execute refreshes the play screen, so give it one that does
+		// nothing
+		GuiUtility.setChessCrafter(new HeadlessChessCrafter());
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception
+	{
+		GuiUtility.setChessCrafter(null);
+	}
+
+	@Test
+	public final void testClassic() throws Exception
+	{
+		Perft perft = new Perft(GameBuilder.newClassicGame());
+		for (int depth = 0; depth < CLASSIC_COUNTS.length; depth++)
+			assertEquals("depth " + depth, CLASSIC_COUNTS[depth], perft.perft(depth)); //$NON-NLS-1$
+	}
+
+	@Test
+	public final void testClassicWithMoves() throws Exception
+	{
+		Perft perft = new Perft(GameBuilder.newClassicGame());
+		for (int depth = 0; depth < CLASSIC_COUNTS.length; depth++)
+			assertEquals("depth " + depth, CLASSIC_COUNTS[depth], perft.perftWithMoves(depth)); //$NON-NLS-1$
+	}
+
+	@Test
+	public final void testReferencePositions() throws Exception
+	{
+		assertCounts(KIWIPETE, KIWIPETE_COUNTS);
+		assertCounts(POSITION_3, POSITION_3_COUNTS);
+		assertCounts(POSITION_4, POSITION_4_COUNTS);
+		assertCounts(POSITION_5, POSITION_5_COUNTS);
+	}
+
+	@Test
+	public final void testDivideReferencePosition() throws Exception
+	{
+		// divide is headless, so it can't rely on the play screen either
+		GuiUtility.setChessCrafter(null);
+		try
+		{
+			Map<String, Long> divide = new Perft(newPosition(KIWIPETE)).divide(2);
+			assertEquals(KIWIPETE_COUNTS[0], divide.size());
+
+			long total = 0;
+			for (long count : divide.values())
+				total += count;
+			assertEquals(KIWIPETE_COUNTS[1], total);
+		}
+		finally
+		{
+			GuiUtility.setChessCrafter(new HeadlessChessCrafter());
+		}
+	}
+
+	@Test
+	public final void testDivide() throws Exception
+	{
+		Map<String, Long> divide = new Perft(GameBuilder.newClassicGame()).divide(3);
+		assertEquals(20, divide.size());
+
+		long total = 0;
+		for (long count : divide.values())
+			total += count;
+		assertEquals(CLASSIC_COUNTS[3], total);
+	}
+
+	@Test
+	public final void testPerftRestoresGame() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		String before = describe(game);
+		new Perft(game).perft(3);
+		assertEquals(before, describe(game));
+	}
+
+	/**
+	 * Recorded counts for the variants that can be built from the stock
+	 * pieces. They have no published values, so these only catch changes.
+	 * Depth 4 is the first depth with captures made before the leaves.
+	 */
+	@Test
+	public final void testVariants() throws Exception
+	{
+		assertEquals(197281, new Perft(newVariant(false, AfterMove.CLASSIC)).perft(4));
+		assertEquals(204421, new Perft(newVariant(true, AfterMove.CLASSIC)).perft(4));
+		assertEquals(197326, new Perft(newVariant(false, AfterMove.ATOMIC_CAPTURE)).perft(4));
+		assertEquals(197410, new Perft(newVariant(false, AfterMove.SWAP_COLOR_OF_CAPTURER)).perft(4));
+		assertEquals(197196, new Perft(newVariant(false, AfterMove.CAPTURED_PIECE_TO_ORIGIN)).perft(4));
+	}
+
+	@Test
+	public final void testMustCapture() throws Exception
+	{
+		Game game = newVariant(false, AfterMove.CLASSIC);
+		game.getWhiteRules().addAdjustTeamDestinations(AdjustTeamLegalDestinations.MUST_CAPTURE);
+		game.getBlackRules().addAdjustTeamDestinations(AdjustTeamLegalDestinations.MUST_CAPTURE);
+		assertEquals(152955, new Perft(game).perft(4));
+	}
+
+	/**
+	 * The on-Board counts the end of game checks use have to follow every
+	 * capture, including the after-move rules that remove or recolour Pieces
+	 */
+	@Test
+	public final void testPieceCounts() throws Exception
+	{
+		assertPieceCounts(newVariant(false, AfterMove.ATOMIC_CAPTURE), 4);
+		assertPieceCounts(newVariant(false, AfterMove.SWAP_COLOR_OF_CAPTURER), 4);
+		assertPieceCounts(newVariant(false, AfterMove.CAPTURED_PIECE_TO_ORIGIN), 4);
+	}
+
+	private static void assertPieceCounts(Game game, int depth)
+	{
+		for (boolean isBlack : new boolean[] { false, true })
+		{
+			int pieces = 0;
+			int pawns = 0;
+			for (Piece piece : isBlack ? game.getBlackTeam() : game.getWhiteTeam())
+			{
+				if (!piece.isCaptured())
+				{
+					pieces++;
+					if (piece.getType().isPawn())
+						pawns++;
+				}
+			}
+			assertEquals(pieces, game.getPieceCount(isBlack));
+			assertEquals(pawns, game.getPieceCount(Messages.getString("pawn"), isBlack)); //$NON-NLS-1$
+		}
+
+		if (depth == 0)
+			return;
+
+		MoveList moves = new MoveList();
+		UndoRecord undo = new UndoRecord();
+		game.generateMoves(moves, false);
+		assertEquals(moves.size(), game.getLegalMoveCount());
+		for (int i = 0; i < moves.size(); i++)
+		{
+			game.makeMove(moves.get(i), undo);
+			assertPieceCounts(game, depth - 1);
+			game.unmakeMove(undo);
+		}
+	}
+
+	/**
+	 * Build the classic starting position under a different name, so the
+	 * classic-only rules (castling, en passant) are off
+	 */
+	private static Game newVariant(boolean wrapsAround, AfterMove afterMove) throws Exception
+	{
+		Board board = new Board(8, 8, wrapsAround);
+		List<Piece> whiteTeam = Lists.newArrayList();
+		List<Piece> blackTeam = Lists.newArrayList();
+		for (int col = 1; col <= 8; col++)
+		{
+			whiteTeam.add(GameBuilder.createPawn(false, board.getSquare(2, col), board));
+			blackTeam.add(GameBuilder.createPawn(true, board.getSquare(7, col), board));
+		}
+		addBackRank(whiteTeam, false, 1, board);
+		addBackRank(blackTeam, true, 8, board);
+
+		Rules whiteRules = new Rules(false);
+		Rules blackRules = new Rules(true);
+		whiteRules.addAfterMove(afterMove);
+		blackRules.addAfterMove(afterMove);
+
+		return new Game("Variant", new Board[] { board }, whiteTeam, blackTeam, whiteRules, blackRules, //$NON-NLS-1$
+				Maps.<String, List<String>> newHashMap(), Maps.<String, List<String>> newHashMap());
+	}
+
+	private static void assertCounts(String fen, long[] counts) throws Exception
+	{
+		Perft perft = new Perft(newPosition(fen));
+		for (int depth = 1; depth <= counts.length; depth++)
+			assertEquals(fen + " depth " + depth, counts[depth - 1], perft.perft(depth)); //$NON-NLS-1$
+	}
+
+	/**
+	 * Build a classic chess position from the piece placement, side to move,
+	 * castling and en passant fields of a FEN string. The move counts of the
+	 * Pieces stand in for the castling rights and the pawns' double steps.
+	 */
+	static Game newPosition(String fen) throws Exception
+	{
+		String[] fields = fen.split(" "); //$NON-NLS-1$
+		Board board = new Board(8, 8, false);
+		List<Piece> whiteTeam = Lists.newArrayList();
+		List<Piece> blackTeam = Lists.newArrayList();
+		String[] rows = fields[0].split("/"); //$NON-NLS-1$
+		for (int i = 0; i < rows.length; i++)
+		{
+			int row = 8 - i;
+			int col = 1;
+			for (char c : rows[i].toCharArray())
+			{
+				if (Character.isDigit(c))
+				{
+					col += c - '0';
+					continue;
+				}
+
+				boolean isBlack = Character.isLowerCase(c);
+				Square square = board.getSquare(row, col++);
+				Piece piece;
+				switch (Character.toLowerCase(c))
+				{
+				case 'p':
+					piece = GameBuilder.createPawn(isBlack, square, board);
+					break;
+				case 'n':
+					piece = GameBuilder.createKnight(isBlack, square, board);
+					break;
+				case 'b':
+					piece = GameBuilder.createBishop(isBlack, square, board);
+					break;
+				case 'r':
+					piece = GameBuilder.createRook(isBlack, square, board);
+					break;
+				case 'q':
+					piece = GameBuilder.createQueen(isBlack, square, board);
+					break;
+				default:
+					piece = GameBuilder.createKing(isBlack, square, board);
+					break;
+				}
+				(isBlack ? blackTeam : whiteTeam).add(piece);
+			}
+		}
+
+		String castling = fields[2];
+		for (Piece piece : Iterables.concat(whiteTeam, blackTeam))
+		{
+			int homeRow = piece.isBlack() ? 8 : 1;
+			int row = piece.getSquare().getRow();
+			int col = piece.getSquare().getCol();
+			boolean hasMoved;
+			if (piece.getType().isPawn())
+				hasMoved = row != (piece.isBlack() ? 7 : 2);
+			else if (piece.getType().isKing())
+				hasMoved = row != homeRow || col != 5 || !castling.matches(piece.isBlack() ? ".*[kq].*" : ".*[KQ].*"); //$NON-NLS-1$ //$NON-NLS-2$
+			else if (row == homeRow && col == 1)
+				hasMoved = castling.indexOf(piece.isBlack() ? 'q' : 'Q') < 0;
+			else if (row == homeRow && col == 8)
+				hasMoved = castling.indexOf(piece.isBlack() ? 'k' : 'K') < 0;
+			else
+				hasMoved = true;
+			piece.setMoveCount(hasMoved ? 1 : 0);
+		}
+
+		if (!fields[3].equals("-")) //$NON-NLS-1$
+			board.setEnpassantCol(fields[3].charAt(0) - 'a' + 1);
+
+		Game game = new Game(Messages.getString("classic"), new Board[] { board }, whiteTeam, blackTeam, new Rules(false), //$NON-NLS-1$
+				new Rules(true), Maps.<String, List<String>> newHashMap(), Maps.<String, List<String>> newHashMap());
+		if (fields[1].equals("b")) //$NON-NLS-1$
+		{
+			int[] state = new int[NextTurn.STATE_SIZE];
+			game.getWhiteRules().getNextTurn().saveState(state);
+			state[0] = 1;
+			game.getWhiteRules().getNextTurn().restoreState(state);
+			game.setBlackMove(true);
+		}
+		return game;
+	}
+
+	private static void addBackRank(List<Piece> team, boolean isBlack, int row, Board board) throws Exception
+	{
+		team.add(GameBuilder.createRook(isBlack, board.getSquare(row, 1), board));
+		team.add(GameBuilder.createKnight(isBlack, board.getSquare(row, 2), board));
+		team.add(GameBuilder.createBishop(isBlack, board.getSquare(row, 3), board));
+		team.add(GameBuilder.createQueen(isBlack, board.getSquare(row, 4), board));
+		team.add(GameBuilder.createKing(isBlack, board.getSquare(row, 5), board));
+		team.add(GameBuilder.createBishop(isBlack, board.getSquare(row, 6), board));
+		team.add(GameBuilder.createKnight(isBlack, board.getSquare(row, 7), board));
+		team.add(GameBuilder.createRook(isBlack, board.getSquare(row, 8), board));
+	}
+
+	private static String describe(Game game)
+	{
+		StringBuilder builder = new StringBuilder();
+		builder.append(game.isBlackMove()).append(game.getBoards()[0].getEnpassantCol());
+		for (Piece piece : game.getWhiteTeam())
+			builder.append(describe(piece));
+		for (Piece piece : game.getBlackTeam())
+			builder.append(describe(piece));
+		return builder.toString();
+	}
+
+	private static String describe(Piece piece)
+	{
+		return piece.getName() + piece.isBlack() + piece.isCaptured() + piece.getMoveCount() + piece.getSquare().getRow()
+				+ piece.getSquare().getCol();
+	}
+
+	private static final class HeadlessChessCrafter implements ChessCrafter, PlayGameScreen
+	{
+		@Override
+		public PlayGameScreen getPlayGameScreen(Game game)
+		{
+			return this;
+		}
+
+		@Override
+		public PlayNetGameScreen getNetGameScreen()
+		{
+			return null;
+		}
+
+		@Override
+		public PlayNetGameScreen getNetGameScreen(Game g, boolean isPlayback, boolean isBlack)
+		{
+			return null;
+		}
+
+		@Override
+		public void setFileMenuVisibility(boolean visibility)
+		{
+		}
+
+		@Override
+		public void setOptionsMenuVisibility(boolean visibility)
+		{
+		}
+
+		@Override
+		public void revertToMainPanel()
+		{
+		}
+
+		@Override
+		public WatchGameScreen getWatchGameScreen(File acnFile)
+		{
+			return null;
+		}
+
+		@Override
+		public void pushPanel(Object panel)
+		{
+		}
+
+		@Override
+		public void saveGame()
+		{
+		}
+
+		@Override
+		public JMenu createMenuBar()
+		{
+			return null;
+		}
+
+		@Override
+		public void turn(boolean isBlackTurn)
+		{
+		}
+
+		@Override
+		public void setNextMoveMustPlacePiece(boolean nextMoveMustPlacePiece)
+		{
+		}
+
+		@Override
+		public boolean getNextMoveMustPlacePiece()
+		{
+			return false;
+		}
+
+		@Override
+		public void boardRefresh(Board[] boards)
+		{
+		}
+
+		@Override
+		public void setPieceToPlace(Piece piece)
+		{
+		}
+
+		@Override
+		public void endOfGame(Result result)
+		{
+		}
+
+		@Override
+		public void resetTimers()
+		{
+		}
+	}
+}
@@ -0,0 +1,107 @@
+package logic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import models.Board;
+import models.Game;
+import models.Piece;
+
+import org.junit.Test;
+
+import timer.ChessTimer;
+
+public class PieceTypeTest
+{
+	@Test
+	public final void testPiecesShareType() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		List<Piece> white = game.getWhiteTeam();
+		List<Piece> black = game.getBlackTeam();
+
+		for (Piece piece : white)
+		{
+			for (Piece other : black)
+			{
+				if (piece.getName().equals(other.getName()))
+					assertSame(piece.getName(), piece.getType(), other.getType());
+				else
+					assertNotSame(piece.getName(), piece.getType(), other.getType());
+			}
+		}
+	}
+
+	@Test
+	public final void testFlags() throws Exception
+	{
+		Board board = new Board(8, 8, false);
+		PieceType pawn = GameBuilder.createPawn(false, board.getSquare(2, 1), board).getType();
+		PieceType king = GameBuilder.createKing(false, board.getSquare(1, 5), board).getType();
+		PieceType knight = GameBuilder.createKnight(false, board.getSquare(1, 2), board).getType();
+		PieceType rook = GameBuilder.createRook(false, board.getSquare(1, 1), board).getType();
+
+		assertTrue(pawn.isPawn());
+		assertTrue(king.isKing());
+		assertTrue(knight.isKnight());
+		assertFalse(rook.isPawn() || rook.isKing() || rook.isKnight());
+		assertTrue(knight.isLeaper());
+		assertTrue(pawn.getId() < PieceType.getTypeCount());
+	}
+
+	@Test
+	public final void testSameNameDifferentMovements() throws Exception
+	{
+		Board board = new Board(8, 8, false);
+		Piece rook = GameBuilder.createRook(false, board.getSquare(1, 1), board);
+		Piece bishop = GameBuilder.createBishop(false, board.getSquare(1, 3), board);
+
+		// a custom Piece named like a stock one is still its own type
+		PieceType custom = PieceType.getType(rook.getName(), bishop.getPieceMovements(), false);
+		assertNotSame(rook.getType(), custom);
+		assertTrue(rook.getType().getId() != custom.getId());
+		assertSame(custom, PieceType.getType(rook.getName(), bishop.getPieceMovements(), false));
+	}
+
+	@Test
+	public final void testAttackTablesArePerShape() throws Exception
+	{
+		Board board = new Board(8, 8, false);
+		PieceType queen = GameBuilder.createQueen(false, board.getSquare(1, 4), board).getType();
+
+		assertSame(queen.getAttackTable(8, 8, false), queen.getAttackTable(8, 8, false));
+		assertNotSame(queen.getAttackTable(8, 8, false), queen.getAttackTable(8, 8, true));
+		assertNotSame(queen.getAttackTable(8, 8, false), queen.getAttackTable(10, 8, false));
+	}
+
+	@Test
+	public final void testCopyKeepsType() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		Game copy = game.copy();
+
+		for (int i = 0; i < game.getWhiteTeam().size(); i++)
+			assertSame(game.getWhiteTeam().get(i).getType(), copy.getWhiteTeam().get(i).getType());
+		assertEquals(game.getZobristKey(), copy.getZobristKey());
+	}
+
+	@Test
+	public final void testCopyLeavesTimers() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		ChessTimer whiteTimer = game.getWhiteTimer();
+		ChessTimer blackTimer = game.getBlackTimer();
+		Game copy = game.copy();
+
+		assertSame(whiteTimer, game.getWhiteTimer());
+		assertSame(blackTimer, game.getBlackTimer());
+		assertNull(copy.getWhiteTimer());
+		assertNull(copy.getBlackTimer());
+	}
+}
@@ -0,0 +1,71 @@
+package models;
+
+import static models.TestGames.play;
+import static models.TestGames.walk;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import logic.GameBuilder;
+import models.TestGames.Visitor;
+
+import org.junit.Test;
+
+public class AttackMapTest
+{
+	@Test
+	public final void testPawnThreatsAndGuards() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		Board board = game.getBoards()[0];
+		game.makeMove(board.getSquare(2, 5).getPiece(), board.getSquare(4, 5), null, new UndoRecord());
+
+		// the pawn on e4 threatens d5 and f5, but not e5 in front of it
+		assertTrue(game.isThreatened(board.getSquare(5, 4), false));
+		assertTrue(game.isThreatened(board.getSquare(5, 6), false));
+		assertFalse(game.isThreatened(board.getSquare(5, 5), false));
+
+		// the queen on d1 is guarded by the king, but not by black
+		assertTrue(game.isGuarded(board.getSquare(1, 4), false));
+		assertFalse(game.isGuarded(board.getSquare(1, 4), true));
+	}
+
+	@Test
+	public final void testMapsMatchPieceScans() throws Exception
+	{
+		// 1. e4 e5 2. Bc4 Nc6 3. Qh5, so there are pins and threats on f7
+		Game game = play(new int[][] { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 6, 4, 3 }, { 8, 2, 6, 3 }, { 1, 4, 5, 8 } });
+		walk(game, 2, new Visitor()
+		{
+			@Override
+			public void visit(Game position)
+			{
+				checkPosition(position);
+			}
+		});
+	}
+
+	private static void checkPosition(Game game)
+	{
+		Board board = game.getBoards()[0];
+		for (int row = 1; row <= board.getMaxRow(); row++)
+		{
+			for (int col = 1; col <= board.getMaxCol(); col++)
+			{
+				Square square = board.getSquare(row, col);
+				for (boolean isBlack : new boolean[] { false, true })
+				{
+					boolean threatened = false;
+					boolean guarded = false;
+					for (Piece piece : isBlack ? game.getBlackTeam() : game.getWhiteTeam())
+					{
+						threatened |= piece.isLegalAttack(square);
+						guarded |= piece.isGuarding(square);
+					}
+					assertEquals(square.toString(), threatened, game.isThreatened(square, isBlack));
+					assertEquals(square.toString(), guarded, game.isGuarded(square, isBlack));
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class BoardTest
+{
+	@Test
+	public final void testSquaresByIndex()
+	{
+		Board board = new Board(5, 7, false);
+		assertEquals(35, board.getNumSquares());
+		for (int row = 1; row <= 5; row++)
+		{
+			for (int col = 1; col <= 7; col++)
+				assertSame(board.getSquare(row, col), board.getSquare(board.getIndex(row, col)));
+		}
+	}
+
+	@Test
+	public final void testStepStopsAtEdges()
+	{
+		Board board = new Board(8, 8, false);
+		int a1 = board.getIndex(1, 1);
+		int h8 = board.getIndex(8, 8);
+
+		assertEquals(board.getIndex(2, 2), board.step(a1, 1, 1));
+		assertEquals(board.getIndex(3, 2), board.step(a1, 2, 1));
+		assertEquals(Board.OFF_BOARD, board.step(a1, -1, 0));
+		assertEquals(Board.OFF_BOARD, board.step(a1, 0, -1));
+		assertEquals(Board.OFF_BOARD, board.step(a1, 1, -2));
+		assertEquals(Board.OFF_BOARD, board.step(h8, 0, 1));
+		assertEquals(Board.OFF_BOARD, board.step(h8, 2, 0));
+		assertEquals(Board.OFF_BOARD, board.step(a1, 0, -1, true));
+	}
+
+	@Test
+	public final void testStepAroundWraparoundBoard()
+	{
+		Board board = new Board(6, 10, true);
+		int west = board.getIndex(3, 1);
+		int east = board.getIndex(3, 10);
+
+		assertEquals(east, board.step(west, 0, -1));
+		assertEquals(board.getIndex(3, 9), board.step(west, 0, -2));
+		assertEquals(west, board.step(east, 0, 1));
+
+		// the diagonals stop at the edge, unless asked to wrap
+		assertEquals(Board.OFF_BOARD, board.step(west, 1, -1));
+		assertEquals(board.getIndex(4, 10), board.step(west, 1, -1, true));
+		assertEquals(Board.OFF_BOARD, board.step(board.getIndex(6, 1), 1, -1, true));
+	}
+}
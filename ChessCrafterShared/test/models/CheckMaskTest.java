@@ -0,0 +1,47 @@
+package models;
+
+import static models.TestGames.play;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CheckMaskTest
+{
+	@Test
+	public final void testOnlyEvasionsInCheck() throws Exception
+	{
+		// 1. e4 d5 2. Bb5+, and black can only block with c6, Nc6, Nd7, Bd7
+		// or Qd7
+		Game game = play(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 1, 6, 5, 2 } });
+		assertTrue(game.isThreatened(board(game).getSquare(8, 5), false));
+		assertEquals(5, game.getLegalMoveCount());
+	}
+
+	@Test
+	public final void testPinnedPieceStaysOnRay() throws Exception
+	{
+		// 1. e4 d6 2. Bb5+ Nc6 3. Nf3, and the knight can't leave the diagonal
+		Game game = play(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 6, 4 }, { 1, 6, 5, 2 }, { 8, 2, 6, 3 }, { 1, 7, 3, 6 } });
+		Piece knight = board(game).getSquare(6, 3).getPiece();
+		assertEquals(0, knight.getLegalDests().size());
+		assertEquals(board(game).getSquare(5, 2).getPiece(), knight.getPinnedBy());
+	}
+
+	@Test
+	public final void testTwoBlockersAreNotPinned() throws Exception
+	{
+		// 1. e4 d6 2. Bb5+ Nc6 3. Nf3 Bd7 4. a3, and the bishop behind the
+		// knight frees it
+		Game game = play(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 6, 4 }, { 1, 6, 5, 2 }, { 8, 2, 6, 3 }, { 1, 7, 3, 6 }, { 8, 3, 7, 4 },
+				{ 2, 1, 3, 1 } });
+		Piece knight = board(game).getSquare(6, 3).getPiece();
+		assertTrue(knight.getLegalDests().size() > 0);
+		assertEquals(null, knight.getPinnedBy());
+	}
+
+	private static Board board(Game game)
+	{
+		return game.getBoards()[0];
+	}
+}
@@ -0,0 +1,117 @@
+package models;
+
+import static models.TestGames.play;
+import static models.TestGames.walk;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import logic.GameBuilder;
+import models.TestGames.Visitor;
+
+import org.junit.Test;
+
+import rules.AdjustTeamLegalDestinations;
+
+public class GameTest
+{
+	@Test
+	public final void testCheckmateHasNoLegalDest() throws Exception
+	{
+		// 1. f3 e5 2. g4 Qh4#
+		Game game = play(new int[][] { { 2, 6, 3, 6 }, { 7, 5, 5, 5 }, { 2, 7, 4, 7 }, { 8, 4, 4, 8 } });
+		assertFalse(game.hasAnyLegalDest());
+		assertTrue(game.isCheckmate());
+		assertFalse(game.isStalemate());
+		assertEquals(0, game.getLegalMoveCount());
+	}
+
+	@Test
+	public final void testBlockingCheckIsALegalDest() throws Exception
+	{
+		// 1. e4 d5 2. Bb5+, and the king can't move but the check can be
+		// blocked
+		Game game = play(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 1, 6, 5, 2 } });
+		Piece king = game.getBlackRules().objectivePiece(true);
+		assertTrue(king.getLegalDests().isEmpty());
+		assertTrue(game.hasAnyLegalDest());
+	}
+
+	@Test
+	public final void testStartHasLegalDest() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		assertTrue(game.hasAnyLegalDest());
+
+		// once the count is known, it gives the answer
+		assertEquals(20, game.getLegalMoveCount());
+		assertTrue(game.hasAnyLegalDest());
+	}
+
+	@Test
+	public final void testLegalDestFoundWithoutFullPass() throws Exception
+	{
+		Game game = play(new int[][] { { 2, 5, 4, 5 } });
+		game.setStaleLegalDests(true);
+		int generation = game.getLegalDestsGeneration();
+
+		assertTrue(game.hasAnyLegalDest());
+		assertEquals(generation, game.getLegalDestsGeneration());
+		assertTrue(game.isStaleLegalDests());
+		assertEquals(20, game.getLegalMoveCount());
+	}
+
+	@Test
+	public final void testMandatoryCapturesGenerateInFull() throws Exception
+	{
+		Game game = play(new int[][] { { 2, 5, 4, 5 } });
+		game.getBlackRules().addAdjustTeamDestinations(AdjustTeamLegalDestinations.MUST_CAPTURE);
+		game.setStaleLegalDests(true);
+		int generation = game.getLegalDestsGeneration();
+
+		assertTrue(game.hasAnyLegalDest());
+		assertEquals(generation + 1, game.getLegalDestsGeneration());
+		assertFalse(game.isStaleLegalDests());
+	}
+
+	@Test
+	public final void testLegalDestFoundLikeFullPass() throws Exception
+	{
+		// 1. e4 d5 2. Bb5+, with checks, pins and en passant close by
+		Visitor sameAnswer = new Visitor()
+		{
+			@Override
+			public void visit(Game game)
+			{
+				game.setStaleLegalDests(true);
+				boolean hasLegalDest = game.hasAnyLegalDest();
+				assertEquals(game.getLegalMoveCount() > 0, hasLegalDest);
+			}
+		};
+		walk(play(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 1, 6, 5, 2 } }), 3, sameAnswer);
+
+		// 1. f3 e5 2. g4 Qh4#
+		walk(play(new int[][] { { 2, 6, 3, 6 }, { 7, 5, 5, 5 }, { 2, 7, 4, 7 }, { 8, 4, 4, 8 } }), 1, sameAnswer);
+	}
+
+	@Test
+	public final void testMakeMoveDoesNotGenerate() throws Exception
+	{
+		// 1. e4 d5, so white has a capture among its Moves
+		Game game = play(new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 } });
+		MoveList moves = new MoveList();
+		game.generateMoves(moves, false);
+		int generation = game.getLegalDestsGeneration();
+
+		UndoRecord undo = new UndoRecord();
+		for (int i = 0; i < moves.size(); i++)
+		{
+			game.makeMove(moves.get(i), undo);
+			game.unmakeMove(undo);
+		}
+		assertEquals(generation, game.getLegalDestsGeneration());
+
+		// only asking for the destinations again generates them
+		game.generateMoves(moves, false);
+		assertEquals(generation + 1, game.getLegalDestsGeneration());
+	}
+}
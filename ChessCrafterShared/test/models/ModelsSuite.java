@@ -0,0 +1,12 @@
+package models;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+@RunWith(Suite.class)
+@SuiteClasses({ AttackMapTest.class, BoardTest.class, CheckMaskTest.class, GameTest.class, ObjectivePieceTest.class, PackedMoveTest.class, ZobristTest.class })
+public class ModelsSuite
+{
+
+}
@@ -0,0 +1,96 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.Set;
+
+import logic.GameBuilder;
+
+import org.junit.Test;
+
+import com.google.common.collect.Sets;
+
+public class ObjectivePieceTest
+{
+	@Test
+	public final void testObjectivePieceIsKept() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		Piece whiteKing = game.getWhiteRules().objectivePiece(false);
+		Piece blackKing = game.getBlackRules().objectivePiece(true);
+
+		assertTrue(whiteKing.getType().isKing());
+		assertTrue(blackKing.getType().isKing() && blackKing.isBlack());
+		assertSame(whiteKing, game.getOtherObjectivePiece(true));
+
+		// 1. e4 e5 2. Ke2, so the king has moved and the Pieces have been
+		// regenerated a few times
+		MoveList moves = new MoveList();
+		int[][] line = { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 5, 2, 5 } };
+		for (int[] step : line)
+		{
+			game.generateMoves(moves, false);
+			Board board = game.getBoards()[0];
+			int origin = board.getIndex(step[0], step[1]);
+			int dest = board.getIndex(step[2], step[3]);
+			for (int i = 0; i < moves.size(); i++)
+			{
+				if (PackedMove.getOrigin(moves.get(i)) == origin && PackedMove.getDest(moves.get(i)) == dest)
+				{
+					game.makeMove(moves.get(i), new UndoRecord());
+					break;
+				}
+			}
+		}
+		assertEquals(2, whiteKing.getSquare().getRow());
+		assertSame(whiteKing, game.getWhiteRules().objectivePiece(false));
+		assertSame(blackKing, game.getBlackRules().objectivePiece(true));
+	}
+
+	/**
+	 * Only the team to move has its objective piece cropped and given its
+	 * castling Moves, so each of them is generated once
+	 */
+	@Test
+	public final void testObjectiveDestsAreNotRepeated() throws Exception
+	{
+		// 1. e4 e5 2. Nf3 Nc6 3. Bc4 Bc5, and white can castle
+		Game game = GameBuilder.newClassicGame();
+		Board board = game.getBoards()[0];
+		int[][] line = { { 2, 5, 4, 5 }, { 7, 5, 5, 5 }, { 1, 7, 3, 6 }, { 8, 2, 6, 3 }, { 1, 6, 4, 3 }, { 8, 6, 5, 3 } };
+		for (int[] step : line)
+		{
+			game.genLegalDests();
+			game.makeMove(board.getSquare(step[0], step[1]).getPiece(), board.getSquare(step[2], step[3]), null, new UndoRecord());
+		}
+
+		MoveList moves = new MoveList();
+		game.generateMoves(moves, false);
+		Set<Integer> unique = Sets.newHashSet();
+		for (int i = 0; i < moves.size(); i++)
+			assertTrue(unique.add(moves.get(i)));
+
+		// Ke2, Kf1 and O-O
+		assertEquals(3, game.getWhiteRules().objectivePiece(false).getLegalDests().size());
+	}
+
+	@Test
+	public final void testTeamChangeIsNoticed() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		Piece blackKing = game.getBlackRules().objectivePiece(true);
+
+		// move the black king to the white team without telling the Game
+		game.getBlackTeam().remove(blackKing);
+		game.getWhiteTeam().add(blackKing);
+		blackKing.setBlack(false);
+
+		assertNull(game.getBlackRules().objectivePiece(true));
+
+		game.invalidateObjectivePieces();
+		assertNull(game.getBlackRules().objectivePiece(true));
+		assertTrue(game.getWhiteRules().objectivePiece(false).getType().isKing());
+	}
+}
@@ -0,0 +1,64 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import logic.GameBuilder;
+
+import org.junit.Test;
+
+public class PackedMoveTest
+{
+	@Test
+	public final void testPackRoundTrip()
+	{
+		int move = PackedMove.pack(1, 255, 0, PackedMove.MAX_SQUARES - 1, 3, true);
+		assertEquals(1, PackedMove.getOriginBoard(move));
+		assertEquals(255, PackedMove.getOrigin(move));
+		assertEquals(0, PackedMove.getDestBoard(move));
+		assertEquals(PackedMove.MAX_SQUARES - 1, PackedMove.getDest(move));
+		assertEquals(3, PackedMove.getPromotion(move));
+		assertTrue(PackedMove.isCapture(move));
+		assertTrue(move > 0);
+
+		move = PackedMove.pack(0, 12, 0, 28, -1, false);
+		assertEquals(-1, PackedMove.getPromotion(move));
+		assertFalse(PackedMove.isCapture(move));
+	}
+
+	@Test
+	public final void testMoveListKeepsOrder()
+	{
+		MoveList moves = new MoveList();
+		for (int i = 1; i <= 100; i++)
+			moves.add(PackedMove.pack(0, i, 0, i + 1, -1, i % 3 == 0));
+
+		assertEquals(33, moves.moveCapturesToFront());
+		for (int i = 0; i < 33; i++)
+			assertEquals(3 * (i + 1), PackedMove.getOrigin(moves.get(i)));
+		assertEquals(1, PackedMove.getOrigin(moves.get(33)));
+		assertEquals(2, PackedMove.getOrigin(moves.get(34)));
+		assertEquals(100, moves.size());
+	}
+
+	@Test
+	public final void testMakeAndUnmakePackedMoves() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		long key = game.getZobristKey();
+		MoveList moves = new MoveList();
+		UndoRecord undo = new UndoRecord();
+
+		assertEquals(20, game.generateMoves(moves, false));
+		assertEquals(0, game.generateMoves(moves, true));
+		game.generateMoves(moves, false);
+		for (int i = 0; i < moves.size(); i++)
+		{
+			Square dest = game.getBoards()[0].getSquare(PackedMove.getDest(moves.get(i)));
+			game.makeMove(moves.get(i), undo);
+			assertTrue(dest.isOccupied());
+			game.unmakeMove(undo);
+			assertEquals(key, game.getZobristKey());
+		}
+	}
+}
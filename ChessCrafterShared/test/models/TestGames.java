@@ -0,0 +1,110 @@
+package models;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import logic.GameBuilder;
+
+import com.google.common.collect.Lists;
+
+/**
+ * TestGames.java
+ * 
+ * Helpers the model tests share for playing through Games
+ */
+final class TestGames
+{
+	/**
+	 * Something to check at every position of a walk
+	 */
+	interface Visitor
+	{
+		/**
+		 * @param game The Game, with its legal destinations generated
+		 */
+		void visit(Game game);
+	}
+
+	private TestGames()
+	{
+	}
+
+	/**
+	 * Play Moves from the start of a classic Game
+	 * 
+	 * @see #play(Game, int[][])
+	 */
+	static Game play(int[][] moves) throws Exception
+	{
+		return play(GameBuilder.newClassicGame(), moves);
+	}
+
+	/**
+	 * Play Moves with makeMove, checking that each one is legal
+	 * 
+	 * @param game The Game to play them in
+	 * @param moves The origin row and column and destination row and column
+	 * of each Move
+	 * @return The Game, with its legal destinations generated
+	 */
+	static Game play(Game game, int[][] moves)
+	{
+		Board board = game.getBoards()[0];
+		for (int[] move : moves)
+		{
+			game.genLegalDests();
+			Piece piece = board.getSquare(move[0], move[1]).getPiece();
+			assertTrue(piece.isLegalDest(board.getSquare(move[2], move[3])));
+			game.makeMove(piece, board.getSquare(move[2], move[3]), null, new UndoRecord());
+		}
+		game.genLegalDests();
+		return game;
+	}
+
+	/**
+	 * Play every line of a number of Moves from the current position with
+	 * makeMove and unmakeMove, visiting each position on the way. Every Move
+	 * must change the position's Zobrist key, and taking it back must restore
+	 * the key.
+	 * 
+	 * @param game The Game to walk, which is left as it was
+	 * @param depth How many Moves deep to go
+	 * @param visitor What to check at each position, or null
+	 */
+	static void walk(Game game, int depth, Visitor visitor)
+	{
+		game.genLegalDests();
+		if (visitor != null)
+			visitor.visit(game);
+		if (depth == 0)
+			return;
+
+		List<Piece> pieces = Lists.newArrayList();
+		List<Square> dests = Lists.newArrayList();
+		for (Piece piece : game.isBlackMove() ? game.getBlackTeam() : game.getWhiteTeam())
+		{
+			if (piece.isCaptured())
+				continue;
+			for (Square dest : piece.getLegalDests())
+			{
+				pieces.add(piece);
+				dests.add(dest);
+			}
+		}
+
+		long key = game.getZobristKey();
+		UndoRecord undo = new UndoRecord();
+		for (int i = 0; i < pieces.size(); i++)
+		{
+			game.makeMove(pieces.get(i), dests.get(i), null, undo);
+			assertFalse(key == game.getZobristKey());
+			walk(game, depth - 1, visitor);
+			game.unmakeMove(undo);
+			assertEquals(key, game.getZobristKey());
+		}
+		game.genLegalDests();
+	}
+}
@@ -0,0 +1,145 @@
+package models;
+
+import static models.TestGames.play;
+import static models.TestGames.walk;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import logic.GameBuilder;
+import logic.Move;
+
+import org.junit.Test;
+
+import rules.AfterMove;
+import rules.NextTurn;
+
+public class ZobristTest
+{
+	@Test
+	public final void testMakeAndUnmakeRestoreKey() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		walk(game, 3, null);
+	}
+
+	@Test
+	public final void testIncrementalKeyMatchesRebuiltKey() throws Exception
+	{
+		// 1. e4 d5 2. exd5 Nf6 3. Bb5+ c6 4. dxc6, with captures and en
+		// passant columns along the way
+		Game game = play(GameBuilder.newClassicGame(), new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 4, 5, 5, 4 }, { 8, 7, 6, 6 },
+				{ 1, 6, 5, 2 }, { 7, 3, 6, 3 }, { 5, 4, 6, 3 } });
+
+		// a loaded Game rebuilds its Bitboards from the Squares
+		assertEquals(game.getZobristKey(), game.copy().getZobristKey());
+	}
+
+	@Test
+	public final void testTranspositionsShareKey() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		long start = game.getZobristKey();
+
+		// 1. Nf3 Nf6 2. Ng1 Ng8
+		play(game, new int[][] { { 1, 7, 3, 6 }, { 8, 7, 6, 6 }, { 3, 6, 1, 7 }, { 6, 6, 8, 7 } });
+		assertEquals(start, game.getZobristKey());
+	}
+
+	@Test
+	public final void testSideToMoveChangesKey() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		long whiteToMove = game.getZobristKey();
+		game.setBlackMove(true);
+		assertEquals(whiteToMove ^ Zobrist.BLACK_TO_MOVE, game.getZobristKey());
+	}
+
+	@Test
+	public final void testEnpassantChangesKey() throws Exception
+	{
+		Game game = play(GameBuilder.newClassicGame(), new int[][] { { 2, 5, 4, 5 } });
+		Board board = game.getBoards()[0];
+		long withEnpassant = game.getZobristKey();
+
+		board.setEnpassantCol(Board.NO_ENPASSANT);
+		assertFalse(withEnpassant == game.getZobristKey());
+		board.setEnpassantCol(5);
+		assertEquals(withEnpassant, game.getZobristKey());
+	}
+
+	@Test
+	public final void testCastlingRightsChangeKey() throws Exception
+	{
+		Game game = play(GameBuilder.newClassicGame(), new int[][] { { 1, 7, 3, 6 }, { 8, 7, 6, 6 } });
+		long canCastle = game.getZobristKey();
+		assertEquals(15, game.getCastlingRights());
+
+		// the rooks go out and back, so only the castling rights differ
+		play(game, new int[][] { { 1, 8, 1, 7 }, { 8, 8, 8, 7 }, { 1, 7, 1, 8 }, { 8, 7, 8, 8 } });
+		assertEquals(5, game.getCastlingRights());
+		assertFalse(canCastle == game.getZobristKey());
+	}
+
+	@Test
+	public final void testMoveExecuteAndUndo() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		game.setIsPlayback(true);
+		game.genLegalDests();
+		Board board = game.getBoards()[0];
+		long before = game.getZobristKey();
+
+		Move move = new Move(board, board.getSquare(2, 5), board.getSquare(4, 5));
+		move.execute();
+		assertFalse(before == game.getZobristKey());
+		move.undo();
+		assertEquals(before, game.getZobristKey());
+	}
+
+	@Test
+	public final void testTurnCountersChangeKey() throws Exception
+	{
+		Game game = GameBuilder.newClassicGame();
+		NextTurn nextTurn = game.getWhiteRules().getNextTurn();
+		long start = game.getZobristKey();
+		int[] state = new int[NextTurn.STATE_SIZE];
+		nextTurn.saveState(state);
+
+		// one Move into a turn of two is not the start of the turn
+		int[] changed = state.clone();
+		changed[1] = 1;
+		changed[2] = 2;
+		nextTurn.restoreState(changed);
+		long oneMade = game.getZobristKey();
+		assertFalse(start == oneMade);
+
+		changed[1] = 0;
+		nextTurn.restoreState(changed);
+		assertFalse(oneMade == game.getZobristKey());
+		assertFalse(start == game.getZobristKey());
+
+		nextTurn.restoreState(state);
+		assertEquals(start, game.getZobristKey());
+	}
+
+	@Test
+	public final void testHeldPiecesChangeKey() throws Exception
+	{
+		// 1. e4 d5 2. exd5, and white has taken a pawn
+		Game game = play(GameBuilder.newClassicGame(), new int[][] { { 2, 5, 4, 5 }, { 7, 4, 5, 4 }, { 4, 5, 5, 4 } });
+		long withoutDrops = game.getZobristKey();
+
+		game.getWhiteRules().addAfterMove(AfterMove.CAPTURER_PLACES_CAPTURED);
+		game.getBlackRules().addAfterMove(AfterMove.CAPTURER_PLACES_CAPTURED);
+		assertFalse(withoutDrops == game.getZobristKey());
+	}
+
+	@Test
+	public final void testTypeKeysUseWholeName()
+	{
+		// the same String.hashCode, which the keys used to be seeded with
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+		assertFalse(Zobrist.typeKey("Aa") == Zobrist.typeKey("BB"));
+		assertFalse(Zobrist.pieceKey(Zobrist.typeKey("Aa"), false, 0) == Zobrist.pieceKey(Zobrist.typeKey("BB"), false, 0));
+	}
+}